@@ -0,0 +1,80 @@
+package bjc.dicelang;
+
+import java.util.List;
+
+import bjc.dicelang.eval.EvaluatorResult;
+
+/**
+ * The outcome of running a single command in a batch.
+ *
+ * @author Ben Culkin
+ */
+public final class CommandResult {
+	/**
+	 * The command that was run.
+	 */
+	public final String command;
+
+	/**
+	 * Whether the command ran successfully.
+	 *
+	 * A command only succeeds if none of its trees evaluated to a failure.
+	 */
+	public final boolean succeeded;
+
+	/* The result of each tree in the command. */
+	private final List<EvaluatorResult> results;
+	/* The errors reported while running the command. */
+	private final List<DiceError> errors;
+
+	/**
+	 * Create a new command result.
+	 *
+	 * @param comm
+	 *            The command that was run.
+	 *
+	 * @param succ
+	 *            Whether the command ran successfully.
+	 *
+	 * @param res
+	 *            The result of each tree in the command.
+	 *
+	 * @param errs
+	 *            The errors reported while running the command.
+	 */
+	public CommandResult(final String comm, final boolean succ, final List<EvaluatorResult> res,
+			final List<DiceError> errs) {
+		command = comm;
+		succeeded = succ;
+
+		results = res;
+		errors = errs;
+	}
+
+	/**
+	 * Get the result of each tree in the command.
+	 *
+	 * Trees that are groups have a null result. Commands that didn't get as
+	 * far as evaluation have no results.
+	 *
+	 * @return The results of the command, in order.
+	 */
+	public List<EvaluatorResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * Get the errors reported while running the command.
+	 *
+	 * @return The errors of the command, in the order they were reported.
+	 */
+	public List<DiceError> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CommandResult [command=%s, succeeded=%s, results=%s, errors=%s]", command, succeeded,
+				results, errors);
+	}
+}
@@ -1,6 +1,8 @@
 package bjc.dicelang;
 
-import bjc.utils.parserutils.splitter.ConfigurableTokenSplitter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
 
 /*
  * @TODO 10/09/17 Ben Culkin :CompilerTweaking
@@ -15,7 +17,9 @@ import bjc.utils.parserutils.splitter.ConfigurableTokenSplitter;
 public class CompilerTweaker {
 	/* Bits of the compiler necessary */
 	private final DiceLangEngine eng;
-	private final ConfigurableTokenSplitter opExpander;
+
+	/* Delimiter changes that haven't been compiled yet. */
+	private final List<UnaryOperator<LanguageDefinition>> pendingDelims;
 
 	/**
 	 * Create a new compiler tweaker.
@@ -26,22 +30,21 @@ public class CompilerTweaker {
 	public CompilerTweaker(final DiceLangEngine engine) {
 		eng = engine;
 
-		this.opExpander = engine.opExpander;
+		pendingDelims = new ArrayList<>();
 	}
 
 	/**
 	 * Add a string literal to the compiler's internal banks.
 	 *
+	 * Literals added this way are kept for as long as the engine is.
+	 *
 	 * @param val
 	 *        The string literal to add.
 	 *
 	 * @return The key into the string literal table for this string.
 	 */
 	public int addStringLiteral(final String val) {
-		eng.addStringLiteral(eng.nextLiteral, val);
-
-		eng.nextLiteral += 1;
-		return eng.nextLiteral;
+		return eng.pinStringLiteral(val);
 	}
 
 	/**
@@ -71,7 +74,7 @@ public class CompilerTweaker {
 	 *        The delimiters to expand on.
 	 */
 	public void addDelimiter(final String... delims) {
-		opExpander.addSimpleDelimiters(delims);
+		pendingDelims.add(def -> def.withDelimiters(delims));
 	}
 
 	/**
@@ -81,14 +84,22 @@ public class CompilerTweaker {
 	 *        The multi-character delimiters to expand on.
 	 */
 	public void addMultiDelimiter(final String... delims) {
-		opExpander.addMultiDelimiters(delims);
+		pendingDelims.add(def -> def.withMultiDelimiters(delims));
 	}
 
 	/**
 	 * Make delimiter changes visible to the compiler.
 	 */
 	public void compile() {
-		opExpander.compile();
+		LanguageDefinition def = eng.getDefinition();
+
+		for (final UnaryOperator<LanguageDefinition> change : pendingDelims) {
+			def = change.apply(def);
+		}
+
+		pendingDelims.clear();
+
+		eng.setDefinition(def);
 	}
 
 	/**
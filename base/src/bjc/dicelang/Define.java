@@ -48,6 +48,8 @@ public class Define implements UnaryOperator<String>, Comparable<Define> {
 	private boolean doRecur;
 	/* Whether this define is applied multiple times per unit. */
 	private boolean subType;
+	/* Whether this define cycles through more than one replacer. */
+	private boolean varying;
 
 	/* The pattern that needs to match to apply this. */
 	private Pattern predicate;
@@ -113,7 +115,12 @@ public class Define implements UnaryOperator<String>, Comparable<Define> {
 
 		/* Check whether or not we do sub-replacements */
 		if(subType) {
-			if(replacrs.iterator().hasNext()) {
+			final Iterator<String> itr = replacrs.iterator();
+
+			if(itr.hasNext()) {
+				itr.next();
+
+				varying = itr.hasNext();
 				replacers = new CircularIterator<>(replacrs, isCircular);
 			} else {
 				replacers = null;
@@ -177,8 +184,7 @@ public class Define implements UnaryOperator<String>, Comparable<Define> {
 				if(replacers == null) {
 					searcherMatcher.appendReplacement(sb, "");
 				} else {
-					final String replac = replacers.next();
-					searcherMatcher.appendReplacement(sb, replac);
+					searcherMatcher.appendReplacement(sb, nextReplacer());
 				}
 			}
 
@@ -189,6 +195,29 @@ public class Define implements UnaryOperator<String>, Comparable<Define> {
 		return searcherMatcher.replaceAll(replacer);
 	}
 
+	/**
+	 * Check whether applying this define to the same string can give
+	 * different results each time.
+	 *
+	 * This is the case for sub-defines with more than one replacer, since
+	 * they move on to the next replacer each time one is used.
+	 *
+	 * @return Whether the results of this define vary.
+	 */
+	public boolean isVarying() {
+		return varying;
+	}
+
+	/*
+	 * Get the next replacement string.
+	 *
+	 * Defines can be shared between engines on different threads, and this
+	 * is the only state that changes when a define is applied.
+	 */
+	private synchronized String nextReplacer() {
+		return replacers.next();
+	}
+
 	@Override
 	public int compareTo(final Define o) {
 		return priority - o.priority;
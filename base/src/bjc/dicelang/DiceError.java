@@ -0,0 +1,122 @@
+package bjc.dicelang;
+
+import java.util.Arrays;
+
+import bjc.dicelang.Errors.ErrorKey;
+
+/**
+ * An error that was reported while running a command.
+ *
+ * Errors only hold their key and arguments. The message isn't formatted until
+ * it is asked for.
+ *
+ * @author Ben Culkin
+ */
+public final class DiceError {
+	/* The shared errors for keys without arguments. */
+	private static final DiceError[] NO_ARGS;
+
+	static {
+		final ErrorKey[] keys = ErrorKey.values();
+
+		NO_ARGS = new DiceError[keys.length];
+
+		for (final ErrorKey key : keys) {
+			NO_ARGS[key.ordinal()] = new DiceError(key, new String[0]);
+		}
+	}
+
+	/**
+	 * The key of the error.
+	 */
+	public final ErrorKey key;
+
+	/* The arguments for the error. */
+	private final String[] args;
+
+	/* Create a new error. */
+	private DiceError(final ErrorKey ky, final String[] ars) {
+		key = ky;
+		args = ars;
+	}
+
+	/**
+	 * Get an error.
+	 *
+	 * Errors without arguments are shared, instead of being created each
+	 * time.
+	 *
+	 * @param key
+	 *            The key of the error.
+	 *
+	 * @param args
+	 *            The arguments for the error.
+	 *
+	 * @return The error.
+	 */
+	public static DiceError of(final ErrorKey key, final String... args) {
+		if (args.length == 0) return NO_ARGS[key.ordinal()];
+
+		return new DiceError(key, args.clone());
+	}
+
+	/**
+	 * Get the number of arguments for the error.
+	 *
+	 * @return The number of arguments.
+	 */
+	public int getArgCount() {
+		return args.length;
+	}
+
+	/**
+	 * Get an argument for the error.
+	 *
+	 * @param idx
+	 *            The index of the argument.
+	 *
+	 * @return The argument.
+	 */
+	public String getArg(final int idx) {
+		return args[idx];
+	}
+
+	/**
+	 * Format the error, the same way it would be printed.
+	 *
+	 * @return The message for the error.
+	 */
+	public String getMessage() {
+		return Errors.inst.format(key, args).trim();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(args);
+		result = prime * result + ((key == null) ? 0 : key.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final DiceError other = (DiceError) obj;
+		if (!Arrays.equals(args, other.args))
+			return false;
+		if (key != other.key)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DiceError [key=%s, args=%s]", key, Arrays.toString(args));
+	}
+}
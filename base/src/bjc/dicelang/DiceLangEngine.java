@@ -1,17 +1,21 @@
 package bjc.dicelang;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import bjc.dicelang.eval.DiceEvaluatorResult;
+import bjc.dicelang.eval.CompiledExpression;
 import bjc.dicelang.eval.Evaluator;
 import bjc.dicelang.eval.EvaluatorResult;
-import bjc.dicelang.eval.FailureEvaluatorResult;
+import bjc.dicelang.eval.Optimizer;
 import bjc.dicelang.scl.StreamEngine;
 import bjc.dicelang.tokens.Token;
 import bjc.data.Tree;
@@ -22,7 +26,6 @@ import bjc.funcdata.ListEx;
 import bjc.funcdata.MapEx;
 import bjc.utils.funcutils.ListUtils;
 import bjc.utils.parserutils.TokenUtils;
-import bjc.utils.parserutils.splitter.ConfigurableTokenSplitter;
 
 import static bjc.dicelang.Errors.ErrorKey.*;
 import static bjc.dicelang.tokens.Token.Type.*;
@@ -30,158 +33,239 @@ import static bjc.dicelang.tokens.Token.Type.*;
 /**
  * Implements the orchestration necessary for processing DiceLang commands.
  *
+ * Each engine is a single session, with its own modes, tables and caches, and
+ * should only be used from one thread at a time. The operators and defines
+ * live in a {@link LanguageDefinition}, which can be shared between any
+ * number of engines.
+ *
  * @author Ben Culkin
  */
 public class DiceLangEngine {
-	/* Logger. */
-	private static final Logger LOG = Logger.getLogger(DiceLangEngine.class.getName());
-
 	/*
 	 * The random fields that are package private instead of private-private are for
 	 * the benefit of the tweaker, so that it can mess around with them.
 	 */
 
-	/* Split tokens around operators with regex */
-	ConfigurableTokenSplitter opExpander;
-
-	/* ID for generation. */
-	int nextLiteral;
+	/* The operators and defines for this engine. */
+	private LanguageDefinition langDef;
 
 	/**
 	 * Debug indicator.
 	 */
 	public boolean debugMode;
+	/* Where diagnostics go. */
+	private Tracer tracer;
 	/* Should we do shunting? */
 	private boolean postfixMode;
 	/* Should we reverse the token stream? */
 	private boolean prefixMode;
 	/* Should we do step-by-step evaluation? */
 	private boolean stepEval;
+	/* Should we evaluate compiled expressions instead of trees? */
+	private boolean compiledEval;
+	/* Should we fold constants before evaluating? */
+	private boolean optimizeMode;
+
+	/* The default maximum length of strings built by string operators. */
+	private static final int DEFAULT_MAX_STRING_LENGTH = 1 << 20;
+
+	/* The maximum length of strings built by string operators. */
+	private int maxStringLength;
 
-	/* Shunter for token shunting. */
-	Shunter shunt;
 	/* Tokenizer for tokenizing. */
 	Tokenizer tokenzer;
 	/* Parser for tree construction. */
 	Parser parsr;
 	/* Evaluator for evaluating. */
 	Evaluator eval;
+	/* Optimizer for constant folding. */
+	Optimizer optim;
+
+	/* The number of entries the tables can have before they are reclaimed. */
+	private static final int TABLE_LIMIT = 1024;
 
 	/* Tables for various things. */
 	/**
 	 * The symbol table.
 	 */
-	public final MapEx<Integer, String> symTable;
+	public final InternTable symTable;
 
 	/* String literal tables */
-	private final MapEx<Integer, String> stringLits;
-	private final MapEx<String, String> stringLiterals;
-
-	/* Lists of defns. */
-	private final ListEx<Define> lineDefns;
-	private final ListEx<Define> tokenDefns;
-
-	/* Are defns currently sorted by priority? */
-	private boolean defnsSorted;
+	private final InternTable stringLits;
+	/* The literals in the current command, by name. */
+	private MapEx<String, String> stringLiterals;
 
 	/* Stream engine for processing streams. */
 	StreamEngine streamEng;
 
+	/* The default number of parsed commands to cache. */
+	private static final int DEFAULT_CACHE_SIZE = 256;
+
+	/* Timings for each stage of running commands. */
+	private final PipelineMetrics metrics;
+
+	/* The errors from the last command. */
+	private List<DiceError> lastErrors;
+
+	/* The engines that run parts of batches, kept between batches. */
+	private final List<DiceLangEngine> batchWorkers;
+
+	/* A parsed command, along with its compiled form once it is needed. */
+	private static final class ParsedCommand {
+		public final ListEx<Tree<Node>> forest;
+
+		/* The last compiled form of the command, if it has been compiled. */
+		public CompiledExpression compiled;
+
+		public ParsedCommand(final ListEx<Tree<Node>> frst) {
+			forest = frst;
+		}
+	}
+
+	/* Cache of parsed commands, keyed by their preprocessed text. */
+	private final ExpressionCache<ParsedCommand> exprCache;
+	/* The define recursion limit when the cache was filled. */
+	private int cachedRecurLimit;
+
 	/**
-	 * Create a new DiceLang engine.
+	 * Create a new DiceLang engine, with the standard definition.
 	 */
 	public DiceLangEngine() {
-		/* Initialize defns. */
-		lineDefns = new FunctionalList<>();
-		tokenDefns = new FunctionalList<>();
-		defnsSorted = true;
+		this(LanguageDefinition.standard());
+	}
+
+	/**
+	 * Create a new DiceLang engine that uses an existing definition.
+	 *
+	 * @param def
+	 *            The definition to use.
+	 */
+	public DiceLangEngine(final LanguageDefinition def) {
+		this(def, new PipelineMetrics());
+	}
+
+	/* Create a new DiceLang engine that records into existing metrics. */
+	private DiceLangEngine(final LanguageDefinition def, final PipelineMetrics met) {
+		langDef = def;
 
 		/* Initialize tables. */
-		symTable = new FunctionalMap<>();
-		stringLits = new FunctionalMap<>();
+		symTable = new InternTable(0, TABLE_LIMIT);
+		stringLits = new InternTable(1, TABLE_LIMIT);
 		stringLiterals = new FunctionalMap<>();
 
-		/* Initialize operator expander. */
-		opExpander = new ConfigurableTokenSplitter(true);
-		/* Add grouping operators */
-		opExpander.addMultiDelimiters("(", ")");
-		opExpander.addMultiDelimiters("[", "]");
-		opExpander.addMultiDelimiters("{", "}");
-
-		/* Add simple operators */
-		opExpander.addSimpleDelimiters(":=");
-		opExpander.addSimpleDelimiters("=>");
-		opExpander.addSimpleDelimiters("//");
-		opExpander.addSimpleDelimiters(".+.");
-		opExpander.addSimpleDelimiters(".*.");
-		opExpander.addSimpleDelimiters("+");
-		opExpander.addSimpleDelimiters("-");
-		opExpander.addSimpleDelimiters("*");
-		opExpander.addSimpleDelimiters("/");
-
-		opExpander.compile();
-
-		/* Initialize literal IDs */
-		nextLiteral = 1;
+		/* Initialize cache and metrics. */
+		exprCache = new ExpressionCache<>(DEFAULT_CACHE_SIZE);
+		metrics = met;
+
+		lastErrors = Collections.emptyList();
+		batchWorkers = new ArrayList<>();
+		cachedRecurLimit = Define.MAX_RECURS;
 
 		/* Initial mode settings. */
-		debugMode   = true;
+		debugMode   = false;
+		tracer      = Tracer.NONE;
 		postfixMode = false;
 		prefixMode  = false;
 		stepEval    = false;
+		compiledEval = false;
+		optimizeMode = true;
+
+		maxStringLength = DEFAULT_MAX_STRING_LENGTH;
 
 		/* Create components. */
-		shunt = new Shunter();
 		parsr = new Parser();
 
 		streamEng = new StreamEngine();
 		tokenzer  = new Tokenizer(this);
 		eval      = new Evaluator(this);
+		optim     = new Optimizer(this);
+	}
+
+	/**
+	 * Get the definition this engine uses.
+	 *
+	 * The definition can be passed to other engines to share it.
+	 *
+	 * @return The definition this engine uses.
+	 */
+	public LanguageDefinition getDefinition() {
+		return langDef;
 	}
 
-	/** Sort defns by priority. */
-	public void sortDefns() {
-		lineDefns.sort(null);
-		tokenDefns.sort(null);
+	/**
+	 * Change the definition this engine uses.
+	 *
+	 * @param def
+	 *            The new definition.
+	 */
+	public void setDefinition(final LanguageDefinition def) {
+		langDef = def;
 
-		defnsSorted = true;
+		exprCache.invalidate();
 	}
 
 	/**
 	 * Add a defn that's applied to lines.
 	 *
+	 * This only affects this engine, not others sharing its definition.
+	 *
 	 * @param dfn
 	 *            The defn to add.
 	 */
 	public void addLineDefine(final Define dfn) {
-		lineDefns.add(dfn);
-
-		defnsSorted = false;
+		setDefinition(langDef.withLineDefine(dfn));
 	}
 
 	/**
 	 * Add a defn that's applied to tokens.
 	 *
+	 * This only affects this engine, not others sharing its definition.
+	 *
 	 * @param dfn
 	 *            The defn to add.
 	 */
 	public void addTokenDefine(final Define dfn) {
-		tokenDefns.add(dfn);
-
-		defnsSorted = false;
+		setDefinition(langDef.withTokenDefine(dfn));
 	}
 
 	/**
 	 * Toggle debug mode.
 	 *
+	 * Turning debug mode on prints every stage of running commands, using a
+	 * {@link PrintingTracer}. Turning it off removes the tracer.
+	 *
 	 * @return The current state of debug mode.
 	 */
 	public boolean toggleDebug() {
 		debugMode = !debugMode;
 
+		tracer = debugMode ? new PrintingTracer() : Tracer.NONE;
+
 		return debugMode;
 	}
 
+	/**
+	 * Get the tracer that receives diagnostics.
+	 *
+	 * @return The current tracer.
+	 */
+	public Tracer getTracer() {
+		return tracer;
+	}
+
+	/**
+	 * Set the tracer that receives diagnostics.
+	 *
+	 * This doesn't change debug mode, which only decides whether to
+	 * evaluate step by step.
+	 *
+	 * @param trc
+	 *            The new tracer, or null to ignore diagnostics.
+	 */
+	public void setTracer(final Tracer trc) {
+		tracer = trc == null ? Tracer.NONE : trc;
+	}
+
 	/**
 	 * Toggle postfix mode.
 	 *
@@ -190,6 +274,8 @@ public class DiceLangEngine {
 	public boolean togglePostfix() {
 		postfixMode = !postfixMode;
 
+		exprCache.invalidate();
+
 		return postfixMode;
 	}
 
@@ -201,6 +287,8 @@ public class DiceLangEngine {
 	public boolean togglePrefix() {
 		prefixMode = !prefixMode;
 
+		exprCache.invalidate();
+
 		return prefixMode;
 	}
 
@@ -215,12 +303,105 @@ public class DiceLangEngine {
 		return stepEval;
 	}
 
+	/**
+	 * Toggle compiled-eval mode.
+	 *
+	 * In compiled-eval mode, commands are compiled and then evaluated with
+	 * {@link CompiledExpression}, instead of by transforming their trees.
+	 * Step-eval mode takes precedence over this.
+	 *
+	 * @return The current state of compiled-eval mode.
+	 */
+	public boolean toggleCompiledEval() {
+		compiledEval = !compiledEval;
+
+		return compiledEval;
+	}
+
+	/**
+	 * Toggle optimize mode.
+	 *
+	 * In optimize mode, the constant parts of commands are folded when they
+	 * are parsed, so they don't have to be evaluated each time.
+	 *
+	 * @return The current state of optimize mode.
+	 */
+	public boolean toggleOptimize() {
+		optimizeMode = !optimizeMode;
+
+		exprCache.invalidate();
+
+		return optimizeMode;
+	}
+
+	/**
+	 * Get the maximum length of strings built by string operators.
+	 *
+	 * @return The maximum string length.
+	 */
+	public int getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	/**
+	 * Set the maximum length of strings built by string operators.
+	 *
+	 * String operators that would build a longer string fail instead.
+	 *
+	 * @param maxLength
+	 *            The maximum string length.
+	 */
+	public void setMaxStringLength(final int maxLength) {
+		if (maxLength < 0) {
+			throw new IllegalArgumentException("Maximum string length must be non-negative, not " + maxLength);
+		}
+
+		maxStringLength = maxLength;
+
+		/* Folded strings depend on the limit. */
+		exprCache.invalidate();
+	}
+
+	/**
+	 * Get the cache of parsed commands.
+	 *
+	 * This can be used to check the cache statistics, or to resize it.
+	 *
+	 * @return The cache of parsed commands.
+	 */
+	public ExpressionCache<?> getExpressionCache() {
+		return exprCache;
+	}
+
+	/**
+	 * Get the errors from the last command that was run or compiled.
+	 *
+	 * Errors from running commands aren't printed. They are collected here
+	 * instead, and only formatted if a caller asks for their messages.
+	 *
+	 * @return The errors from the last command, in the order they were
+	 *         reported.
+	 */
+	public List<DiceError> getLastErrors() {
+		return lastErrors;
+	}
+
+	/**
+	 * Get the timings and failure counts for each stage of running
+	 * commands.
+	 *
+	 * @return The metrics for this engine.
+	 */
+	public PipelineMetrics getMetrics() {
+		return metrics;
+	}
+
 	/*
 	 * Matches double-angle bracketed strings.
 	 *
 	 * These are used for tokens that aren't expanded.
 	 */
-	private final Pattern nonExpandPattern = Pattern.compile("<<([^\\>]*(?:\\>(?:[^\\>])*)*)>>");
+	private static final Pattern nonExpandPattern = Pattern.compile("<<([^\\>]*(?:\\>(?:[^\\>])*)*)>>");
 
 	/**
 	 * Run a command to completion.
@@ -231,6 +412,196 @@ public class DiceLangEngine {
 	 * @return Whether or not the command ran successfully
 	 */
 	public boolean runCommand(final String command) {
+		metrics.recordCommand();
+
+		final List<DiceError> errors = new ArrayList<>();
+
+		final PipelineMetrics oldMetrics = Errors.countErrorsIn(metrics);
+		final List<DiceError> oldErrors = Errors.collectErrorsIn(errors);
+
+		try {
+			return doRunCommand(command, null);
+		} finally {
+			Errors.countErrorsIn(oldMetrics);
+			Errors.collectErrorsIn(oldErrors);
+
+			lastErrors = Collections.unmodifiableList(errors);
+		}
+	}
+
+	/**
+	 * Run a batch of commands, and collect their results.
+	 *
+	 * This is the same as running each command with
+	 * {@link #runCommand(String)}, but the results and errors of each command
+	 * are returned, and error handling is only set up once for the batch.
+	 * A command that fails with an exception doesn't stop the batch; it is
+	 * reported as a failed command instead.
+	 *
+	 * @param commands
+	 *            The commands to run.
+	 *
+	 * @return The outcome of each command, in order.
+	 */
+	public List<CommandResult> runBatch(final List<String> commands) {
+		final List<CommandResult> outcomes = new ArrayList<>(commands.size());
+
+		final PipelineMetrics oldMetrics = Errors.countErrorsIn(metrics);
+		final List<DiceError> oldErrors = Errors.collectErrorsIn(null);
+
+		try {
+			for (final String command : commands) {
+				outcomes.add(runCollected(command));
+			}
+		} finally {
+			Errors.countErrorsIn(oldMetrics);
+			Errors.collectErrorsIn(oldErrors);
+		}
+
+		if (!outcomes.isEmpty()) {
+			lastErrors = outcomes.get(outcomes.size() - 1).getErrors();
+		}
+
+		return outcomes;
+	}
+
+	/**
+	 * Run a batch of independent commands on a pool of threads, and collect
+	 * their results.
+	 *
+	 * The batch is split into one chunk per worker, and each chunk is run in
+	 * order by its own engine. The workers share this engine's definition,
+	 * modes, tracer and metrics, but not its tables or caches, so commands
+	 * can't depend on each other. The tracer has to be safe to call from
+	 * multiple threads.
+	 *
+	 * Worker engines are kept between batches, so commands that were parsed
+	 * for an earlier batch don't need to be parsed again. Only one batch can
+	 * be run on an engine at a time.
+	 *
+	 * Afterwards, the last errors of this engine are those of the last
+	 * command, the same as after {@link #runBatch(List)}.
+	 *
+	 * @param commands
+	 *            The commands to run.
+	 *
+	 * @param pool
+	 *            The pool to run the commands on.
+	 *
+	 * @param workers
+	 *            The max. number of chunks to split the batch into.
+	 *
+	 * @return The outcome of each command, in order.
+	 */
+	public List<CommandResult> runBatch(final List<String> commands, final ExecutorService pool, final int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Number of workers must be positive, not " + workers);
+		}
+
+		final int chunks = Math.min(workers, commands.size());
+
+		if (chunks <= 1) return runBatch(commands);
+
+		final List<Future<List<CommandResult>>> futures = new ArrayList<>(chunks);
+
+		for (int i = 0; i < chunks; i++) {
+			/* Spread the remainder over the first chunks. */
+			final int from = (int) ((long) commands.size() * i / chunks);
+			final int to = (int) ((long) commands.size() * (i + 1) / chunks);
+
+			final DiceLangEngine worker = batchWorker(i);
+			final List<String> chunk = commands.subList(from, to);
+
+			futures.add(pool.submit(() -> worker.runBatch(chunk)));
+		}
+
+		final List<CommandResult> outcomes = new ArrayList<>(commands.size());
+
+		try {
+			for (final Future<List<CommandResult>> future : futures) {
+				outcomes.addAll(future.get());
+			}
+		} catch (final InterruptedException iex) {
+			Thread.currentThread().interrupt();
+
+			throw new IllegalStateException("Interrupted while running batch", iex);
+		} catch (final ExecutionException eex) {
+			throw new IllegalStateException("Batch worker failed", eex.getCause());
+		} finally {
+			for (final Future<List<CommandResult>> future : futures) {
+				future.cancel(true);
+			}
+		}
+
+		/* The same as running the batch on this engine would leave them. */
+		lastErrors = outcomes.get(outcomes.size() - 1).getErrors();
+
+		return outcomes;
+	}
+
+	/* Get the engine for running part of a batch, with our current settings. */
+	private DiceLangEngine batchWorker(final int idx) {
+		while (batchWorkers.size() <= idx) {
+			batchWorkers.add(new DiceLangEngine(langDef, metrics));
+		}
+
+		final DiceLangEngine worker = batchWorkers.get(idx);
+
+		/* Commands parsed with different settings might parse differently. */
+		if (worker.langDef != langDef || worker.postfixMode != postfixMode || worker.prefixMode != prefixMode
+				|| worker.optimizeMode != optimizeMode || worker.maxStringLength != maxStringLength) {
+			worker.exprCache.invalidate();
+		}
+
+		worker.langDef = langDef;
+		worker.debugMode = debugMode;
+		worker.tracer = tracer;
+		worker.postfixMode = postfixMode;
+		worker.prefixMode = prefixMode;
+		worker.stepEval = stepEval;
+		worker.compiledEval = compiledEval;
+		worker.optimizeMode = optimizeMode;
+		worker.maxStringLength = maxStringLength;
+
+		return worker;
+	}
+
+	/* Run one command of a batch, collecting its errors and results. */
+	private CommandResult runCollected(final String command) {
+		metrics.recordCommand();
+
+		final List<DiceError> errors = new ArrayList<>();
+		final List<EvaluatorResult> results = new ArrayList<>();
+
+		Errors.collectErrorsIn(errors);
+
+		boolean succ = false;
+
+		try {
+			succ = doRunCommand(command, results);
+
+			/* A tree that failed to evaluate fails the whole command. */
+			for (final EvaluatorResult res : results) {
+				if (res != null && res.type == EvaluatorResult.Type.FAILURE) succ = false;
+			}
+		} catch (final RuntimeException rex) {
+			/* Don't let one bad command stop the rest of the batch. */
+			Errors.inst.printError(EK_ENG_EXCEPTION, rex.toString());
+
+			succ = false;
+		} finally {
+			Errors.collectErrorsIn(null);
+		}
+
+		return new CommandResult(command, succ, Collections.unmodifiableList(results),
+				Collections.unmodifiableList(errors));
+	}
+
+	/*
+	 * Run a command, with errors being counted, adding the result of each
+	 * tree to a list if there is one.
+	 */
+	private boolean doRunCommand(final String command, final List<EvaluatorResult> results) {
 		/* Preprocess the command into tokens */
 		/*
 		 * @NOTE
@@ -243,35 +614,173 @@ public class DiceLangEngine {
 			return false;
 		}
 
+		/* Lex and parse the tokens into an AST forest */
+		final ParsedCommand parsed = parseTokens(preprocessedTokens);
+
+		if (parsed == null) {
+			return false;
+		}
+
+		/* Evaluate the AST forest */
+		return evaluateForest(command, parsed, results);
+	}
+
+	/**
+	 * Compile a command, so that it can be evaluated repeatedly.
+	 *
+	 * This runs every stage of {@link #runCommand(String)} except for
+	 * evaluation, and type-checks the result.
+	 *
+	 * @param command
+	 *            The command to compile.
+	 *
+	 * @return The compiled command, or null if it didn't compile.
+	 */
+	public CompiledExpression compile(final String command) {
+		final List<DiceError> errors = new ArrayList<>();
+
+		final PipelineMetrics oldMetrics = Errors.countErrorsIn(metrics);
+		final List<DiceError> oldErrors = Errors.collectErrorsIn(errors);
+
+		try {
+			return doCompile(command);
+		} finally {
+			Errors.countErrorsIn(oldMetrics);
+			Errors.collectErrorsIn(oldErrors);
+
+			lastErrors = Collections.unmodifiableList(errors);
+		}
+	}
+
+	/* Compile a command, with errors being counted. */
+	private CompiledExpression doCompile(final String command) {
+		final ListEx<String> preprocessedTokens = preprocessCommand(command);
+
+		if (preprocessedTokens == null) {
+			return null;
+		}
+
+		final ParsedCommand parsed = parseTokens(preprocessedTokens);
+
+		if (parsed == null) {
+			return null;
+		}
+
+		return compileParsed(command, parsed);
+	}
+
+	/*
+	 * Compile a parsed command, reusing its compiled form if it was already
+	 * compiled from the same text.
+	 *
+	 * Commands that fail to compile aren't kept, so their errors are
+	 * reported each time.
+	 */
+	private CompiledExpression compileParsed(final String command, final ParsedCommand parsed) {
+		final CompiledExpression cached = parsed.compiled;
+
+		if (cached != null && cached.getSource().equals(command)) return cached;
+
+		final CompiledExpression compiled = CompiledExpression.compile(command, parsed.forest, this);
+
+		if (compiled != null) parsed.compiled = compiled;
+
+		return compiled;
+	}
+
+	/*
+	 * Lex and parse preprocessed tokens into an AST forest, reusing the
+	 * forest from an earlier identical command if we have it.
+	 *
+	 * Token defns that cycle through replacers have to be applied each
+	 * time, so commands aren't cached while there are any.
+	 */
+	private ParsedCommand parseTokens(final ListEx<String> preprocessedTokens) {
+		/* The recursion limit is static, so check if it changed. */
+		if (cachedRecurLimit != Define.MAX_RECURS) {
+			exprCache.invalidate();
+
+			cachedRecurLimit = Define.MAX_RECURS;
+		}
+
+		final boolean useCache = !langDef.hasVaryingTokenDefines();
+
+		final String cacheKey = useCache ? ListUtils.collapseTokens(preprocessedTokens, " ") : null;
+
+		if (useCache) {
+			final ParsedCommand cachedParse = exprCache.get(cacheKey);
+
+			if (cachedParse != null) {
+				tracer.cachedParse(cacheKey);
+
+				return cachedParse;
+			}
+		}
+
 		/* Lex the string tokens into token-tokens */
+		long start = System.nanoTime();
 		final ListEx<Token> lexedTokens = lexTokens(preprocessedTokens);
+		metrics.record(PipelineMetrics.Stage.LEXING, start, lexedTokens != null);
 
 		if (lexedTokens == null) {
-			return false;
+			return null;
+		}
+
+		/* Shunt the tokens into postfix order */
+		start = System.nanoTime();
+		final ListEx<Token> readyTokens = shuntTokens(lexedTokens);
+		metrics.record(PipelineMetrics.Stage.SHUNTING, start, readyTokens != null);
+
+		if (readyTokens == null) {
+			return null;
 		}
 
 		/* Parse the tokens into an AST forest */
-		final ListEx<Tree<Node>> astForest = new FunctionalList<>();
-		final boolean succ = Parser.parseTokens(lexedTokens, astForest);
+		start = System.nanoTime();
+		final ListEx<Tree<Node>> parsedForest = new FunctionalList<>();
+		final boolean succ = Parser.parseTokens(readyTokens, parsedForest);
+		metrics.record(PipelineMetrics.Stage.PARSING, start, succ);
 
 		if (!succ) {
-			return false;
+			return null;
 		}
 
-		/* Evaluate the AST forest */
-		evaluateForest(astForest);
-		return true;
+		/* Fold constants, so cached commands don't redo them. */
+		final ListEx<Tree<Node>> astForest;
+
+		if (optimizeMode) {
+			start = System.nanoTime();
+			astForest = optim.optimize(parsedForest);
+			metrics.record(PipelineMetrics.Stage.OPTIMIZING, start, true);
+		} else {
+			astForest = parsedForest;
+		}
+
+		final ParsedCommand parsed = new ParsedCommand(astForest);
+
+		if (useCache) exprCache.put(cacheKey, parsed);
+
+		return parsed;
 	}
 
-	/* Lex string tokens into token-tokens */
-	private ListEx<Token> lexTokens(final ListEx<String> preprocessedTokens) {
+	/**
+	 * Lex preprocessed string tokens into token-tokens.
+	 *
+	 * This is the second stage of running a command.
+	 *
+	 * @param preprocessedTokens
+	 *            The tokens from {@link #preprocessCommand(String)}.
+	 *
+	 * @return The lexed tokens, or null if a token couldn't be lexed.
+	 */
+	public ListEx<Token> lexTokens(final ListEx<String> preprocessedTokens) {
 		final ListEx<Token> lexedTokens = new FunctionalList<>();
 
 		for (final String token : preprocessedTokens) {
 			String newTok = token;
 
 			/* Apply token defns */
-			for (final Define dfn : tokenDefns.toIterable()) {
+			for (final Define dfn : langDef.getTokenDefines()) {
 				/*
 				 * @NOTE 
 				 *
@@ -286,9 +795,7 @@ public class DiceLangEngine {
 			/* Lex the token */
 			final Token tk = tokenzer.lexToken(token, stringLiterals);
 
-			if (debugMode) {
-				LOG.finer(String.format("lexed token: %s\n", tk));
-			}
+			tracer.lexedToken(tk);
 
 			if (tk == null) {
 				/* Ignore blank tokens */
@@ -301,12 +808,24 @@ public class DiceLangEngine {
 			}
 		}
 
-		if (debugMode) {
-			String msg = String.format("\tCommand after tokenization: %s\n", lexedTokens.toString());
-			LOG.fine(msg);
-			System.out.print(msg);
-		}
+		tracer.stageTokens(Tracer.Stage.TOKENIZATION, lexedTokens);
+
+		return lexedTokens;
+	}
 
+	/**
+	 * Shunt lexed tokens into the order the parser expects.
+	 *
+	 * This is the third stage of running a command. Pre-shunt groups are
+	 * shunted first, then the whole command is, unless the engine is in
+	 * postfix or prefix mode.
+	 *
+	 * @param lexedTokens
+	 *            The tokens from {@link #lexTokens(ListEx)}.
+	 *
+	 * @return The shunted tokens, or null if they couldn't be shunted.
+	 */
+	public ListEx<Token> shuntTokens(final ListEx<Token> lexedTokens) {
 		/* Preshunt preshunt-marked groups of tokens */
 		ListEx<Token> shuntedTokens = lexedTokens;
 		final ListEx<Token> preparedTokens = new FunctionalList<>();
@@ -317,17 +836,15 @@ public class DiceLangEngine {
 			return null;
 		}
 
-		if (debugMode && !postfixMode) {
-			String msg = String.format("\tCommand after pre-shunter removal: %s\n", preparedTokens.toString());
-			LOG.fine(msg);
-			System.out.print(msg);
+		if (!postfixMode) {
+			tracer.stageTokens(Tracer.Stage.PRESHUNT_REMOVAL, preparedTokens);
 		}
 
 		/* Only shunt if we're not in a special mode. */
 		if (!postfixMode && !prefixMode) {
 			/* Shunt the tokens */
 			shuntedTokens = new FunctionalList<>();
-			succ = shunt.shuntTokens(preparedTokens, shuntedTokens);
+			succ = langDef.shunt.shuntTokens(preparedTokens, shuntedTokens);
 
 			if (!succ) {
 				return null;
@@ -341,20 +858,14 @@ public class DiceLangEngine {
 			shuntedTokens = preparedTokens.map(this::reverseToken);
 		}
 
-		if (debugMode && !postfixMode) {
-			String msg = String.format("\tCommand after shunting: %s\n", shuntedTokens.toString());
-			LOG.fine(msg);
-			System.out.print(msg);
+		if (!postfixMode) {
+			tracer.stageTokens(Tracer.Stage.SHUNTING, shuntedTokens);
 		}
 
 		/* Expand token groups */
 		final ListEx<Token> readyTokens = shuntedTokens.flatMap(tk -> {
 			if (tk.type == Token.Type.TOKGROUP || tk.type == Token.Type.TAGOP || tk.type == Token.Type.TAGOPR) {
-				String msg = String.format("Expanding token group to: %s\n", tk.tokenValues.toString());
-				LOG.finer(msg);
-
-				if(debugMode)
-					System.out.print(msg);
+				tracer.tokenGroup(tk.tokenValues);
 
 				return tk.tokenValues;
 			} else {
@@ -362,10 +873,8 @@ public class DiceLangEngine {
 			}
 		});
 
-		if (debugMode && !postfixMode) {
-			String msg = String.format("\tCommand after re-preshunting: %s\n", readyTokens.toString());
-			LOG.fine(msg);
-			System.out.print(msg);
+		if (!postfixMode) {
+			tracer.stageTokens(Tracer.Stage.REPRESHUNTING, readyTokens);
 		}
 
 		return readyTokens;
@@ -395,16 +904,35 @@ public class DiceLangEngine {
 		}
 	}
 
-	/* Preprocess a command into a list of string tokens. */
-	private ListEx<String> preprocessCommand(final String command) {
-		/* Sort the defines if they aren't sorted */
-		if (!defnsSorted) {
-			sortDefns();
+	/**
+	 * Preprocess a command into a list of string tokens.
+	 *
+	 * This is the first stage of running a command. It runs stream
+	 * commands and line defns, pulls out string literals, and splits the
+	 * command around operators.
+	 *
+	 * @param command
+	 *            The command to preprocess.
+	 *
+	 * @return The string tokens, or null if the stream commands failed.
+	 */
+	public ListEx<String> preprocessCommand(final String command) {
+		/*
+		 * Drop old literals and symbols if there are too many. Cached parses
+		 * may refer to them, so they have to go as well.
+		 */
+		if (stringLits.reclaim() | symTable.reclaim()) {
+			exprCache.invalidate();
 		}
 
+		/* String literals are only named for the current command. */
+		stringLiterals = new FunctionalMap<>();
+
 		/* Run the tokens through the stream engine */
+		long start = System.nanoTime();
 		final ListEx<String> streamToks = new FunctionalList<>();
 		final boolean succ             = streamEng.doStreams(command.split(" "), streamToks);
+		metrics.record(PipelineMetrics.Stage.STREAMS, start, succ);
 
 		if (!succ) {
 			return null;
@@ -412,28 +940,21 @@ public class DiceLangEngine {
 
 		String newComm = ListUtils.collapseTokens(streamToks, " ");
 
-		if (debugMode) {
-			String msg = String.format("\tCommand after stream commands: %s\n", newComm);
-
-			LOG.fine(msg);
-
-			System.out.print(msg);
-		}
+		tracer.stageText(Tracer.Stage.STREAMS, newComm);
 
 		/* Apply line defns */
-		for (final Define dfn : lineDefns.toIterable()) {
+		start = System.nanoTime();
+
+		for (final Define dfn : langDef.getLineDefines()) {
 			newComm = dfn.apply(newComm);
 		}
 
-		if (debugMode) {
-			String msg = String.format("\tCommand after line defines: %s\n", newComm);
+		metrics.record(PipelineMetrics.Stage.LINE_DEFINES, start, true);
 
-			LOG.fine(msg);
-
-			System.out.print(msg);
-		}
+		tracer.stageText(Tracer.Stage.LINE_DEFINES, newComm);
 
 		/* Remove string literals. */
+		start = System.nanoTime();
 		final List<String> destringedParts = TokenUtils.removeDQuotedStrings(newComm);
 		final StringBuffer destringedCommand = new StringBuffer();
 
@@ -441,24 +962,20 @@ public class DiceLangEngine {
 			/* Handle string literals */
 			if (part.startsWith("\"") && part.endsWith("\"")) {
 				/* Get the actual string. */
-				final String litName = "stringLiteral" + nextLiteral;
 				final String litVal = part.substring(1, part.length() - 1);
 
 				/*
 				 * Insert the string with its escape sequences interpreted.
+				 *
+				 * Identical strings share a literal number.
 				 */
 				final String descVal = TokenUtils.descapeString(litVal);
-				stringLiterals.put(litName, descVal);
-
-				if (debugMode) {
-					String msg = String.format("Replaced string literal '%s' with literal no. %d", descVal, nextLiteral);
+				final int litNum = stringLits.intern(descVal);
+				final String litName = "stringLiteral" + litNum;
 
-					System.out.printf("\t\tDEBUG(1): %s\n", msg);
-
-					LOG.finer(msg);
-				}
+				stringLiterals.put(litName, descVal);
 
-				nextLiteral += 1;
+				tracer.stringLiteral(descVal, litNum);
 
 				/* Place a ref. to the string in the command */
 				destringedCommand.append(" " + litName + " ");
@@ -467,22 +984,8 @@ public class DiceLangEngine {
 			}
 		}
 
-		if (debugMode) {
-			String msg = String.format("\tCommand after destringing: %s\n", destringedCommand);
-
-			LOG.fine(msg);
-
-			System.out.print(msg);
-
-			/* Print the string table if it exists. */
-			if (stringLiterals.size() > 0) {
-				System.out.println("\tString literals in table");
-
-				stringLiterals.forEach((key, val) -> {
-					System.out.printf("\t\tName: (%s)\tValue: (%s)\n", key, val);
-				});
-			}
-		}
+		tracer.stageText(Tracer.Stage.DESTRING, destringedCommand);
+		tracer.stringLiterals(stringLiterals);
 
 		/* Split the command into tokens */
 		final String strang  = destringedCommand.toString();
@@ -494,14 +997,9 @@ public class DiceLangEngine {
 			final Matcher nonExpandMatcher = nonExpandPattern.matcher(tk);
 
 			if (nonExpandMatcher.matches()) {
-				final String tkName = "nonExpandToken" + nextLiteral++;
+				final String tkName = "nonExpandToken" + (nonExpandedTokens.size() + 1);
 				nonExpandedTokens.put(tkName, nonExpandMatcher.group(1));
-				String msg = String.format("Pulled non-expander '%s' to '%s'", nonExpandMatcher.group(1), tkName);
-
-				if(debugMode)
-					System.out.printf("\t\tDEBUG(1): %s\n", msg);
-
-				LOG.finer(msg);
+				tracer.nonExpander(nonExpandMatcher.group(1), tkName);
 
 				return tkName;
 			}
@@ -509,24 +1007,12 @@ public class DiceLangEngine {
 			return tk;
 		});
 
-		if (debugMode) {
-			String msg = String.format("\tCommand after removal of non-expanders: %s\n", tokens.toString());
-
-			LOG.fine(msg);
-
-			System.out.print(msg);
-		}
+		tracer.stageTokens(Tracer.Stage.NONEXPAND_REMOVAL, tokens);
 
 		/* Expand tokens */
-		ListEx<String> fullyExpandedTokens = tokens.flatMap(opExpander::split);
-
-		if (debugMode) {
-			String msg = String.format("\tCommand after token expansion: %s\n", fullyExpandedTokens.toString());
+		ListEx<String> fullyExpandedTokens = tokens.flatMap(langDef.opExpander::split);
 
-			LOG.fine(msg);
-
-			System.out.print(msg);
-		}
+		tracer.stageTokens(Tracer.Stage.EXPANSION, fullyExpandedTokens);
 
 		/* Reinsert non-expanded tokens */
 		fullyExpandedTokens = fullyExpandedTokens.map(tk -> {
@@ -536,26 +1022,39 @@ public class DiceLangEngine {
 			return tk;
 		});
 
-		if (debugMode) {
-			String msg = String.format("\tCommand after non-expander reinsertion: %s\n",
-					fullyExpandedTokens.toString());
+		metrics.record(PipelineMetrics.Stage.EXPANSION, start, true);
 
-			LOG.fine(msg);
-
-			System.out.print(msg);
-		}
+		tracer.stageTokens(Tracer.Stage.NONEXPAND_REINSERTION, fullyExpandedTokens);
 
 		return fullyExpandedTokens;
 	}
 
-	/* Evaluate a forest of AST nodes. */
-	private void evaluateForest(final ListEx<Tree<Node>> astForest) {
+	/*
+	 * Evaluate a forest of AST nodes, adding the result of each tree to a
+	 * list if there is one.
+	 */
+	private boolean evaluateForest(final String command, final ParsedCommand parsed,
+			final List<EvaluatorResult> results) {
+		final ListEx<Tree<Node>> astForest = parsed.forest;
+
+		CompiledExpression compiled = null;
+
+		if (compiledEval && !(debugMode && stepEval)) {
+			final long start = System.nanoTime();
+			compiled = compileParsed(command, parsed);
+
+			/* Type errors have already been reported. */
+			if (compiled == null) {
+				metrics.record(PipelineMetrics.Stage.EVALUATION, start, false);
+
+				return false;
+			}
+		}
+
 		int treeNo = 1;
 
 		for (final Tree<Node> ast : astForest) {
-			if (debugMode) {
-				System.out.printf("\t\tTree %d in forest:\n%s\n", treeNo, ast.toString());
-			}
+			tracer.tree(treeNo, ast);
 
 			if (debugMode && stepEval) {
 				/*
@@ -565,64 +1064,26 @@ public class DiceLangEngine {
 
 				/* Evaluate it step by step */
 				for (final Iterator<Tree<Node>> itr = eval.stepDebug(ast); itr.hasNext();) {
-					final Tree<Node> nodeStep = itr.next();
-
-					System.out.printf("\t\tStep %d: Node is %s", step, nodeStep);
-
-					/* Don't evaluate null steps */
-					if (nodeStep == null) {
-						System.out.println();
-
-						step += 1;
-						continue;
-					}
-
-					/* Print out details for results */
-					if (nodeStep.getHead().type == Node.Type.RESULT) {
-						final EvaluatorResult res = nodeStep.getHead().resultVal;
-
-						System.out.printf(" (result is %s", res);
-
-						if (res.type == EvaluatorResult.Type.DICE) {
-							String value = ((DiceEvaluatorResult) res).diceVal.value();
-
-							System.out.printf(" (sample roll %s)", value);
-						}
-
-						if (res.type == EvaluatorResult.Type.FAILURE) {
-							Tree<Node> otree = ((FailureEvaluatorResult) res).origVal;
+					tracer.step(step, itr.next());
 
-							System.out.printf(" (original tree is %s)", otree);
-						}
-
-						System.out.printf(")");
-					}
-
-					/* Advance a step */
-					System.out.println();
 					step += 1;
 				}
 			} else {
 				/* Evaluate it normally */
-				final EvaluatorResult res = eval.evaluate(ast);
-
-				if (debugMode) {
-					System.out.printf("\t\tEvaluates to %s", res);
+				final long start = System.nanoTime();
+				final EvaluatorResult res = compiled == null ? eval.evaluate(ast) : compiled.evaluate(treeNo - 1);
+				final boolean succ = res == null || res.type != EvaluatorResult.Type.FAILURE;
+				metrics.record(PipelineMetrics.Stage.EVALUATION, start, succ);
 
-					if(res == null) {
-						// Don't need to do anything in this case
-					} else if (res.type == EvaluatorResult.Type.DICE) {
-						String value = ((DiceEvaluatorResult) res).diceVal.value();
+				tracer.result(treeNo, res);
 
-						System.out.println("\t\t (sample roll " + value + ")");
-					}
-				}
+				if (results != null) results.add(res);
 			}
 
-			System.out.println();
-
 			treeNo += 1;
 		}
+
+		return true;
 	}
 
 	/* Preshunt preshunt-marked groups of tokens. */
@@ -662,11 +1123,9 @@ public class DiceLangEngine {
 				final ListEx<Token> preshuntTokens = new FunctionalList<>();
 
 				/* Shunt preshunt group. */
-				final boolean success = shunt.shuntTokens(curBracedTokens, preshuntTokens);
+				final boolean success = langDef.shunt.shuntTokens(curBracedTokens, preshuntTokens);
 
-				if (debugMode) {
-					System.out.println("\t\tPreshunted " + curBracedTokens + " into " + preshuntTokens);
-				}
+				tracer.preshunted(curBracedTokens, preshuntTokens);
 
 				if (!success) {
 					return false;
@@ -715,17 +1174,14 @@ public class DiceLangEngine {
 	 * 
 	 */
 	public String getStringLiteral(final int key) {
-		return stringLits.get(key).get();
+		return stringLits.get(key);
 	}
 
-	/* Add a string literal to the string literal table. */
 	/*
-	 * @NOTE
-	 * 
-	 * The string literal table should be abstracted into some kind of auto-numbered
-	 * map thing.
+	 * Add a string literal to the string literal table that is never
+	 * reclaimed.
 	 */
-	void addStringLiteral(final int key, final String val) {
-		stringLits.put(key, val);
+	int pinStringLiteral(final String val) {
+		return stringLits.pin(val);
 	}
 }
@@ -1,5 +1,7 @@
 package bjc.dicelang;
 
+import java.util.List;
+
 /*
  * @TODO 10/08/17 Ben Culkin :ErrorRefactor
  * 
@@ -255,6 +257,19 @@ public class Errors {
 		 *  Recieved the wrong sort of expression to a die.
 		 */
 		EK_DICE_INVTYPE,
+
+		/*
+		 * Keys added later go here, so that the codes of the keys above
+		 * don't change.
+		 */
+		/**
+		 * String operator result is too long
+		 */
+		EK_EVAL_STRLEN,
+		/**
+		 * Command failed with an unexpected exception
+		 */
+		EK_ENG_EXCEPTION,
 	}
 
 	/**
@@ -276,9 +291,50 @@ public class Errors {
 
 	private ErrorMode mode;
 
+	/* Where errors reported on each thread are counted, if anywhere. */
+	private static final ThreadLocal<PipelineMetrics> counters = new ThreadLocal<>();
+	/* Where errors reported on each thread are collected, if anywhere. */
+	private static final ThreadLocal<List<DiceError>> collectors = new ThreadLocal<>();
+
+	/*
+	 * Count errors reported on this thread in a set of metrics, returning
+	 * the metrics they were counted in before.
+	 */
+	static PipelineMetrics countErrorsIn(final PipelineMetrics metrics) {
+		final PipelineMetrics old = counters.get();
+
+		if(metrics == null) {
+			counters.remove();
+		} else {
+			counters.set(metrics);
+		}
+
+		return old;
+	}
+
+	/*
+	 * Collect errors reported on this thread into a list instead of printing
+	 * them, returning the list they were collected into before.
+	 */
+	static List<DiceError> collectErrorsIn(final List<DiceError> errors) {
+		final List<DiceError> old = collectors.get();
+
+		if(errors == null) {
+			collectors.remove();
+		} else {
+			collectors.set(errors);
+		}
+
+		return old;
+	}
+
 	/**
 	 * Print an error.
 	 *
+	 * If an engine is running a command on this thread, the error is
+	 * collected for the command instead, and is only formatted if someone
+	 * asks for it.
+	 *
 	 * @param key
 	 *        The key of the error.
 	 *
@@ -286,232 +342,216 @@ public class Errors {
 	 *        The arguments for the error.
 	 */
 	public void printError(final ErrorKey key, final String... args) {
+		final PipelineMetrics metrics = counters.get();
+
+		if(metrics != null) {
+			metrics.recordError(key);
+		}
+
+		final List<DiceError> errors = collectors.get();
+
+		if(errors != null) {
+			errors.add(DiceError.of(key, args));
+		} else {
+			System.out.print(format(key, args));
+		}
+	}
+
+	/**
+	 * Format an error as it would be printed.
+	 *
+	 * @param key
+	 *        The key of the error.
+	 *
+	 * @param args
+	 *        The arguments for the error.
+	 *
+	 * @return The formatted error, ending with a newline.
+	 */
+	public String format(final ErrorKey key, final String... args) {
 		switch(mode) {
 		case WIZARD:
 			if(key == ErrorKey.EK_MISC_NOFILE) {
-				System.out.println("\t? 404");
-			} else {
-				System.out.println("\t? " + key.ordinal());
+				return "\t? 404\n";
 			}
 
-			break;
+			return "\t? " + key.ordinal() + "\n";
 
 		case DEV:
-			devError(key, args);
-			break;
+			return devError(key, args);
 
 		default:
-			System.out.println("\tERROR ERROR: Unknown error mode " + mode);
+			return "\tERROR ERROR: Unknown error mode " + mode + "\n";
 		}
 	}
 
-	private static void devError(final ErrorKey key, final String[] args) {
+	/* Format an error for developers. */
+	private static String devError(final ErrorKey key, final String[] args) {
 		switch(key) {
 		case EK_DFN_PREDSYN:
-			System.out.printf("\tERROR: Incorrect define guard syntax %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Incorrect define guard syntax %s\n", args[0]);
 
 		case EK_DFN_SRCSYN:
-			System.out.printf("\tERROR: Incorrect define match syntax %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Incorrect define match syntax %s\n", args[0]);
 
 		case EK_DFN_RECUR:
-			System.out.printf(
+			return String.format(
 					"\tERROR: Recursive define didn't converge after %s iterations."
 							+ " Original string was %s, last iteration was %s\n",
 					args[0], args[1], args[2]);
-			break;
 
 		case EK_CONS_INVPRAG:
-			System.out.printf("\tERROR: Unknown pragma %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown pragma %s\n", args[0]);
 
 		case EK_CONS_INVDEFINE:
-			System.out.printf("\tERROR: Improperly formatted define %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Improperly formatted define %s\n", args[0]);
 
 		case EK_ENG_NOOPENING:
-			System.out.printf("\tERROR: Encountered closing doublebrace without"
+			return String.format("\tERROR: Encountered closing doublebrace without"
 					+ " matching opening doublebrace\n");
-			break;
 
 		case EK_ENG_NOCLOSING:
-			System.out.printf("\tERROR: Reached end of string before closing doublebrace was found\n");
-			break;
+			return String.format("\tERROR: Reached end of string before closing doublebrace was found\n");
 
 		case EK_TOK_UNGROUP:
-			System.out.printf("\tERROR: Unrecognized grouping token %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unrecognized grouping token %s\n", args[0]);
 
 		case EK_TOK_INVBASE:
-			System.out.printf("\tERROR: Invalid flexadecimal base %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Invalid flexadecimal base %s\n", args[0]);
 
 		case EK_TOK_INVFLEX:
-			System.out.printf("\tERROR: Invalid flexadecimal number %s in base %s\n", args[0], args[1]);
-			break;
+			return String.format("\tERROR: Invalid flexadecimal number %s in base %s\n", args[0], args[1]);
 
 		case EK_EVAL_INVNODE:
-			System.out.printf("\tERROR: Unknown node in evaluator: %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown node in evaluator: %s\n", args[0]);
 
 		case EK_EVAL_INVBIN:
-			System.out.printf("\tERROR: Binary operators take 2 operands, not %s\n"
+			return String.format("\tERROR: Binary operators take 2 operands, not %s\n"
 					+ "\tProblem node is %s\n", args[0], args[1]);
-			break;
 
 		case EK_EVAL_UNBIN:
-			System.out.printf("\tERROR: Unknown binary operator %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown binary operator %s\n", args[0]);
 
 		case EK_EVAL_STRINGMATH:
-			System.out.printf("\tERROR: Math operators don't work on strings\n");
-			break;
+			return String.format("\tERROR: Math operators don't work on strings\n");
 
 		case EK_EVAL_DIVZERO:
-			System.out.printf("\tERROR: Attempted divide by zero\n");
-			break;
+			return String.format("\tERROR: Attempted divide by zero\n");
 
 		case EK_EVAL_DIVDICE:
-			System.out.printf("\tERROR: Dice cannot be divided\n");
-			break;
+			return String.format("\tERROR: Dice cannot be divided\n");
 
 		case EK_EVAL_UNMATH:
-			System.out.printf("\tERROR: Unknown math binary operator: %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown math binary operator: %s\n", args[0]);
 
 		case EK_EVAL_UNTOK:
-			System.out.printf("\tERROR: Unknown token ref %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown token ref %s\n", args[0]);
 
 		case EK_EVAL_UNDICE:
-			System.out.printf("\tERROR: Unknown dice operator %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown dice operator %s\n", args[0]);
 
 		case EK_EVAL_INVDCREATE:
-			System.out.printf("\tERROR: Dice creation operator expects integers," + " not %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Dice creation operator expects integers," + " not %s\n", args[0]);
 
 		case EK_EVAL_INVDGROUP:
-			System.out.printf("\tERROR: Dice group operator expects scalar dice or integers," + " not %s\n",
+			return String.format("\tERROR: Dice group operator expects scalar dice or integers," + " not %s\n",
 					args[0]);
-			break;
 
 		case EK_EVAL_INVDICE:
-			System.out.printf("\tERROR: Dice operators expect scalar dice, not %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Dice operators expect scalar dice, not %s\n", args[0]);
 
 		case EK_EVAL_MISMATH:
-			System.out.printf("\tERROR: Math operators expect two operands of the same type\n");
-			break;
+			return String.format("\tERROR: Math operators expect two operands of the same type\n");
 
 		case EK_EVAL_INVSTRING:
-			System.out.printf("\tERROR: Incorrect type %s to string operator\n", args[0]);
-			break;
+			return String.format("\tERROR: Incorrect type %s to string operator\n", args[0]);
 
 		case EK_EVAL_UNSTRING:
-			System.out.printf("\tERROR: Unknown string operator %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown string operator %s\n", args[0]);
+
+		case EK_EVAL_STRLEN:
+			return String.format("\tERROR: String result of %s characters is longer than the limit of %s\n", args[0],
+					args[1]);
+
+		case EK_ENG_EXCEPTION:
+			return String.format("\tERROR: Command failed unexpectedly (%s)\n", args[0]);
 
 		case EK_PARSE_NOCLOSE:
-			System.out.printf("\tERROR: Group closing with no possible group opener\n");
-			break;
+			return String.format("\tERROR: Group closing with no possible group opener\n");
 
 		case EK_PARSE_UNCLOSE:
-			System.out.printf("\tERROR: Found group closer without opener: (closing was %s"
+			return String.format("\tERROR: Found group closer without opener: (closing was %s"
 					+ ", expected %s)\n", args[0], args[1]);
-			break;
 
 		case EK_PARSE_BINARY:
-			System.out.printf("\tERROR: Expected at least two operands\n");
-			break;
+			return String.format("\tERROR: Expected at least two operands\n");
 
 		case EK_PARSE_UNOPERAND:
-			System.out.printf("\tERROR: Operator %s expected more operands than provided\n", args[0]);
-			break;
+			return String.format("\tERROR: Operator %s expected more operands than provided\n", args[0]);
 
 		case EK_PARSE_INVTOKEN:
-			System.out.printf("\tERROR: Unrecognized token type in parsing: %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unrecognized token type in parsing: %s\n", args[0]);
 
 		case EK_SHUNT_NOTADV:
-			System.out.printf("\tERROR: Unary operator %s is an adjective, not an adverb. It can't be"
+			return String.format("\tERROR: Unary operator %s is an adjective, not an adverb. It can't be"
 					+ " applied to the operator %s\n", args[0], args[1]);
-			break;
 
 		case EK_SHUNT_NOTADJ:
-			System.out.printf("\tERROR: Unary operator %s is an adjective, not an adverb. It can't be"
+			return String.format("\tERROR: Unary operator %s is an adjective, not an adverb. It can't be"
 					+ " applied to the operator %s\n", args[0], args[1]);
-			break;
 
 		case EK_SHUNT_NOOP:
-			System.out.printf("\tERROR: Unary operator %s is an adverb, but there is no operator"
+			return String.format("\tERROR: Unary operator %s is an adverb, but there is no operator"
 					+ " to apply it to\n", args[0]);
-			break;
 
 		case EK_SHUNT_NOGROUP:
-			System.out.printf("\tERROR: Couldn't find matching grouping %s (expected %s)\n", args[0],
+			return String.format("\tERROR: Couldn't find matching grouping %s (expected %s)\n", args[0],
 					args[1]);
-			break;
 
 		case EK_SHUNT_NOTASSOC:
-			System.out.printf("\tERROR: Attempted to chain non-associative operator %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Attempted to chain non-associative operator %s\n", args[0]);
 
 		case EK_SHUNT_INVSEP:
-			System.out.printf("\tERROR: Couldn't find grouper for group seperator to attach to\n");
-			break;
+			return String.format("\tERROR: Couldn't find grouper for group seperator to attach to\n");
 
 		case EK_STRM_NONEX:
-			System.out.printf("\tERROR: Attempted to switch to non-existent stream\n");
-			break;
+			return String.format("\tERROR: Attempted to switch to non-existent stream\n");
 
 		case EK_STRM_LAST:
-			System.out.printf("\tERROR: Cannot delete last stream\n");
-			break;
+			return String.format("\tERROR: Cannot delete last stream\n");
 
 		case EK_STRM_INVCOM:
-			System.out.printf("\tERROR: Unknown stream control command %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown stream control command %s\n", args[0]);
 
 		case EK_SCL_INVTOKEN:
-			System.out.printf("\tERROR: Unknown SCL token %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown SCL token %s\n", args[0]);
 
 		case EK_SCL_MMQUOTE:
-			System.out.printf("\tERROR: Mismatched delimiter in SCL command\n");
-			break;
+			return String.format("\tERROR: Mismatched delimiter in SCL command\n");
 
 		case EK_SCL_SUNDERFLOW:
-			System.out.printf("\tERROR: Not enough items in stack for word %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Not enough items in stack for word %s\n", args[0]);
 
 		case EK_SCL_UNWORD:
-			System.out.printf("\tERROR: Unknown word %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown word %s\n", args[0]);
 
 		case EK_CLI_UNARG:
-			System.out.printf("\tERROR: Unknown argument %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Unknown argument %s\n", args[0]);
 
 		case EK_CLI_MISARG:
-			System.out.printf("\tERROR: Missing subargument to command %s", args[0]);
-			break;
+			return String.format("\tERROR: Missing subargument to command %s\n", args[0]);
 
 		case EK_CLI_INVDFNTYPE:
-			System.out.printf("\tERROR: Invalid define type %s\n", args[0]);
-			break;
+			return String.format("\tERROR: Invalid define type %s\n", args[0]);
 
 		case EK_MISC_IOEX:
-			System.out.printf("\tERROR: I/O problem with file\n");
-			break;
+			return String.format("\tERROR: I/O problem with file\n");
 
 		case EK_MISC_NOFILE:
-			System.out.printf("\tERROR: No such file %s\n", args[0]);
-			break;
+			return String.format("\tERROR: No such file %s\n", args[0]);
 
 		default:
-			System.out.printf("\tERROR ERROR: Unknown error key %s\n", key);
+			return String.format("\tERROR ERROR: Unknown error key %s\n", key);
 		}
 	}
 
@@ -0,0 +1,197 @@
+package bjc.dicelang;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded cache of work done on commands, that evicts the least
+ * recently used entry once it is full.
+ *
+ * @author Ben Culkin
+ *
+ * @param <V>
+ *            The type of the cached values.
+ */
+public class ExpressionCache<V> {
+	/* The cached values, in access order. */
+	private final LinkedHashMap<String, V> entries;
+
+	/* The max. number of entries. */
+	private int capacity;
+
+	/* Statistics. */
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Create a new expression cache.
+	 *
+	 * @param cap
+	 *            The max. number of entries to hold. A capacity of zero
+	 *            disables the cache.
+	 */
+	public ExpressionCache(final int cap) {
+		if (cap < 0) {
+			throw new IllegalArgumentException("Cache capacity must be non-negative, not " + cap);
+		}
+
+		capacity = cap;
+
+		entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+				if (size() > capacity) {
+					evictions += 1;
+
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Look up a value in the cache.
+	 *
+	 * @param key
+	 *            The key to look up.
+	 *
+	 * @return The cached value, or null if there isn't one.
+	 */
+	public V get(final String key) {
+		final V val = entries.get(key);
+
+		if (val == null) {
+			misses += 1;
+		} else {
+			hits += 1;
+		}
+
+		return val;
+	}
+
+	/**
+	 * Add a value to the cache, evicting the least recently used value if
+	 * the cache is full.
+	 *
+	 * @param key
+	 *            The key for the value.
+	 *
+	 * @param val
+	 *            The value to cache.
+	 */
+	public void put(final String key, final V val) {
+		if (capacity == 0) return;
+
+		entries.put(key, val);
+	}
+
+	/**
+	 * Remove every value from the cache.
+	 *
+	 * This is done whenever something changes how commands are compiled.
+	 */
+	public void invalidate() {
+		if (!entries.isEmpty()) invalidations += 1;
+
+		entries.clear();
+	}
+
+	/**
+	 * Change the max. number of values in the cache.
+	 *
+	 * Shrinking the cache evicts the least recently used values.
+	 *
+	 * @param cap
+	 *            The new capacity of the cache.
+	 */
+	public void setCapacity(final int cap) {
+		if (cap < 0) {
+			throw new IllegalArgumentException("Cache capacity must be non-negative, not " + cap);
+		}
+
+		capacity = cap;
+
+		while (entries.size() > capacity) {
+			final String eldest = entries.keySet().iterator().next();
+
+			entries.remove(eldest);
+
+			evictions += 1;
+		}
+	}
+
+	/**
+	 * Get the max. number of values in the cache.
+	 *
+	 * @return The capacity of the cache.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of values currently in the cache.
+	 *
+	 * @return The number of cached values.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found a value.
+	 *
+	 * @return The number of cache hits.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that didn't find a value.
+	 *
+	 * @return The number of cache misses.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of values removed to make room for others.
+	 *
+	 * @return The number of cache evictions.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Get the number of times the cache was cleared because the compiler
+	 * changed.
+	 *
+	 * @return The number of cache invalidations.
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	/** Reset the statistics for the cache. */
+	public void resetStats() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		invalidations = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExpressionCache [size=%d, capacity=%d, hits=%d, misses=%d, evictions=%d, invalidations=%d]",
+				entries.size(), capacity, hits, misses, evictions, invalidations);
+	}
+}
@@ -0,0 +1,189 @@
+package bjc.dicelang;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An auto-numbered table of strings, where adding the same string twice gives
+ * the same number.
+ *
+ * Entries are either pinned, and kept for as long as the table exists, or
+ * transient, and dropped whenever the table is reclaimed after growing past
+ * its limit. This keeps long-running engines from growing without bound.
+ *
+ * @author Ben Culkin
+ */
+public class InternTable {
+	/* The number for each string. */
+	private final Map<String, Integer> ids;
+	/* The string for each number. */
+	private final Map<Integer, String> vals;
+
+	/* The numbers of the pinned entries. */
+	private final Set<Integer> pinned;
+
+	/* The next number to hand out. */
+	private int nextID;
+	/* The first number that is free to reuse after a reclaim. */
+	private int firstFree;
+
+	/* Number of entries allowed before a reclaim does anything. */
+	private int limit;
+
+	/* Number of times the table has been reclaimed. */
+	private long reclaims;
+
+	/**
+	 * Create a new intern table.
+	 *
+	 * @param firstID
+	 *            The number to give the first entry.
+	 *
+	 * @param lim
+	 *            The number of entries allowed before a reclaim drops the
+	 *            transient ones.
+	 */
+	public InternTable(final int firstID, final int lim) {
+		ids = new HashMap<>();
+		vals = new HashMap<>();
+
+		pinned = new HashSet<>();
+
+		nextID = firstID;
+		firstFree = firstID;
+
+		limit = lim;
+	}
+
+	/**
+	 * Get the number for a string, adding it as a transient entry if it
+	 * isn't in the table.
+	 *
+	 * @param val
+	 *            The string to intern.
+	 *
+	 * @return The number for the string.
+	 */
+	public int intern(final String val) {
+		final Integer id = ids.get(val);
+
+		if (id != null) return id;
+
+		final int newID = nextID++;
+
+		ids.put(val, newID);
+		vals.put(newID, val);
+
+		return newID;
+	}
+
+	/**
+	 * Get the number for a string, adding it as a pinned entry.
+	 *
+	 * Pinning a string that is already transient makes it pinned.
+	 *
+	 * @param val
+	 *            The string to intern.
+	 *
+	 * @return The number for the string.
+	 */
+	public int pin(final String val) {
+		final int id = intern(val);
+
+		pinned.add(id);
+
+		firstFree = Math.max(firstFree, id + 1);
+
+		return id;
+	}
+
+	/**
+	 * Get the string with a given number.
+	 *
+	 * @param id
+	 *            The number of the string.
+	 *
+	 * @return The string, or null if there isn't one with that number.
+	 */
+	public String get(final int id) {
+		return vals.get(id);
+	}
+
+	/**
+	 * Check if the table has a string with a given number.
+	 *
+	 * @param id
+	 *            The number to check.
+	 *
+	 * @return Whether there is a string with that number.
+	 */
+	public boolean containsKey(final int id) {
+		return vals.containsKey(id);
+	}
+
+	/**
+	 * Get the number of entries in the table.
+	 *
+	 * @return The number of entries in the table.
+	 */
+	public int size() {
+		return vals.size();
+	}
+
+	/**
+	 * Drop all of the transient entries, if there are more entries than the
+	 * limit.
+	 *
+	 * Anything holding on to the number of a transient entry should be
+	 * discarded if this returns true.
+	 *
+	 * @return Whether any entries were dropped.
+	 */
+	public boolean reclaim() {
+		if (vals.size() <= limit || vals.size() == pinned.size()) return false;
+
+		vals.keySet().retainAll(pinned);
+		ids.values().retainAll(pinned);
+
+		nextID = firstFree;
+
+		reclaims += 1;
+
+		return true;
+	}
+
+	/**
+	 * Set the number of entries allowed before a reclaim does anything.
+	 *
+	 * @param lim
+	 *            The new limit.
+	 */
+	public void setLimit(final int lim) {
+		limit = lim;
+	}
+
+	/**
+	 * Get the number of entries allowed before a reclaim does anything.
+	 *
+	 * @return The limit of the table.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Get the number of times transient entries have been dropped.
+	 *
+	 * @return The number of reclaims.
+	 */
+	public long getReclaims() {
+		return reclaims;
+	}
+
+	@Override
+	public String toString() {
+		return vals.toString();
+	}
+}
@@ -0,0 +1,212 @@
+package bjc.dicelang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import bjc.utils.parserutils.splitter.ConfigurableTokenSplitter;
+
+/**
+ * The parts of DiceLang that are shared between engines: the operators that
+ * tokens are split on, the defines, and the operator table.
+ *
+ * Definitions are immutable. Changing one creates a new definition, so a
+ * single definition can be shared by any number of engines on any number of
+ * threads.
+ *
+ * @author Ben Culkin
+ */
+public final class LanguageDefinition {
+	/* A group of delimiters to split tokens on. */
+	private static final class Delimiters {
+		/* Whether these are multi-character delimiters. */
+		public final boolean isMulti;
+
+		public final String[] delims;
+
+		public Delimiters(final boolean multi, final String... dlms) {
+			isMulti = multi;
+
+			delims = dlms;
+		}
+	}
+
+	/* The delimiters, in the order they were added. */
+	private final List<Delimiters> delimiters;
+
+	/* Defns, sorted by priority. */
+	private final List<Define> lineDefns;
+	private final List<Define> tokenDefns;
+
+	/* Whether any token defns vary between applications. */
+	private final boolean varyingTokenDefns;
+
+	/* Split tokens around operators with regex */
+	final ConfigurableTokenSplitter opExpander;
+
+	/* Shunter for token shunting. */
+	final Shunter shunt;
+
+	/* Create a new definition. */
+	private LanguageDefinition(final List<Delimiters> dlms, final List<Define> lineDfns,
+			final List<Define> tokenDfns) {
+		delimiters = dlms;
+
+		lineDefns = lineDfns;
+		tokenDefns = tokenDfns;
+
+		varyingTokenDefns = tokenDfns.stream().anyMatch(Define::isVarying);
+
+		opExpander = new ConfigurableTokenSplitter(true);
+
+		for (final Delimiters dlm : delimiters) {
+			if (dlm.isMulti) {
+				opExpander.addMultiDelimiters(dlm.delims);
+			} else {
+				opExpander.addSimpleDelimiters(dlm.delims);
+			}
+		}
+
+		opExpander.compile();
+
+		shunt = new Shunter();
+	}
+
+	/**
+	 * Create the standard DiceLang definition, with the default operators and
+	 * no defines.
+	 *
+	 * @return The standard definition.
+	 */
+	public static LanguageDefinition standard() {
+		final List<Delimiters> dlms = new ArrayList<>();
+
+		/* Add grouping operators */
+		dlms.add(new Delimiters(true, "(", ")"));
+		dlms.add(new Delimiters(true, "[", "]"));
+		dlms.add(new Delimiters(true, "{", "}"));
+
+		/* Add simple operators */
+		dlms.add(new Delimiters(false, ":="));
+		dlms.add(new Delimiters(false, "=>"));
+		dlms.add(new Delimiters(false, "//"));
+		dlms.add(new Delimiters(false, ".+."));
+		dlms.add(new Delimiters(false, ".*."));
+		dlms.add(new Delimiters(false, "+"));
+		dlms.add(new Delimiters(false, "-"));
+		dlms.add(new Delimiters(false, "*"));
+		dlms.add(new Delimiters(false, "/"));
+
+		return new LanguageDefinition(Collections.unmodifiableList(dlms), Collections.emptyList(),
+				Collections.emptyList());
+	}
+
+	/**
+	 * Create a definition with an additional line defn.
+	 *
+	 * @param dfn
+	 *            The defn to add.
+	 *
+	 * @return A definition with the defn added.
+	 */
+	public LanguageDefinition withLineDefine(final Define dfn) {
+		return new LanguageDefinition(delimiters, withDefine(lineDefns, dfn), tokenDefns);
+	}
+
+	/**
+	 * Create a definition with an additional token defn.
+	 *
+	 * @param dfn
+	 *            The defn to add.
+	 *
+	 * @return A definition with the defn added.
+	 */
+	public LanguageDefinition withTokenDefine(final Define dfn) {
+		return new LanguageDefinition(delimiters, lineDefns, withDefine(tokenDefns, dfn));
+	}
+
+	/**
+	 * Create a definition with additional delimiters that are expanded from
+	 * tokens.
+	 *
+	 * @param delims
+	 *            The delimiters to expand on.
+	 *
+	 * @return A definition with the delimiters added.
+	 */
+	public LanguageDefinition withDelimiters(final String... delims) {
+		return withDelimiters(new Delimiters(false, Arrays.copyOf(delims, delims.length)));
+	}
+
+	/**
+	 * Create a definition with additional multi-character delimiters that are
+	 * expanded from tokens.
+	 *
+	 * @param delims
+	 *            The multi-character delimiters to expand on.
+	 *
+	 * @return A definition with the delimiters added.
+	 */
+	public LanguageDefinition withMultiDelimiters(final String... delims) {
+		return withDelimiters(new Delimiters(true, Arrays.copyOf(delims, delims.length)));
+	}
+
+	/**
+	 * Get the line defns, in the order they are applied.
+	 *
+	 * @return The line defns.
+	 */
+	public List<Define> getLineDefines() {
+		return lineDefns;
+	}
+
+	/**
+	 * Get the token defns, in the order they are applied.
+	 *
+	 * @return The token defns.
+	 */
+	public List<Define> getTokenDefines() {
+		return tokenDefns;
+	}
+
+	/**
+	 * Check whether any token defns can give different results for the same
+	 * token each time they are applied.
+	 *
+	 * Commands can't be cached by their tokens if they can.
+	 *
+	 * @return Whether any token defns vary.
+	 */
+	public boolean hasVaryingTokenDefines() {
+		return varyingTokenDefns;
+	}
+
+	/**
+	 * Get the shunter for this definition's operators.
+	 *
+	 * @return The shunter.
+	 */
+	public Shunter getShunter() {
+		return shunt;
+	}
+
+	/* Add delimiters to a copy of this definition. */
+	private LanguageDefinition withDelimiters(final Delimiters dlm) {
+		final List<Delimiters> dlms = new ArrayList<>(delimiters);
+
+		dlms.add(dlm);
+
+		return new LanguageDefinition(Collections.unmodifiableList(dlms), lineDefns, tokenDefns);
+	}
+
+	/* Add a defn to a copy of a list, keeping it sorted by priority. */
+	private static List<Define> withDefine(final List<Define> dfns, final Define dfn) {
+		final List<Define> res = new ArrayList<>(dfns);
+
+		res.add(dfn);
+		res.sort(null);
+
+		return Collections.unmodifiableList(res);
+	}
+}
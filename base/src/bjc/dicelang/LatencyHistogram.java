@@ -0,0 +1,167 @@
+package bjc.dicelang;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies, in nanoseconds.
+ *
+ * Values are counted in buckets whose width grows with the value, so that
+ * every value is kept to within about three percent, from nanoseconds up to
+ * the range of a long. Recording a value doesn't lock, so any number of
+ * threads can record into one histogram at once.
+ *
+ * @author Ben Culkin
+ */
+public final class LatencyHistogram {
+	/* The number of bits of each value that buckets keep. */
+	private static final int SUB_BITS = 6;
+	/* The number of values below which buckets are one wide. */
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	/* The number of buckets per power of two past the linear ones. */
+	private static final int HALF_COUNT = SUB_COUNT / 2;
+
+	/* Enough buckets to hold Long.MAX_VALUE. */
+	private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+	/* The counts for each bucket. */
+	private final AtomicLongArray counts;
+
+	/* Summary statistics. */
+	private final LongAdder total;
+	private final LongAdder sum;
+	private final AtomicLong max;
+
+	/**
+	 * Create a new empty histogram.
+	 */
+	public LatencyHistogram() {
+		counts = new AtomicLongArray(BUCKETS);
+
+		total = new LongAdder();
+		sum = new LongAdder();
+		max = new AtomicLong();
+	}
+
+	/* Get the bucket for a value. */
+	private static int index(final long val) {
+		if (val < SUB_COUNT) return (int) val;
+
+		/* Shift the value until it fits in the top half of a bucket row. */
+		final int shift = (63 - Long.numberOfLeadingZeros(val)) - (SUB_BITS - 1);
+
+		return shift * HALF_COUNT + (int) (val >>> shift);
+	}
+
+	/* Get the largest value that goes into a bucket. */
+	private static long highestValue(final int idx) {
+		if (idx < SUB_COUNT) return idx;
+
+		final int shift = idx / HALF_COUNT - 1;
+		final long sub = idx - (long) shift * HALF_COUNT;
+
+		/* Add the width separately, so the last bucket doesn't overflow. */
+		return (sub << shift) + ((1L << shift) - 1);
+	}
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param nanos
+	 *            The latency, in nanoseconds. Negative latencies are
+	 *            recorded as zero.
+	 */
+	public void record(final long nanos) {
+		final long val = Math.max(0, nanos);
+
+		counts.incrementAndGet(index(val));
+
+		total.increment();
+		sum.add(val);
+		max.accumulateAndGet(val, Math::max);
+	}
+
+	/**
+	 * Get the number of recorded latencies.
+	 *
+	 * @return The number of recorded latencies.
+	 */
+	public long getCount() {
+		return total.sum();
+	}
+
+	/**
+	 * Get the mean of the recorded latencies.
+	 *
+	 * @return The mean latency, in nanoseconds, or zero if nothing has been
+	 *         recorded.
+	 */
+	public double getMean() {
+		final long cnt = total.sum();
+
+		if (cnt == 0) return 0;
+
+		return (double) sum.sum() / cnt;
+	}
+
+	/**
+	 * Get the largest recorded latency.
+	 *
+	 * @return The largest latency, in nanoseconds.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Get the latency that a percentage of the recorded latencies are at or
+	 * under.
+	 *
+	 * @param percentile
+	 *            The percentage, from 0 to 100.
+	 *
+	 * @return The latency at that percentile, in nanoseconds, or zero if
+	 *         nothing has been recorded.
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		final long cnt = total.sum();
+
+		if (cnt == 0) return 0;
+
+		final double pct = Math.min(Math.max(percentile, 0), 100);
+		final long target = Math.max(1, (long) Math.ceil(pct / 100 * cnt));
+
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+
+			if (seen >= target) return Math.min(highestValue(i), max.get());
+		}
+
+		return max.get();
+	}
+
+	/**
+	 * Remove every recorded latency.
+	 *
+	 * Latencies recorded while the histogram is being reset may or may not
+	 * be kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+
+		total.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LatencyHistogram [count=%d, mean=%.0fns, p50=%dns, p99=%dns, max=%dns]", getCount(),
+				getMean(), getValueAtPercentile(50), getValueAtPercentile(99), getMax());
+	}
+}
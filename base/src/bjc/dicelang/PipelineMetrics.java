@@ -0,0 +1,214 @@
+package bjc.dicelang;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import bjc.dicelang.Errors.ErrorKey;
+
+/**
+ * Timings and failure counts for each stage of running commands.
+ *
+ * Recording doesn't lock, so metrics can be read from another thread while
+ * the engine is running commands.
+ *
+ * @author Ben Culkin
+ */
+public final class PipelineMetrics {
+	/**
+	 * The stages of running a command that are timed.
+	 */
+	public static enum Stage {
+		/** Running stream commands. */
+		STREAMS,
+		/** Applying line defines. */
+		LINE_DEFINES,
+		/** Pulling out string literals and splitting around operators. */
+		EXPANSION,
+		/** Applying token defines and lexing tokens. */
+		LEXING,
+		/** Shunting tokens into postfix order. */
+		SHUNTING,
+		/** Parsing tokens into trees. */
+		PARSING,
+		/** Folding constants in trees. */
+		OPTIMIZING,
+		/** Evaluating trees. */
+		EVALUATION
+	}
+
+	/* The latencies for each stage. */
+	private final Map<Stage, LatencyHistogram> latencies;
+	/* The failures for each stage, by ordinal. */
+	private final AtomicLongArray failures;
+	/* The errors that were reported, by ordinal of their key. */
+	private final AtomicLongArray errors;
+
+	/* The number of commands run. */
+	private final LongAdder commands;
+
+	/**
+	 * Create a new set of empty metrics.
+	 */
+	public PipelineMetrics() {
+		latencies = new EnumMap<>(Stage.class);
+
+		for (final Stage stage : Stage.values()) {
+			latencies.put(stage, new LatencyHistogram());
+		}
+
+		failures = new AtomicLongArray(Stage.values().length);
+		errors = new AtomicLongArray(ErrorKey.values().length);
+
+		commands = new LongAdder();
+	}
+
+	/**
+	 * Record that a stage finished.
+	 *
+	 * @param stage
+	 *            The stage that finished.
+	 *
+	 * @param startNanos
+	 *            The value of {@link System#nanoTime()} when the stage
+	 *            started.
+	 *
+	 * @param succeeded
+	 *            Whether the stage succeeded.
+	 */
+	public void record(final Stage stage, final long startNanos, final boolean succeeded) {
+		latencies.get(stage).record(System.nanoTime() - startNanos);
+
+		if (!succeeded) failures.incrementAndGet(stage.ordinal());
+	}
+
+	/**
+	 * Record that a command was run.
+	 */
+	public void recordCommand() {
+		commands.increment();
+	}
+
+	/**
+	 * Record that an error was reported.
+	 *
+	 * @param key
+	 *            The key of the error.
+	 */
+	public void recordError(final ErrorKey key) {
+		errors.incrementAndGet(key.ordinal());
+	}
+
+	/**
+	 * Get the latencies of a stage.
+	 *
+	 * @param stage
+	 *            The stage to get latencies for.
+	 *
+	 * @return The latencies of the stage.
+	 */
+	public LatencyHistogram getLatencies(final Stage stage) {
+		return latencies.get(stage);
+	}
+
+	/**
+	 * Get the number of times a stage failed.
+	 *
+	 * @param stage
+	 *            The stage to get failures for.
+	 *
+	 * @return The number of failures of the stage.
+	 */
+	public long getFailures(final Stage stage) {
+		return failures.get(stage.ordinal());
+	}
+
+	/**
+	 * Get the number of times an error was reported.
+	 *
+	 * @param key
+	 *            The key of the error.
+	 *
+	 * @return The number of times the error was reported.
+	 */
+	public long getErrorCount(final ErrorKey key) {
+		return errors.get(key.ordinal());
+	}
+
+	/**
+	 * Get the number of commands run.
+	 *
+	 * @return The number of commands run.
+	 */
+	public long getCommands() {
+		return commands.sum();
+	}
+
+	/**
+	 * Reset every metric.
+	 */
+	public void reset() {
+		for (final LatencyHistogram hist : latencies.values()) {
+			hist.reset();
+		}
+
+		for (int i = 0; i < failures.length(); i++) {
+			failures.set(i, 0);
+		}
+
+		for (int i = 0; i < errors.length(); i++) {
+			errors.set(i, 0);
+		}
+
+		commands.reset();
+	}
+
+	/**
+	 * Format the metrics as a table.
+	 *
+	 * Latencies are in microseconds. Only errors that were reported are
+	 * listed.
+	 *
+	 * @return The metrics, as a table.
+	 */
+	public String format() {
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append(String.format("Commands run: %d\n", commands.sum()));
+		sb.append(String.format("%-14s %10s %10s %10s %10s %10s %10s %10s\n", "Stage", "Count", "Failures",
+				"Mean(us)", "p50(us)", "p90(us)", "p99(us)", "Max(us)"));
+
+		for (final Stage stage : Stage.values()) {
+			final LatencyHistogram hist = latencies.get(stage);
+
+			sb.append(String.format("%-14s %10d %10d %10.1f %10.1f %10.1f %10.1f %10.1f\n", stage, hist.getCount(),
+					failures.get(stage.ordinal()), hist.getMean() / 1000, hist.getValueAtPercentile(50) / 1000.0,
+					hist.getValueAtPercentile(90) / 1000.0, hist.getValueAtPercentile(99) / 1000.0,
+					hist.getMax() / 1000.0));
+		}
+
+		boolean hasErrors = false;
+
+		for (final ErrorKey key : ErrorKey.values()) {
+			final long count = errors.get(key.ordinal());
+
+			if (count == 0) continue;
+
+			if (!hasErrors) {
+				sb.append("Errors:\n");
+
+				hasErrors = true;
+			}
+
+			sb.append(String.format("\t%-20s %10d\n", key, count));
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return format();
+	}
+}
@@ -0,0 +1,141 @@
+package bjc.dicelang;
+
+import java.util.logging.Logger;
+
+import bjc.dicelang.eval.DiceEvaluatorResult;
+import bjc.dicelang.eval.EvaluatorResult;
+import bjc.dicelang.eval.FailureEvaluatorResult;
+import bjc.dicelang.tokens.Token;
+import bjc.data.Tree;
+import bjc.funcdata.ListEx;
+import bjc.funcdata.MapEx;
+
+/**
+ * Tracer that prints every event to the console, and logs it.
+ *
+ * This is the tracer used in debug mode.
+ *
+ * @author Ben Culkin
+ */
+public class PrintingTracer implements Tracer {
+	/* Logger. */
+	private static final Logger LOG = Logger.getLogger(DiceLangEngine.class.getName());
+
+	@Override
+	public void stageText(final Stage stage, final CharSequence command) {
+		stage(stage, command);
+	}
+
+	@Override
+	public void stageTokens(final Stage stage, final ListEx<?> tokens) {
+		stage(stage, tokens);
+	}
+
+	/* Print the result of a stage. */
+	private static void stage(final Stage stage, final Object command) {
+		final String msg = String.format("\tCommand after %s: %s\n", stage.description, command);
+
+		LOG.fine(msg);
+
+		System.out.print(msg);
+	}
+
+	@Override
+	public void stringLiteral(final String value, final int litNum) {
+		detail(String.format("Replaced string literal '%s' with literal no. %d", value, litNum));
+	}
+
+	@Override
+	public void stringLiterals(final MapEx<String, String> literals) {
+		/* Print the string table if it exists. */
+		if (literals.size() > 0) {
+			System.out.println("\tString literals in table");
+
+			literals.forEach((key, val) -> {
+				System.out.printf("\t\tName: (%s)\tValue: (%s)\n", key, val);
+			});
+		}
+	}
+
+	@Override
+	public void nonExpander(final String value, final String name) {
+		detail(String.format("Pulled non-expander '%s' to '%s'", value, name));
+	}
+
+	/* Print a detail about a stage. */
+	private static void detail(final String msg) {
+		System.out.printf("\t\tDEBUG(1): %s\n", msg);
+
+		LOG.finer(msg);
+	}
+
+	@Override
+	public void cachedParse(final String key) {
+		System.out.printf("\tUsing cached parse of: %s\n", key);
+	}
+
+	@Override
+	public void lexedToken(final Token token) {
+		LOG.finer(String.format("lexed token: %s\n", token));
+	}
+
+	@Override
+	public void preshunted(final ListEx<Token> group, final ListEx<Token> shunted) {
+		System.out.println("\t\tPreshunted " + group + " into " + shunted);
+	}
+
+	@Override
+	public void tokenGroup(final ListEx<Token> tokens) {
+		final String msg = String.format("Expanding token group to: %s\n", tokens);
+
+		LOG.finer(msg);
+
+		System.out.print(msg);
+	}
+
+	@Override
+	public void tree(final int treeNo, final Tree<Node> ast) {
+		System.out.printf("\t\tTree %d in forest:\n%s\n", treeNo, ast);
+	}
+
+	@Override
+	public void step(final int stepNo, final Tree<Node> node) {
+		System.out.printf("\t\tStep %d: Node is %s", stepNo, node);
+
+		/* Print out details for results */
+		if (node != null && node.getHead().type == Node.Type.RESULT) {
+			final EvaluatorResult res = node.getHead().resultVal;
+
+			System.out.printf(" (result is %s", res);
+
+			if (res.type == EvaluatorResult.Type.DICE) {
+				final String value = ((DiceEvaluatorResult) res).diceVal.value();
+
+				System.out.printf(" (sample roll %s)", value);
+			}
+
+			if (res.type == EvaluatorResult.Type.FAILURE) {
+				final Tree<Node> otree = ((FailureEvaluatorResult) res).origVal;
+
+				System.out.printf(" (original tree is %s)", otree);
+			}
+
+			System.out.printf(")");
+		}
+
+		System.out.println();
+	}
+
+	@Override
+	public void result(final int treeNo, final EvaluatorResult res) {
+		System.out.printf("\t\tEvaluates to %s", res);
+
+		if (res != null && res.type == EvaluatorResult.Type.DICE) {
+			final String value = ((DiceEvaluatorResult) res).diceVal.value();
+
+			System.out.println("\t\t (sample roll " + value + ")");
+		}
+
+		System.out.println();
+	}
+}
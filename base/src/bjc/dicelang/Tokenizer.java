@@ -4,6 +4,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import bjc.dicelang.dice.DiceBox;
+import bjc.dicelang.dice.DiceExpression;
 import bjc.dicelang.tokens.DiceToken;
 import bjc.dicelang.tokens.FloatToken;
 import bjc.dicelang.tokens.Token;
@@ -24,8 +25,6 @@ public class Tokenizer {
 
 	private final DiceLangEngine eng;
 
-	private int nextSym = 0;
-
 	static {
 		litTokens = new FunctionalMap<>();
 
@@ -134,9 +133,9 @@ public class Tokenizer {
 	}
 
 	/* Patterns for matching. */
-	private final Pattern hexadecimalMatcher = Pattern.compile("\\A[\\-\\+]?0x[0-9A-Fa-f]+\\Z");
-	private final Pattern flexadecimalMatcher = Pattern.compile("\\A[\\-\\+]?[0-9][0-9A-Za-z]+B\\d{1,2}\\Z");
-	private final Pattern stringLitMatcher = Pattern.compile("\\AstringLiteral(\\d+)\\Z");
+	private static final Pattern hexadecimalMatcher = Pattern.compile("\\A[\\-\\+]?0x[0-9A-Fa-f]+\\Z");
+	private static final Pattern flexadecimalMatcher = Pattern.compile("\\A[\\-\\+]?[0-9][0-9A-Za-z]+B\\d{1,2}\\Z");
+	private static final Pattern stringLitMatcher = Pattern.compile("\\AstringLiteral(\\d+)\\Z");
 
 	/* Tokenize a literal value. */
 	private Token tokenizeLiteral(final String rtoken, final MapEx<String, String> stringLts) {
@@ -167,21 +166,22 @@ public class Tokenizer {
 			}
 		} else if (TokenUtils.isDouble(token)) {
 			tk = new FloatToken(Double.parseDouble(token));
-		} else if (DiceBox.isValidExpression(token)) {
-			tk = new DiceToken(DiceBox.parseExpression(token));
 		} else {
+			/* Only look the token up once, whether or not it's a die. */
+			final DiceExpression dieExp = DiceBox.tryParseExpression(token);
+
 			final Matcher stringLit = stringLitMatcher.matcher(token);
 
-			if (stringLit.matches()) {
+			if (dieExp != null) {
+				tk = new DiceToken(dieExp);
+			} else if (stringLit.matches() && stringLts.containsKey(token)) {
+				/* The literal was already added when it was named. */
 				final int litNum = Integer.parseInt(stringLit.group(1));
 
-				eng.addStringLiteral(litNum, stringLts.get(token).get());
 				tk = new Token(STRING_LIT, litNum);
 			} else {
 				/* Everything else is a symbol */
-				eng.symTable.put(nextSym++, token);
-
-				tk = new Token(VREF, nextSym - 1);
+				tk = new Token(VREF, eng.symTable.intern(token));
 			}
 		}
 
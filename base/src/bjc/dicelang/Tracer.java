@@ -0,0 +1,204 @@
+package bjc.dicelang;
+
+import bjc.dicelang.eval.EvaluatorResult;
+import bjc.dicelang.tokens.Token;
+import bjc.data.Tree;
+import bjc.funcdata.ListEx;
+import bjc.funcdata.MapEx;
+
+/**
+ * Receives events as a {@link DiceLangEngine} runs a command.
+ *
+ * Events get the values from each stage as they are, and nothing is
+ * formatted unless the tracer does it. Every event does nothing by default,
+ * so the default tracer, {@link #NONE}, costs nothing once the JIT inlines
+ * its empty methods.
+ *
+ * @author Ben Culkin
+ */
+public interface Tracer {
+	/**
+	 * The stages that produce an intermediate form of a command.
+	 */
+	public static enum Stage {
+		/** The command after stream commands have run. */
+		STREAMS("stream commands"),
+		/** The command after line defines have been applied. */
+		LINE_DEFINES("line defines"),
+		/** The command after string literals are pulled out. */
+		DESTRING("destringing"),
+		/** The tokens after non-expanding tokens are pulled out. */
+		NONEXPAND_REMOVAL("removal of non-expanders"),
+		/** The tokens after they are split around operators. */
+		EXPANSION("token expansion"),
+		/** The tokens after non-expanding tokens are put back. */
+		NONEXPAND_REINSERTION("non-expander reinsertion"),
+		/** The tokens after lexing. */
+		TOKENIZATION("tokenization"),
+		/** The tokens after pre-shunt groups are shunted. */
+		PRESHUNT_REMOVAL("pre-shunter removal"),
+		/** The tokens after shunting. */
+		SHUNTING("shunting"),
+		/** The tokens after token groups are expanded. */
+		REPRESHUNTING("re-preshunting");
+
+		/** A description of what the stage did. */
+		public final String description;
+
+		private Stage(final String desc) {
+			description = desc;
+		}
+	}
+
+	/**
+	 * The tracer that ignores every event.
+	 */
+	public static final Tracer NONE = new Tracer() {
+		/* Every event is ignored by default. */
+	};
+
+	/**
+	 * Called with the text of a command after a stage.
+	 *
+	 * @param stage
+	 *            The stage that produced the text.
+	 *
+	 * @param command
+	 *            The text of the command.
+	 */
+	default void stageText(final Stage stage, final CharSequence command) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called with the tokens of a command after a stage.
+	 *
+	 * @param stage
+	 *            The stage that produced the tokens.
+	 *
+	 * @param tokens
+	 *            The tokens of the command.
+	 */
+	default void stageTokens(final Stage stage, final ListEx<?> tokens) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called when a string literal is pulled out of a command.
+	 *
+	 * @param value
+	 *            The value of the literal.
+	 *
+	 * @param litNum
+	 *            The number the literal was given.
+	 */
+	default void stringLiteral(final String value, final int litNum) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called with the string literals of a command, once they are all
+	 * pulled out.
+	 *
+	 * @param literals
+	 *            The literals, by name.
+	 */
+	default void stringLiterals(final MapEx<String, String> literals) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called when a non-expanding token is pulled out of a command.
+	 *
+	 * @param value
+	 *            The token.
+	 *
+	 * @param name
+	 *            The name it was replaced with.
+	 */
+	default void nonExpander(final String value, final String name) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called when a command is parsed from the cache.
+	 *
+	 * @param key
+	 *            The preprocessed command.
+	 */
+	default void cachedParse(final String key) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called for each token that is lexed.
+	 *
+	 * @param token
+	 *            The lexed token, or null for a blank token.
+	 */
+	default void lexedToken(final Token token) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called when a pre-shunt group is shunted.
+	 *
+	 * @param group
+	 *            The tokens in the group.
+	 *
+	 * @param shunted
+	 *            The tokens after shunting.
+	 */
+	default void preshunted(final ListEx<Token> group, final ListEx<Token> shunted) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called when a token group is expanded.
+	 *
+	 * @param tokens
+	 *            The tokens in the group.
+	 */
+	default void tokenGroup(final ListEx<Token> tokens) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called before a tree is evaluated.
+	 *
+	 * @param treeNo
+	 *            The number of the tree in the forest, starting at one.
+	 *
+	 * @param ast
+	 *            The tree.
+	 */
+	default void tree(final int treeNo, final Tree<Node> ast) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called for each step of evaluating a tree step by step.
+	 *
+	 * @param stepNo
+	 *            The number of the step, starting at one.
+	 *
+	 * @param node
+	 *            The node for the step, which may be null.
+	 */
+	default void step(final int stepNo, final Tree<Node> node) {
+		/* Ignored by default. */
+	}
+
+	/**
+	 * Called after a tree is evaluated.
+	 *
+	 * @param treeNo
+	 *            The number of the tree in the forest, starting at one.
+	 *
+	 * @param res
+	 *            The result of the tree, which is null for groups.
+	 */
+	default void result(final int treeNo, final EvaluatorResult res) {
+		/* Ignored by default. */
+	}
+}
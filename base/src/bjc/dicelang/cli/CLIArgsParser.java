@@ -101,6 +101,30 @@ public class CLIArgsParser {
 					eng.toggleStepEval();
 				}
 				break;
+			case "-ce":
+			case "--compiledeval":
+				if(!eng.toggleCompiledEval()) {
+					eng.toggleCompiledEval();
+				}
+				break;
+			case "-nce":
+			case "--no-compiledeval":
+				if(eng.toggleCompiledEval()) {
+					eng.toggleCompiledEval();
+				}
+				break;
+			case "-op":
+			case "--optimize":
+				if(!eng.toggleOptimize()) {
+					eng.toggleOptimize();
+				}
+				break;
+			case "-nop":
+			case "--no-optimize":
+				if(eng.toggleOptimize()) {
+					eng.toggleOptimize();
+				}
+				break;
 			case "-D":
 			case "--define":
 				i = simpleDefine(i, args, eng);
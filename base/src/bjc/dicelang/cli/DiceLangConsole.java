@@ -1,6 +1,7 @@
 package bjc.dicelang.cli;
 
 import bjc.dicelang.Define;
+import bjc.dicelang.DiceError;
 import bjc.dicelang.DiceLangEngine;
 import bjc.dicelang.Errors;
 import bjc.funcdata.FunctionalMap;
@@ -68,6 +69,9 @@ public class DiceLangConsole {
 		commandNumber = 0;
 		eng = new DiceLangEngine();
 
+		/* Results are only printed in debug mode, so start with it on. */
+		eng.toggleDebug();
+
 		if(!CLIArgsParser.parseArgs(args, eng)) {
 			System.exit(1);
 		}
@@ -139,6 +143,10 @@ public class DiceLangConsole {
 
 				final boolean success = eng.runCommand(comm);
 
+				for(final DiceError err : eng.getLastErrors()) {
+					System.out.println("\t" + err.getMessage());
+				}
+
 				if(success) {
 					System.out.println("\tCommand completed succesfully");
 				} else {
@@ -190,6 +198,21 @@ public class DiceLangConsole {
 		case "stepeval":
 			System.out.println("\tStepeval mode is now " + eng.toggleStepEval());
 			break;
+		case "compiledeval":
+			System.out.println("\tCompiledeval mode is now " + eng.toggleCompiledEval());
+			break;
+		case "optimize":
+			System.out.println("\tOptimize mode is now " + eng.toggleOptimize());
+			break;
+		case "metrics":
+			if(pragma.substring(pragmaName.length()).trim().equals("reset")) {
+				eng.getMetrics().reset();
+
+				System.out.println("\tMetrics reset");
+			} else {
+				System.out.print(eng.getMetrics().format());
+			}
+			break;
 		case "define":
 			return defineMode(pragma.substring(7));
 		case "help":
@@ -225,6 +248,16 @@ public class DiceLangConsole {
 		case "stepeval":
 			System.out.println("\tToggle stepeval mode. (Print out evaluation progress)");
 			break;
+		case "compiledeval":
+			System.out.println("\tToggle compiledeval mode. (Evaluate compiled commands instead of trees)");
+			break;
+		case "optimize":
+			System.out.println("\tToggle optimize mode. (Fold constants before evaluating)");
+			break;
+		case "metrics":
+			System.out.println("\tShow timings and failures for each stage of running commands.");
+			System.out.println("\tmetrics [reset]");
+			break;
 		case "define":
 			System.out.println("\tAdd a macro rewrite directive.");
 			System.out.println("\tdefine <priority> <type> <recursion> <guard> <circular> <patterns>...");
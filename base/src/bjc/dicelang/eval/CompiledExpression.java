@@ -0,0 +1,918 @@
+package bjc.dicelang.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import bjc.dicelang.DiceLangEngine;
+import bjc.dicelang.Errors;
+import bjc.dicelang.Node;
+import bjc.dicelang.dice.CompoundDie;
+import bjc.dicelang.dice.DiceExpression;
+import bjc.dicelang.dice.Die;
+import bjc.dicelang.dice.ListDiceExpression;
+import bjc.dicelang.dice.MathDie;
+import bjc.dicelang.dice.ScalarDiceExpression;
+import bjc.dicelang.dice.ScalarDie;
+import bjc.dicelang.dice.SimpleDie;
+import bjc.dicelang.dice.SimpleDieList;
+import bjc.dicelang.tokens.DiceToken;
+import bjc.dicelang.tokens.FloatToken;
+import bjc.dicelang.tokens.Token;
+import bjc.data.Tree;
+import bjc.funcdata.ListEx;
+
+import static bjc.dicelang.Errors.ErrorKey.*;
+
+/**
+ * A DiceLang command that has been compiled, so that it can be evaluated
+ * repeatedly without re-running the rest of the pipeline.
+ *
+ * Each tree in the forest is flattened into a postfix list of instructions,
+ * and type-checked once when it is compiled. Evaluating a compiled
+ * expression only needs to run the operators, on stacks of primitive values
+ * that are reused between evaluations, so numeric expressions don't create
+ * any objects until the result.
+ *
+ * Compiled expressions are immutable, and can be evaluated from multiple
+ * threads at once.
+ *
+ * @author Ben Culkin
+ */
+public final class CompiledExpression {
+	/*
+	 * The types a value can have. Only evaluation produces failures, since
+	 * trees that fail to type-check aren't compiled.
+	 */
+	private static enum ValueType {
+		INT, FLOAT, DICE, DICE_LIST, STRING, GROUP, FAILURE
+	}
+
+	/* The kinds of instructions. */
+	private static enum OpCode {
+		/* Push a literal value. */
+		CONST,
+		/* Apply a unary operator to the top value. */
+		UNARY,
+		/* Apply a binary operator to the top two values. */
+		BINARY,
+		/* Coerce the top count values to a common type. */
+		COERCE,
+		/* Collapse the top count values into a group. */
+		GROUP
+	}
+
+	/* A single instruction. */
+	private static final class Instruction {
+		public final OpCode code;
+
+		/* The operator, for UNARY/BINARY. */
+		public final Token.Type operator;
+		/* The number of values, for COERCE/GROUP. */
+		public final int count;
+
+		/* The literal value, for CONST. */
+		public final ValueType constType;
+		public final long intVal;
+		public final double floatVal;
+		public final Object objVal;
+
+		public Instruction(final OpCode cod, final Token.Type op, final int cnt, final ValueType typ,
+				final long ival, final double fval, final Object oval) {
+			code = cod;
+
+			operator = op;
+			count = cnt;
+
+			constType = typ;
+			intVal = ival;
+			floatVal = fval;
+			objVal = oval;
+		}
+
+		@Override
+		public String toString() {
+			switch (code) {
+			case CONST:
+				switch (constType) {
+				case INT:
+					return "CONST " + intVal;
+				case FLOAT:
+					return "CONST " + floatVal;
+				default:
+					return "CONST " + objVal;
+				}
+			case UNARY:
+			case BINARY:
+				return code + " " + operator;
+			default:
+				return code + " " + count;
+			}
+		}
+	}
+
+	/*
+	 * The stacks used while evaluating a tree. Each value is a type, along
+	 * with the slot for that type.
+	 */
+	private static final class Frame {
+		public ValueType[] types = new ValueType[0];
+
+		public long[] ints = new long[0];
+		public double[] floats = new double[0];
+		public Object[] objs = new Object[0];
+
+		/* Make sure the stacks can hold a number of values. */
+		public void ensure(final int size) {
+			if (types.length >= size) return;
+
+			types = new ValueType[size];
+
+			ints = new long[size];
+			floats = new double[size];
+			objs = new Object[size];
+		}
+	}
+
+	/* The stacks for each thread, reused between evaluations. */
+	private static final ThreadLocal<Frame> FRAMES = ThreadLocal.withInitial(Frame::new);
+
+	/* The text the expression was compiled from. */
+	private final String source;
+
+	/* The instructions for each tree. */
+	private final Instruction[][] trees;
+
+	/* The stack space needed for each tree. */
+	private final int[] stackSizes;
+
+	/* The maximum length of strings built by string operators. */
+	private final int maxStringLength;
+
+	/* Create a new compiled expression. */
+	private CompiledExpression(final String src, final Instruction[][] trs, final int[] sizes,
+			final int maxString) {
+		source = src;
+
+		trees = trs;
+		stackSizes = sizes;
+
+		maxStringLength = maxString;
+	}
+
+	/**
+	 * Compile a forest of ASTs.
+	 *
+	 * Any type errors are reported through {@link Errors}.
+	 *
+	 * @param source
+	 *            The text the forest was parsed from.
+	 *
+	 * @param forest
+	 *            The forest to compile.
+	 *
+	 * @param eng
+	 *            The engine to resolve string literals and limits against.
+	 *
+	 * @return The compiled expression, or null if the forest didn't
+	 *         type-check.
+	 */
+	public static CompiledExpression compile(final String source, final ListEx<Tree<Node>> forest,
+			final DiceLangEngine eng) {
+		final List<Instruction[]> trees = new ArrayList<>();
+		final List<Integer> sizes = new ArrayList<>();
+
+		for (final Tree<Node> ast : forest) {
+			final Compiler comp = new Compiler(eng);
+
+			if (comp.compileTree(ast) == null) {
+				return null;
+			}
+
+			trees.add(comp.code.toArray(new Instruction[0]));
+			sizes.add(comp.maxDepth);
+		}
+
+		final int[] sizeArr = new int[sizes.size()];
+
+		for (int i = 0; i < sizeArr.length; i++) {
+			sizeArr[i] = sizes.get(i);
+		}
+
+		return new CompiledExpression(source, trees.toArray(new Instruction[0][]), sizeArr,
+				eng.getMaxStringLength());
+	}
+
+	/**
+	 * Get the text this expression was compiled from.
+	 *
+	 * @return The source of this expression.
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Get the number of trees in this expression.
+	 *
+	 * @return The number of trees in this expression.
+	 */
+	public int size() {
+		return trees.length;
+	}
+
+	/**
+	 * Evaluate every tree in this expression.
+	 *
+	 * @return The result of each tree, in order.
+	 */
+	public EvaluatorResult[] evaluate() {
+		final EvaluatorResult[] res = new EvaluatorResult[trees.length];
+
+		for (int i = 0; i < trees.length; i++) {
+			res[i] = evaluate(i);
+		}
+
+		return res;
+	}
+
+	/**
+	 * Evaluate a single tree in this expression.
+	 *
+	 * Values are kept in primitive stacks while the tree is evaluated, and
+	 * only the result of the tree is turned into an {@link EvaluatorResult}.
+	 *
+	 * @param treeNo
+	 *            The index of the tree to evaluate.
+	 *
+	 * @return The result of the tree. Trees that are groups have a null
+	 *         result, the same as with {@link Evaluator}.
+	 */
+	public EvaluatorResult evaluate(final int treeNo) {
+		final Instruction[] code = trees[treeNo];
+		final int size = stackSizes[treeNo];
+
+		final Frame frame = FRAMES.get();
+
+		frame.ensure(size);
+
+		final ValueType[] types = frame.types;
+		final long[] ints = frame.ints;
+		final double[] floats = frame.floats;
+		final Object[] objs = frame.objs;
+
+		int top = 0;
+
+		for (final Instruction inst : code) {
+			switch (inst.code) {
+			case CONST:
+				types[top] = inst.constType;
+				ints[top] = inst.intVal;
+				floats[top] = inst.floatVal;
+				objs[top] = inst.objVal;
+
+				top += 1;
+				break;
+			case UNARY:
+				applyUnary(frame, top - 1);
+				break;
+			case BINARY:
+				top -= 1;
+
+				applyBinary(inst.operator, frame, top - 1, top, maxStringLength);
+				break;
+			case COERCE:
+				coerce(frame, top - inst.count, top);
+				break;
+			case GROUP:
+				top -= inst.count;
+
+				types[top++] = ValueType.GROUP;
+				break;
+			default:
+				throw new IllegalStateException("Unknown instruction " + inst);
+			}
+		}
+
+		final EvaluatorResult res = result(frame, 0);
+
+		/* Don't keep values alive through the frame. */
+		Arrays.fill(objs, 0, size, null);
+
+		return res;
+	}
+
+	/* Turn a value on the stack into a result. */
+	private static EvaluatorResult result(final Frame frame, final int idx) {
+		switch (frame.types[idx]) {
+		case INT:
+			return new IntegerEvaluatorResult(frame.ints[idx]);
+		case FLOAT:
+			return new FloatEvaluatorResult(frame.floats[idx]);
+		case STRING:
+			return new StringEvaluatorResult((String) frame.objs[idx]);
+		case DICE:
+		case DICE_LIST:
+			return new DiceEvaluatorResult((DiceExpression) frame.objs[idx]);
+		case FAILURE:
+			return (EvaluatorResult) frame.objs[idx];
+		default:
+			return null;
+		}
+	}
+
+	/* Mark a value on the stack as failed. */
+	private static void fail(final Frame frame, final int idx, final EvaluatorResult failure) {
+		frame.types[idx] = ValueType.FAILURE;
+		frame.objs[idx] = failure;
+	}
+
+	/* Put a scalar die on the stack. */
+	private static void pushDie(final Frame frame, final int idx, final Die die) {
+		frame.types[idx] = ValueType.DICE;
+		frame.objs[idx] = new ScalarDiceExpression(die);
+	}
+
+	/* Apply a type-checked unary operator. */
+	private static void applyUnary(final Frame frame, final int idx) {
+		if (frame.types[idx] == ValueType.FAILURE) return;
+
+		/* DICESCALAR and DICEFUDGE both create scalar dice, as in Evaluator. */
+		pushDie(frame, idx, new ScalarDie(frame.ints[idx]));
+	}
+
+	/* Apply a type-checked binary operator, leaving the result on the left. */
+	private static void applyBinary(final Token.Type op, final Frame frame, final int left, final int right,
+			final int maxString) {
+		final ValueType[] types = frame.types;
+		final Object[] objs = frame.objs;
+
+		if (types[left] == ValueType.FAILURE || types[right] == ValueType.FAILURE) {
+			fail(frame, left, new FailureEvaluatorResult());
+			return;
+		}
+
+		switch (op) {
+		case ADD:
+		case SUBTRACT:
+		case MULTIPLY:
+			applyMath(op, frame, left, right);
+			break;
+		case DIVIDE:
+		case IDIVIDE:
+			applyDivide(op, frame, left, right);
+			break;
+		case DICEGROUP: {
+			final boolean leftInt = types[left] == ValueType.INT;
+			final boolean rightInt = types[right] == ValueType.INT;
+
+			final SimpleDie die;
+
+			if (leftInt && rightInt) {
+				die = new SimpleDie(frame.ints[left], frame.ints[right]);
+			} else if (leftInt) {
+				die = new SimpleDie(frame.ints[left], scalar(objs[right]));
+			} else if (rightInt) {
+				die = new SimpleDie(scalar(objs[left]), frame.ints[right]);
+			} else {
+				die = new SimpleDie(scalar(objs[left]), scalar(objs[right]));
+			}
+
+			pushDie(frame, left, die);
+			break;
+		}
+		case DICECONCAT:
+			pushDie(frame, left, new CompoundDie(scalar(objs[left]), scalar(objs[right])));
+			break;
+		case DICELIST:
+			types[left] = ValueType.DICE_LIST;
+			objs[left] = new ListDiceExpression(new SimpleDieList(scalar(objs[left]), scalar(objs[right])));
+			break;
+		case STRCAT: {
+			final String res = StringOperators.concat((String) objs[left], (String) objs[right], maxString);
+
+			if (res == null) {
+				fail(frame, left, new FailureEvaluatorResult());
+			} else {
+				objs[left] = res;
+			}
+			break;
+		}
+		case STRREP: {
+			final String res = StringOperators.repeat((String) objs[left], frame.ints[right], maxString);
+
+			if (res == null) {
+				fail(frame, left, new FailureEvaluatorResult());
+			} else {
+				objs[left] = res;
+			}
+			break;
+		}
+		default:
+			throw new IllegalStateException("Unknown binary operator " + op);
+		}
+
+		objs[right] = null;
+	}
+
+	/* Apply a type-checked ADD, SUBTRACT or MULTIPLY. */
+	private static void applyMath(final Token.Type op, final Frame frame, final int left, final int right) {
+		switch (frame.types[left]) {
+		case INT: {
+			final long lval = frame.ints[left];
+			final long rval = frame.ints[right];
+
+			switch (op) {
+			case ADD:
+				frame.ints[left] = lval + rval;
+				break;
+			case SUBTRACT:
+				frame.ints[left] = lval - rval;
+				break;
+			default:
+				frame.ints[left] = lval * rval;
+				break;
+			}
+
+			break;
+		}
+		case FLOAT: {
+			final double lval = frame.floats[left];
+			final double rval = frame.floats[right];
+
+			switch (op) {
+			case ADD:
+				frame.floats[left] = lval + rval;
+				break;
+			case SUBTRACT:
+				frame.floats[left] = lval - rval;
+				break;
+			default:
+				frame.floats[left] = lval * rval;
+				break;
+			}
+
+			break;
+		}
+		default: {
+			final Die lhs = scalar(frame.objs[left]);
+			final Die rhs = scalar(frame.objs[right]);
+
+			switch (op) {
+			case ADD:
+				pushDie(frame, left, new MathDie(MathDie.MathOp.ADD, lhs, rhs));
+				break;
+			case SUBTRACT:
+				pushDie(frame, left, new MathDie(MathDie.MathOp.SUBTRACT, lhs, rhs));
+				break;
+			default:
+				pushDie(frame, left, new MathDie(MathDie.MathOp.MULTIPLY, lhs, rhs));
+				break;
+			}
+
+			break;
+		}
+		}
+	}
+
+	/* Apply a type-checked DIVIDE or IDIVIDE. */
+	private static void applyDivide(final Token.Type op, final Frame frame, final int left, final int right) {
+		if (frame.types[left] == ValueType.INT) {
+			final long lval = frame.ints[left];
+			final long rval = frame.ints[right];
+
+			if (rval == 0) {
+				Errors.inst.printError(EK_EVAL_DIVZERO);
+				fail(frame, left, new FailureEvaluatorResult(result(frame, right)));
+				return;
+			}
+
+			if (op == Token.Type.DIVIDE) {
+				frame.types[left] = ValueType.FLOAT;
+				frame.floats[left] = lval / rval;
+			} else {
+				frame.ints[left] = (int) (lval / rval);
+			}
+
+			return;
+		}
+
+		final double lval = frame.floats[left];
+		final double rval = frame.floats[right];
+
+		if (rval == 0) {
+			Errors.inst.printError(EK_EVAL_DIVZERO);
+			fail(frame, left, new FailureEvaluatorResult(result(frame, right)));
+			return;
+		}
+
+		if (op == Token.Type.DIVIDE) {
+			frame.floats[left] = lval / rval;
+		} else {
+			frame.types[left] = ValueType.INT;
+			frame.ints[left] = (int) (lval / rval);
+		}
+	}
+
+	/* Coerce a range of the stack to a common type. */
+	private static void coerce(final Frame frame, final int start, final int end) {
+		boolean toFloat = false;
+
+		for (int i = start; i < end; i++) {
+			if (frame.types[i] == ValueType.FLOAT) toFloat = true;
+		}
+
+		if (!toFloat) return;
+
+		for (int i = start; i < end; i++) {
+			if (frame.types[i] == ValueType.INT) {
+				frame.types[i] = ValueType.FLOAT;
+				frame.floats[i] = frame.ints[i];
+			}
+		}
+	}
+
+	/* Get the die out of a scalar dice expression. */
+	private static Die scalar(final Object expr) {
+		return ((ScalarDiceExpression) expr).scalar;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("CompiledExpression [");
+
+		sb.append(source);
+
+		for (int i = 0; i < trees.length; i++) {
+			sb.append("\n\tTree ").append(i + 1).append(":");
+
+			for (final Instruction inst : trees[i]) {
+				sb.append(" ").append(inst).append(";");
+			}
+		}
+
+		return sb.append("]").toString();
+	}
+
+	/*
+	 * Flattens and type-checks a single tree.
+	 *
+	 * This follows the same rules as Evaluator, but reports errors once,
+	 * when the tree is compiled.
+	 */
+	private static final class Compiler {
+		private final DiceLangEngine eng;
+
+		public final List<Instruction> code;
+
+		/* The current and largest number of values on the stack. */
+		private int depth;
+		public int maxDepth;
+
+		public Compiler(final DiceLangEngine en) {
+			eng = en;
+
+			code = new ArrayList<>();
+		}
+
+		/* Compile a tree, returning its type or null on error. */
+		public ValueType compileTree(final Tree<Node> ast) {
+			final Node head = ast.getHead();
+
+			switch (head.type) {
+			case TOKREF:
+				return compileTokenRef(head.tokenVal);
+			case RESULT:
+				return compileResult(head.resultVal);
+			case UNARYOP:
+				if (ast.getChildrenCount() != 1) {
+					Errors.inst.printError(EK_EVAL_UNUNARY, Integer.toString(ast.getChildrenCount()));
+					return null;
+				}
+
+				if (head.operatorType == Token.Type.COERCE) {
+					return compileCoerce(ast.getChild(0));
+				}
+
+				final ValueType opr = compileTree(ast.getChild(0));
+
+				if (opr == null) return null;
+
+				return compileUnary(head.operatorType, opr);
+			case BINOP: {
+				if (ast.getChildrenCount() != 2) {
+					Errors.inst.printError(EK_EVAL_INVBIN, Integer.toString(ast.getChildrenCount()),
+							ast.toString());
+					return null;
+				}
+
+				final ValueType left = compileTree(ast.getChild(0));
+				if (left == null) return null;
+
+				final ValueType right = compileTree(ast.getChild(1));
+				if (right == null) return null;
+
+				return compileBinary(head.operatorType, left, right);
+			}
+			case GROUP: {
+				final int count = ast.getChildrenCount();
+
+				for (int i = 0; i < count; i++) {
+					if (compileTree(ast.getChild(i)) == null) return null;
+				}
+
+				return emitGroup(count);
+			}
+			case ROOT:
+				/* Only the last child of a root is its value. */
+				if (ast.getChildrenCount() == 0) {
+					Errors.inst.printError(EK_EVAL_INVNODE, head.type.toString());
+					return null;
+				}
+
+				return compileTree(ast.getChild(ast.getChildrenCount() - 1));
+			default:
+				Errors.inst.printError(EK_EVAL_INVNODE, head.type.toString());
+				return null;
+			}
+		}
+
+		/*
+		 * Compile a coercion.
+		 *
+		 * The children of the target are evaluated and coerced, and then
+		 * the target is applied to them.
+		 */
+		private ValueType compileCoerce(final Tree<Node> target) {
+			final Node head = target.getHead();
+			final int count = target.getChildrenCount();
+
+			final ValueType[] types = new ValueType[count];
+
+			boolean toFloat = false;
+
+			for (int i = 0; i < count; i++) {
+				types[i] = compileTree(target.getChild(i));
+
+				if (types[i] == null) return null;
+				if (types[i] == ValueType.FLOAT) toFloat = true;
+			}
+
+			if (toFloat) {
+				for (int i = 0; i < count; i++) {
+					if (types[i] == ValueType.INT) types[i] = ValueType.FLOAT;
+				}
+			}
+
+			if (count > 1) {
+				emit(new Instruction(OpCode.COERCE, null, count, null, 0, 0, null));
+			}
+
+			switch (head.type) {
+			case TOKREF:
+				return compileTokenRef(head.tokenVal);
+			case UNARYOP:
+				if (count != 1) {
+					Errors.inst.printError(EK_EVAL_UNUNARY, Integer.toString(count));
+					return null;
+				}
+
+				/* Coercing a coercion does nothing more. */
+				if (head.operatorType == Token.Type.COERCE) return types[0];
+
+				return compileUnary(head.operatorType, types[0]);
+			case BINOP:
+				if (count != 2) {
+					Errors.inst.printError(EK_EVAL_INVBIN, Integer.toString(count), target.toString());
+					return null;
+				}
+
+				return compileBinary(head.operatorType, types[0], types[1]);
+			case GROUP:
+				return emitGroup(count);
+			default:
+				Errors.inst.printError(EK_EVAL_INVNODE, head.type.toString());
+				return null;
+			}
+		}
+
+		/* Compile a token reference. */
+		private ValueType compileTokenRef(final Token tk) {
+			switch (tk.type) {
+			case INT_LIT:
+				emit(new Instruction(OpCode.CONST, null, 0, ValueType.INT, tk.intValue, 0, null));
+				return ValueType.INT;
+			case FLOAT_LIT: {
+				final double val = ((FloatToken) tk).floatValue;
+
+				emit(new Instruction(OpCode.CONST, null, 0, ValueType.FLOAT, 0, val, null));
+				return ValueType.FLOAT;
+			}
+			case DICE_LIT: {
+				final DiceExpression val = ((DiceToken) tk).diceValue;
+				final ValueType typ = val.isList() ? ValueType.DICE_LIST : ValueType.DICE;
+
+				emit(new Instruction(OpCode.CONST, null, 0, typ, 0, 0, val));
+				return typ;
+			}
+			case STRING_LIT: {
+				/* Resolve the literal now, so the engine isn't needed later. */
+				final String val = eng.getStringLiteral((int) tk.intValue);
+
+				emit(new Instruction(OpCode.CONST, null, 0, ValueType.STRING, 0, 0, val));
+				return ValueType.STRING;
+			}
+			default:
+				Errors.inst.printError(EK_EVAL_UNTOK, tk.type.toString());
+				return null;
+			}
+		}
+
+		/* Compile a value that was folded by the optimizer. */
+		private ValueType compileResult(final EvaluatorResult res) {
+			switch (res.type) {
+			case INT:
+				emit(new Instruction(OpCode.CONST, null, 0, ValueType.INT, ((IntegerEvaluatorResult) res).value, 0,
+						null));
+				return ValueType.INT;
+			case FLOAT:
+				emit(new Instruction(OpCode.CONST, null, 0, ValueType.FLOAT, 0, ((FloatEvaluatorResult) res).floatVal,
+						null));
+				return ValueType.FLOAT;
+			case STRING:
+				emit(new Instruction(OpCode.CONST, null, 0, ValueType.STRING, 0, 0,
+						((StringEvaluatorResult) res).stringVal));
+				return ValueType.STRING;
+			case DICE: {
+				final DiceExpression val = ((DiceEvaluatorResult) res).diceVal;
+				final ValueType typ = val.isList() ? ValueType.DICE_LIST : ValueType.DICE;
+
+				emit(new Instruction(OpCode.CONST, null, 0, typ, 0, 0, val));
+				return typ;
+			}
+			default:
+				Errors.inst.printError(EK_EVAL_INVNODE, res.type.toString());
+				return null;
+			}
+		}
+
+		/* Type-check and compile a unary operator. */
+		private ValueType compileUnary(final Token.Type op, final ValueType opr) {
+			switch (op) {
+			case DICESCALAR:
+			case DICEFUDGE:
+				if (opr != ValueType.INT) {
+					Errors.inst.printError(EK_EVAL_INVDCREATE, opr.toString());
+					return null;
+				}
+
+				emit(new Instruction(OpCode.UNARY, op, 1, null, 0, 0, null));
+				return ValueType.DICE;
+			default:
+				Errors.inst.printError(EK_EVAL_INVUNARY, op.toString());
+				return null;
+			}
+		}
+
+		/* Type-check and compile a binary operator. */
+		private ValueType compileBinary(final Token.Type op, final ValueType left, final ValueType right) {
+			if (left == ValueType.GROUP || right == ValueType.GROUP) {
+				Errors.inst.printError(EK_EVAL_INVNODE, ValueType.GROUP.toString());
+				return null;
+			}
+
+			final ValueType res = checkBinary(op, left, right);
+
+			if (res != null) {
+				emit(new Instruction(OpCode.BINARY, op, 2, null, 0, 0, null));
+			}
+
+			return res;
+		}
+
+		/* Get the result type of a binary operator. */
+		private static ValueType checkBinary(final Token.Type op, final ValueType left, final ValueType right) {
+			switch (op) {
+			case ADD:
+			case SUBTRACT:
+			case MULTIPLY:
+			case DIVIDE:
+			case IDIVIDE: {
+				if (left == ValueType.STRING || right == ValueType.STRING) {
+					Errors.inst.printError(EK_EVAL_STRINGMATH);
+					return null;
+				}
+
+				if (isDice(left) != isDice(right) || (!isDice(left) && left != right)) {
+					Errors.inst.printError(EK_EVAL_MISMATH);
+					return null;
+				}
+
+				if (isDice(left)) {
+					if (op == Token.Type.DIVIDE || op == Token.Type.IDIVIDE) {
+						Errors.inst.printError(EK_EVAL_DIVDICE);
+						return null;
+					}
+
+					if (left == ValueType.DICE_LIST || right == ValueType.DICE_LIST) {
+						Errors.inst.printError(EK_EVAL_INVDICE, ValueType.DICE_LIST.toString());
+						return null;
+					}
+
+					return ValueType.DICE;
+				}
+
+				if (op == Token.Type.DIVIDE) return ValueType.FLOAT;
+				if (op == Token.Type.IDIVIDE) return ValueType.INT;
+
+				return left;
+			}
+			case DICEGROUP:
+				if (left != ValueType.DICE && left != ValueType.INT) {
+					Errors.inst.printError(EK_EVAL_INVDGROUP, left.toString());
+					return null;
+				}
+
+				if (right != ValueType.DICE && right != ValueType.INT) {
+					Errors.inst.printError(EK_EVAL_INVDGROUP, right.toString());
+					return null;
+				}
+
+				return ValueType.DICE;
+			case DICECONCAT:
+			case DICELIST:
+				if (left != ValueType.DICE) {
+					Errors.inst.printError(EK_EVAL_INVDICE, left.toString());
+					return null;
+				}
+
+				if (right != ValueType.DICE) {
+					Errors.inst.printError(EK_EVAL_INVDICE, right.toString());
+					return null;
+				}
+
+				return op == Token.Type.DICELIST ? ValueType.DICE_LIST : ValueType.DICE;
+			case STRCAT:
+				if (left != ValueType.STRING) {
+					Errors.inst.printError(EK_EVAL_INVSTRING, left.toString());
+					return null;
+				}
+
+				if (right != ValueType.STRING) {
+					Errors.inst.printError(EK_EVAL_UNSTRING, right.toString());
+					return null;
+				}
+
+				return ValueType.STRING;
+			case STRREP:
+				if (left != ValueType.STRING) {
+					Errors.inst.printError(EK_EVAL_INVSTRING, left.toString());
+					return null;
+				}
+
+				if (right != ValueType.INT) {
+					Errors.inst.printError(EK_EVAL_INVSTRING, right.toString());
+					return null;
+				}
+
+				return ValueType.STRING;
+			default:
+				Errors.inst.printError(EK_EVAL_UNBIN, op.toString());
+				return null;
+			}
+		}
+
+		private static boolean isDice(final ValueType typ) {
+			return typ == ValueType.DICE || typ == ValueType.DICE_LIST;
+		}
+
+		/* Compile the end of a group. */
+		private ValueType emitGroup(final int count) {
+			emit(new Instruction(OpCode.GROUP, null, count, null, 0, 0, null));
+
+			return ValueType.GROUP;
+		}
+
+		/* Add an instruction, tracking the stack depth. */
+		private void emit(final Instruction inst) {
+			switch (inst.code) {
+			case CONST:
+				depth += 1;
+				break;
+			case BINARY:
+				depth -= 1;
+				break;
+			case GROUP:
+				depth -= inst.count - 1;
+				break;
+			default:
+				break;
+			}
+
+			/* Groups of nothing still leave a value. */
+			maxDepth = Math.max(maxDepth, Math.max(depth, 1));
+
+			code.add(inst);
+		}
+	}
+}
@@ -51,6 +51,9 @@ public class Evaluator {
 
 		public boolean isDebug;
 
+		/* The maximum length of strings built by string operators. */
+		public int maxStringLength;
+
 		public Context() {
 			/* Empty block. */
 		}
@@ -81,6 +84,7 @@ public class Evaluator {
 		final Context ctx = new Context();
 
 		ctx.isDebug = false;
+		ctx.maxStringLength = eng.getMaxStringLength();
 		ctx.thunk = itr -> {
 			/*
 			 * Deliberately finish the iterator, but ignore results. It's only for stepwise
@@ -109,6 +113,7 @@ public class Evaluator {
 		final Context ctx = new Context();
 
 		ctx.isDebug = true;
+		ctx.maxStringLength = eng.getMaxStringLength();
 
 		return new TopDownTransformIterator<>(this::pickEvaluationType, (node, thnk) -> {
 			ctx.thunk = thnk;
@@ -339,9 +344,13 @@ public class Evaluator {
 			}
 
 			final String strung = ((StringEvaluatorResult) right).stringVal;
-			final EvaluatorResult cres = new StringEvaluatorResult(strang + strung);
+			final String res = StringOperators.concat(strang, strung, ctx.maxStringLength);
+
+			if (res == null) {
+				return new SimpleTree<>(Node.FAIL());
+			}
 
-			return new SimpleTree<>(new Node(Node.Type.RESULT, cres));
+			return new SimpleTree<>(new Node(Node.Type.RESULT, new StringEvaluatorResult(res)));
 		}
 		case STRREP: {
 			if (right.type != INT) {
@@ -349,11 +358,11 @@ public class Evaluator {
 				return new SimpleTree<>(Node.FAIL(right));
 			}
 
-			String res = strang;
 			final long count = ((IntegerEvaluatorResult) right).value;
+			final String res = StringOperators.repeat(strang, count, ctx.maxStringLength);
 
-			for (long i = 1; i < count; i++) {
-				res += strang;
+			if (res == null) {
+				return new SimpleTree<>(Node.FAIL());
 			}
 
 			return new SimpleTree<>(new Node(Node.Type.RESULT, new StringEvaluatorResult(res)));
@@ -410,6 +419,8 @@ public class Evaluator {
 				Errors.inst.printError(EK_EVAL_INVDGROUP, left.type.toString());
 				return new SimpleTree<>(Node.FAIL(left));
 			}
+
+			break;
 		}
 		case DICECONCAT: {
 			if (left.type != DICE || ((DiceEvaluatorResult) left).diceVal.isList()) {
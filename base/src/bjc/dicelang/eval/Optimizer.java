@@ -0,0 +1,480 @@
+package bjc.dicelang.eval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bjc.dicelang.DiceLangEngine;
+import bjc.dicelang.Node;
+import bjc.dicelang.dice.CompoundDie;
+import bjc.dicelang.dice.DiceExpression;
+import bjc.dicelang.dice.Die;
+import bjc.dicelang.dice.MathDie;
+import bjc.dicelang.dice.ScalarDiceExpression;
+import bjc.dicelang.dice.ScalarDie;
+import bjc.dicelang.dice.SimpleDie;
+import bjc.dicelang.dice.SimpleDieList;
+import bjc.dicelang.tokens.DiceToken;
+import bjc.dicelang.tokens.FloatToken;
+import bjc.dicelang.tokens.Token;
+import bjc.data.SimpleTree;
+import bjc.data.Tree;
+import bjc.funcdata.FunctionalList;
+import bjc.funcdata.ListEx;
+
+/**
+ * Folds the constant parts of DiceLang ASTs before they are evaluated.
+ *
+ * Operators whose operands are all literals are replaced with the result of
+ * applying them, and dice that always roll the same thing are replaced with
+ * scalars. Chains of added dice have their constant parts summed, so
+ * 1d6 + 2 + 3 rolls as 1d6 + 5.
+ *
+ * Nothing that would fail to evaluate is folded, so errors are still
+ * reported when the tree is evaluated.
+ *
+ * @author Ben Culkin
+ */
+public class Optimizer {
+	/*
+	 * The longest string that is folded into a constant. Longer strings are
+	 * left to be built at evaluation, so compiling stays cheap.
+	 */
+	private static final int MAX_FOLDED_STRING = 4096;
+
+	/* The engine to resolve string literals against. */
+	private final DiceLangEngine eng;
+
+	/**
+	 * Create a new optimizer.
+	 *
+	 * @param en
+	 *            The engine to resolve string literals against.
+	 */
+	public Optimizer(final DiceLangEngine en) {
+		eng = en;
+	}
+
+	/**
+	 * Optimize a forest of ASTs.
+	 *
+	 * @param forest
+	 *            The forest to optimize. It isn't modified.
+	 *
+	 * @return The optimized forest.
+	 */
+	public ListEx<Tree<Node>> optimize(final ListEx<Tree<Node>> forest) {
+		final ListEx<Tree<Node>> res = new FunctionalList<>();
+
+		for (final Tree<Node> ast : forest) {
+			res.add(optimize(ast));
+		}
+
+		return res;
+	}
+
+	/**
+	 * Optimize an AST.
+	 *
+	 * @param ast
+	 *            The AST to optimize. It isn't modified.
+	 *
+	 * @return The optimized AST.
+	 */
+	public Tree<Node> optimize(final Tree<Node> ast) {
+		final Node head = ast.getHead();
+
+		switch (head.type) {
+		case TOKREF: {
+			/* Dice literals like 1d1 can be scalars. */
+			if (head.tokenVal.type != Token.Type.DICE_LIT) return ast;
+
+			final DiceExpression expr = ((DiceToken) head.tokenVal).diceValue;
+
+			if (expr.isList() || !((ScalarDiceExpression) expr).scalar.canOptimize()) return ast;
+
+			return result(new DiceEvaluatorResult(simplify(((ScalarDiceExpression) expr).scalar)));
+		}
+		case UNARYOP:
+			if (ast.getChildrenCount() != 1) return ast;
+
+			if (head.operatorType == Token.Type.COERCE) return optimizeCoerce(ast);
+
+			return optimizeUnary(ast);
+		case BINOP:
+			if (ast.getChildrenCount() != 2) return ast;
+
+			return optimizeBinary(ast);
+		default:
+			return withChildren(head, ast);
+		}
+	}
+
+	/* Optimize a unary operator. */
+	private Tree<Node> optimizeUnary(final Tree<Node> ast) {
+		final Tree<Node> child = optimize(ast.getChild(0));
+
+		final EvaluatorResult opr = constant(child);
+
+		if (opr != null && opr.type == EvaluatorResult.Type.INT) {
+			switch (ast.getHead().operatorType) {
+			case DICESCALAR:
+			case DICEFUDGE:
+				/* Both create scalar dice, as in Evaluator. */
+				return result(new DiceEvaluatorResult(new ScalarDie(((IntegerEvaluatorResult) opr).value)));
+			default:
+				break;
+			}
+		}
+
+		return rebuilt(ast.getHead(), child);
+	}
+
+	/* Optimize a binary operator. */
+	private Tree<Node> optimizeBinary(final Tree<Node> ast) {
+		final Tree<Node> left = optimize(ast.getChild(0));
+		final Tree<Node> right = optimize(ast.getChild(1));
+
+		final EvaluatorResult res = fold(ast.getHead().operatorType, constant(left), constant(right));
+
+		if (res != null) return result(res);
+
+		return rebuilt(ast.getHead(), left, right);
+	}
+
+	/*
+	 * Optimize a coercion.
+	 *
+	 * The operands of the target are optimized, and if they are all
+	 * constants, coerced and folded with the target.
+	 */
+	private Tree<Node> optimizeCoerce(final Tree<Node> ast) {
+		final Tree<Node> target = ast.getChild(0);
+		final Node head = target.getHead();
+
+		final int count = target.getChildrenCount();
+
+		final List<Tree<Node>> children = new ArrayList<>(count);
+		final EvaluatorResult[] vals = new EvaluatorResult[count];
+
+		boolean allConstant = true;
+		boolean toFloat = false;
+
+		for (int i = 0; i < count; i++) {
+			final Tree<Node> child = optimize(target.getChild(i));
+
+			children.add(child);
+
+			vals[i] = constant(child);
+
+			if (vals[i] == null) {
+				allConstant = false;
+			} else if (vals[i].type == EvaluatorResult.Type.FLOAT) {
+				toFloat = true;
+			}
+		}
+
+		if (allConstant && head.type == Node.Type.BINOP && count == 2) {
+			if (toFloat) {
+				for (int i = 0; i < count; i++) {
+					if (vals[i].type == EvaluatorResult.Type.INT) {
+						vals[i] = new FloatEvaluatorResult(((IntegerEvaluatorResult) vals[i]).value);
+					}
+				}
+			}
+
+			final EvaluatorResult res = fold(head.operatorType, vals[0], vals[1]);
+
+			if (res != null) return result(res);
+		}
+
+		final Tree<Node> newTarget = new SimpleTree<>(head);
+
+		for (final Tree<Node> child : children) {
+			newTarget.addChild(child);
+		}
+
+		return rebuilt(ast.getHead(), newTarget);
+	}
+
+	/*
+	 * Fold a binary operator over constants.
+	 *
+	 * Returns null if either operand isn't a constant, or if the operator
+	 * would fail; those are left for the evaluator.
+	 */
+	private EvaluatorResult fold(final Token.Type op, final EvaluatorResult left,
+			final EvaluatorResult right) {
+		if (left == null || right == null) return null;
+
+		final EvaluatorResult.Type ltype = left.type;
+		final EvaluatorResult.Type rtype = right.type;
+
+		switch (op) {
+		case ADD:
+		case SUBTRACT:
+		case MULTIPLY:
+			if (ltype == EvaluatorResult.Type.INT && rtype == EvaluatorResult.Type.INT) {
+				final long lval = ((IntegerEvaluatorResult) left).value;
+				final long rval = ((IntegerEvaluatorResult) right).value;
+
+				switch (op) {
+				case ADD:
+					return new IntegerEvaluatorResult(lval + rval);
+				case SUBTRACT:
+					return new IntegerEvaluatorResult(lval - rval);
+				default:
+					return new IntegerEvaluatorResult(lval * rval);
+				}
+			} else if (ltype == EvaluatorResult.Type.FLOAT && rtype == EvaluatorResult.Type.FLOAT) {
+				final double lval = ((FloatEvaluatorResult) left).floatVal;
+				final double rval = ((FloatEvaluatorResult) right).floatVal;
+
+				switch (op) {
+				case ADD:
+					return new FloatEvaluatorResult(lval + rval);
+				case SUBTRACT:
+					return new FloatEvaluatorResult(lval - rval);
+				default:
+					return new FloatEvaluatorResult(lval * rval);
+				}
+			} else if (isScalarDice(left) && isScalarDice(right)) {
+				final Die lhs = scalar(left);
+				final Die rhs = scalar(right);
+
+				switch (op) {
+				case ADD:
+					return dice(new MathDie(MathDie.MathOp.ADD, lhs, rhs));
+				case SUBTRACT:
+					return dice(new MathDie(MathDie.MathOp.SUBTRACT, lhs, rhs));
+				default:
+					return dice(new MathDie(MathDie.MathOp.MULTIPLY, lhs, rhs));
+				}
+			}
+
+			return null;
+		case DIVIDE:
+		case IDIVIDE:
+			if (ltype == EvaluatorResult.Type.INT && rtype == EvaluatorResult.Type.INT) {
+				final long lval = ((IntegerEvaluatorResult) left).value;
+				final long rval = ((IntegerEvaluatorResult) right).value;
+
+				if (rval == 0) return null;
+
+				if (op == Token.Type.DIVIDE) return new FloatEvaluatorResult(lval / rval);
+
+				return new IntegerEvaluatorResult((int) (lval / rval));
+			} else if (ltype == EvaluatorResult.Type.FLOAT && rtype == EvaluatorResult.Type.FLOAT) {
+				final double lval = ((FloatEvaluatorResult) left).floatVal;
+				final double rval = ((FloatEvaluatorResult) right).floatVal;
+
+				if (rval == 0) return null;
+
+				if (op == Token.Type.DIVIDE) return new FloatEvaluatorResult(lval / rval);
+
+				return new IntegerEvaluatorResult((int) (lval / rval));
+			}
+
+			return null;
+		case DICEGROUP: {
+			final boolean lint = ltype == EvaluatorResult.Type.INT;
+			final boolean rint = rtype == EvaluatorResult.Type.INT;
+
+			if ((!lint && !isScalarDice(left)) || (!rint && !isScalarDice(right))) return null;
+
+			final Die lhs = lint ? new ScalarDie(((IntegerEvaluatorResult) left).value) : scalar(left);
+			final Die rhs = rint ? new ScalarDie(((IntegerEvaluatorResult) right).value) : scalar(right);
+
+			return dice(new SimpleDie(lhs, rhs));
+		}
+		case DICECONCAT:
+			if (!isScalarDice(left) || !isScalarDice(right)) return null;
+
+			return dice(new CompoundDie(scalar(left), scalar(right)));
+		case DICELIST:
+			if (!isScalarDice(left) || !isScalarDice(right)) return null;
+
+			return new DiceEvaluatorResult(new SimpleDieList(scalar(left), scalar(right)));
+		case STRCAT: {
+			if (ltype != EvaluatorResult.Type.STRING || rtype != EvaluatorResult.Type.STRING) return null;
+
+			final String strang = ((StringEvaluatorResult) left).stringVal;
+			final String strung = ((StringEvaluatorResult) right).stringVal;
+
+			/* Strings over the limit are left to fail when evaluated. */
+			if ((long) strang.length() + strung.length() > foldLimit()) return null;
+
+			return new StringEvaluatorResult(strang.concat(strung));
+		}
+		case STRREP: {
+			if (ltype != EvaluatorResult.Type.STRING || rtype != EvaluatorResult.Type.INT) return null;
+
+			final String strang = ((StringEvaluatorResult) left).stringVal;
+			final long count = ((IntegerEvaluatorResult) right).value;
+
+			if (StringOperators.repeatLength(strang, count) > foldLimit()) return null;
+
+			return new StringEvaluatorResult(StringOperators.repeat(strang, count, foldLimit()));
+		}
+		default:
+			return null;
+		}
+	}
+
+	/* The longest string that can be folded into a constant. */
+	private int foldLimit() {
+		return Math.min(MAX_FOLDED_STRING, eng.getMaxStringLength());
+	}
+
+	/**
+	 * Simplify a die, so that rolling it does as little work as possible.
+	 *
+	 * Dice that always roll the same thing become scalars, and the scalars
+	 * in a chain of additions are summed into one.
+	 *
+	 * @param die
+	 *            The die to simplify.
+	 *
+	 * @return The simplified die, which rolls the same as the original.
+	 */
+	public static Die simplify(final Die die) {
+		if (die instanceof ScalarDie) return die;
+
+		if (die.canOptimize()) return new ScalarDie(die.optimize());
+
+		if (!(die instanceof MathDie)) return die;
+
+		final MathDie.MathOp op = ((MathDie) die).getOperator();
+
+		if (op != MathDie.MathOp.ADD && op != MathDie.MathOp.SUBTRACT) return die;
+
+		/* Only rebuild the chain if it has more than one constant. */
+		if (countConstants(die) < 2) return die;
+
+		final List<Die> terms = new ArrayList<>();
+		final long constant = collectSum(die, terms);
+
+		Die res = terms.get(0);
+
+		for (int i = 1; i < terms.size(); i++) {
+			res = new MathDie(MathDie.MathOp.ADD, res, terms.get(i));
+		}
+
+		if (constant != 0) res = new MathDie(MathDie.MathOp.ADD, res, new ScalarDie(constant));
+
+		return res;
+	}
+
+	/* Split a chain of additions into its varying terms and its constant. */
+	private static long collectSum(final Die die, final List<Die> terms) {
+		if (die.canOptimize()) return die.optimize();
+
+		if (die instanceof MathDie) {
+			final MathDie math = (MathDie) die;
+
+			switch (math.getOperator()) {
+			case ADD:
+				return collectSum(math.getLeft(), terms) + collectSum(math.getRight(), terms);
+			case SUBTRACT:
+				if (math.getRight().canOptimize()) {
+					return collectSum(math.getLeft(), terms) - math.getRight().optimize();
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		terms.add(die);
+
+		return 0;
+	}
+
+	/* Count the constants in a chain of additions. */
+	private static int countConstants(final Die die) {
+		if (die.canOptimize()) return 1;
+
+		if (die instanceof MathDie) {
+			final MathDie math = (MathDie) die;
+
+			switch (math.getOperator()) {
+			case ADD:
+				return countConstants(math.getLeft()) + countConstants(math.getRight());
+			case SUBTRACT:
+				if (math.getRight().canOptimize()) return countConstants(math.getLeft()) + 1;
+				break;
+			default:
+				break;
+			}
+		}
+
+		return 0;
+	}
+
+	/* Get the value of a constant tree, or null if it isn't one. */
+	private EvaluatorResult constant(final Tree<Node> ast) {
+		final Node head = ast.getHead();
+
+		if (head.type == Node.Type.RESULT) {
+			return head.resultVal.type == EvaluatorResult.Type.FAILURE ? null : head.resultVal;
+		}
+
+		if (head.type != Node.Type.TOKREF) return null;
+
+		final Token tk = head.tokenVal;
+
+		switch (tk.type) {
+		case INT_LIT:
+			return new IntegerEvaluatorResult(tk.intValue);
+		case FLOAT_LIT:
+			return new FloatEvaluatorResult(((FloatToken) tk).floatValue);
+		case DICE_LIT:
+			return new DiceEvaluatorResult(((DiceToken) tk).diceValue);
+		case STRING_LIT: {
+			final String val = eng.getStringLiteral((int) tk.intValue);
+
+			return val == null ? null : new StringEvaluatorResult(val);
+		}
+		default:
+			return null;
+		}
+	}
+
+	private static boolean isScalarDice(final EvaluatorResult res) {
+		return res.type == EvaluatorResult.Type.DICE && !((DiceEvaluatorResult) res).isList();
+	}
+
+	private static Die scalar(final EvaluatorResult res) {
+		return ((ScalarDiceExpression) ((DiceEvaluatorResult) res).diceVal).scalar;
+	}
+
+	private static EvaluatorResult dice(final Die die) {
+		return new DiceEvaluatorResult(simplify(die));
+	}
+
+	private static Tree<Node> result(final EvaluatorResult res) {
+		return new SimpleTree<>(new Node(Node.Type.RESULT, res));
+	}
+
+	/* Rebuild a node with already optimized children. */
+	@SafeVarargs
+	private static Tree<Node> rebuilt(final Node head, final Tree<Node>... children) {
+		final Tree<Node> res = new SimpleTree<>(head);
+
+		for (final Tree<Node> child : children) {
+			res.addChild(child);
+		}
+
+		return res;
+	}
+
+	/* Rebuild a node, optimizing its children. */
+	private Tree<Node> withChildren(final Node head, final Tree<Node> ast) {
+		final Tree<Node> res = new SimpleTree<>(head);
+
+		for (int i = 0; i < ast.getChildrenCount(); i++) {
+			res.addChild(optimize(ast.getChild(i)));
+		}
+
+		return res;
+	}
+}
@@ -0,0 +1,103 @@
+package bjc.dicelang.eval;
+
+import bjc.dicelang.Errors;
+
+import static bjc.dicelang.Errors.ErrorKey.*;
+
+/**
+ * The string operators, shared between the different ways of evaluating.
+ *
+ * Both operators check the length of their result before they build it, so
+ * a large result fails without allocating anything.
+ *
+ * @author Ben Culkin
+ */
+final class StringOperators {
+	/* Not instantiable. */
+	private StringOperators() {
+		throw new AssertionError("StringOperators is not instantiable");
+	}
+
+	/**
+	 * Get the length of repeating a string.
+	 *
+	 * A count of one or less gives the string back once.
+	 *
+	 * @param strang
+	 *            The string to repeat.
+	 *
+	 * @param count
+	 *            The number of times to repeat it.
+	 *
+	 * @return The length of the repeated string, or Long.MAX_VALUE if it
+	 *         doesn't fit in a long.
+	 */
+	static long repeatLength(final String strang, final long count) {
+		if (count <= 1) return strang.length();
+
+		if (strang.isEmpty()) return 0;
+
+		if (count > Long.MAX_VALUE / strang.length()) return Long.MAX_VALUE;
+
+		return count * strang.length();
+	}
+
+	/**
+	 * Concatenate two strings.
+	 *
+	 * @param left
+	 *            The first string.
+	 *
+	 * @param right
+	 *            The second string.
+	 *
+	 * @param limit
+	 *            The maximum length of the result.
+	 *
+	 * @return The concatenated string, or null if it would be longer than
+	 *         the limit.
+	 */
+	static String concat(final String left, final String right, final int limit) {
+		final long len = (long) left.length() + right.length();
+
+		if (len > limit) {
+			Errors.inst.printError(EK_EVAL_STRLEN, Long.toString(len), Integer.toString(limit));
+			return null;
+		}
+
+		return left.concat(right);
+	}
+
+	/**
+	 * Repeat a string.
+	 *
+	 * A count of one or less gives the string back once.
+	 *
+	 * @param strang
+	 *            The string to repeat.
+	 *
+	 * @param count
+	 *            The number of times to repeat it.
+	 *
+	 * @param limit
+	 *            The maximum length of the result.
+	 *
+	 * @return The repeated string, or null if it would be longer than the
+	 *         limit.
+	 */
+	static String repeat(final String strang, final long count, final int limit) {
+		final long len = repeatLength(strang, count);
+
+		if (len > limit) {
+			final String lenStr = len == Long.MAX_VALUE ? "more than " + Long.MAX_VALUE : Long.toString(len);
+
+			Errors.inst.printError(EK_EVAL_STRLEN, lenStr, Integer.toString(limit));
+			return null;
+		}
+
+		if (count <= 1 || strang.isEmpty()) return strang;
+
+		/* String.repeat sizes its buffer once, instead of growing it. */
+		return strang.repeat((int) count);
+	}
+}
@@ -0,0 +1,78 @@
+package bjc.dicelang.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bjc.dicelang.DiceLangEngine;
+import bjc.dicelang.Node;
+import bjc.dicelang.Parser;
+import bjc.dicelang.eval.CompiledExpression;
+import bjc.data.Tree;
+import bjc.funcdata.FunctionalList;
+import bjc.funcdata.ListEx;
+
+/**
+ * Benchmarks evaluation of compiled corpus entries, to compare with
+ * {@link PipelineBenchmark#evaluate(Blackhole)}.
+ *
+ * @author Ben Culkin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledBenchmark {
+	/** The corpus entry to run. */
+	@Param({ "simple", "dice", "nested", "defines", "strings", "dicelists" })
+	public String entry;
+
+	/* The compiled entry. */
+	private CompiledExpression compiled;
+
+	/** Compile the entry, the same way the pipeline benchmark parses it. */
+	@Setup
+	public void setup() {
+		final DiceLangEngine eng = Corpus.engine();
+
+		final String command = Corpus.command(entry);
+
+		final ListEx<Tree<Node>> forest = new FunctionalList<>();
+
+		if (!Parser.parseTokens(eng.shuntTokens(eng.lexTokens(eng.preprocessCommand(command))), forest)) {
+			throw new IllegalStateException("Corpus entry " + entry + " didn't parse");
+		}
+
+		compiled = CompiledExpression.compile(command, forest, eng);
+
+		if (compiled == null) {
+			throw new IllegalStateException("Corpus entry " + entry + " didn't compile");
+		}
+	}
+
+	/**
+	 * Benchmark evaluation of the compiled forest.
+	 *
+	 * @param bh
+	 *            The blackhole to sink results into.
+	 */
+	@Benchmark
+	public void evaluateCompiled(final Blackhole bh) {
+		for (int i = 0; i < compiled.size(); i++) {
+			bh.consume(compiled.evaluate(i));
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package bjc.dicelang.bench;
+
+import java.util.Arrays;
+
+import bjc.dicelang.DiceLangEngine;
+import bjc.dicelang.Define;
+
+/**
+ * The DiceLang commands the pipeline benchmarks are run against.
+ *
+ * Each entry is meant to stress a different part of the pipeline. Every
+ * entry has to evaluate without errors, so constants added to dice are
+ * written as scalar dice.
+ *
+ * @author Ben Culkin
+ */
+public final class Corpus {
+	private Corpus() {
+		/* Only static methods. */
+	}
+
+	/**
+	 * Get the command for a corpus entry.
+	 *
+	 * @param name
+	 *            The name of the entry.
+	 *
+	 * @return The command for that entry.
+	 */
+	public static String command(final String name) {
+		switch (name) {
+		case "simple":
+			return "1 + 2 * 3";
+		case "dice":
+			return "3d6 + 2sd";
+		case "nested":
+			return "( ( 1 + 2 ) * ( 3 - 4 ) ) // ( ( 5 + 6 ) * 7 )";
+		case "defines":
+			return "attack + damage";
+		case "strings":
+			return "\"hello\" .+. \" world\" .+. \"!\" .*. 3";
+		case "dicelists":
+			return "3d6 dl 2d8";
+		default:
+			throw new IllegalArgumentException("Unknown corpus entry " + name);
+		}
+	}
+
+	/**
+	 * Create an engine set up to run the corpus.
+	 *
+	 * Engines start with debug output off, so printing doesn't swamp the
+	 * results.
+	 *
+	 * @return An engine for running the corpus.
+	 */
+	public static DiceLangEngine engine() {
+		final DiceLangEngine eng = new DiceLangEngine();
+
+		eng.addLineDefine(new Define(0, false, false, false, null, "attack", Arrays.asList("1d20 + 5sd")));
+		eng.addLineDefine(new Define(0, false, false, false, null, "damage", Arrays.asList("2d6 + 3sd")));
+
+		return eng;
+	}
+}
@@ -0,0 +1,357 @@
+package bjc.dicelang.bench;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bjc.dicelang.dicev2.DieMods;
+import bjc.dicelang.dicev2.Dies;
+import bjc.dicelang.neodice.DiePool;
+import bjc.dicelang.neodice.IntDie;
+import bjc.dicelang.neodice.IntDiePool;
+import bjc.dicelang.rng.RandomProvider;
+
+/**
+ * Rolls the same dice expressions with each of the three dice models.
+ *
+ * Every expression rolls ten ten-sided dice, and then does one of the
+ * following:
+ * <ul>
+ * <li>nds: sums them.</li>
+ * <li>keephigh: sums the highest three.</li>
+ * <li>explode: rerolls and adds any tens, then sums them.</li>
+ * <li>compound: adds rerolls of tens onto the die that rolled them, then sums
+ * them.</li>
+ * <li>success: counts the dice that rolled seven or higher.</li>
+ * </ul>
+ *
+ * neodice is rolled both through the generic API, with a plain
+ * Die&lt;Integer&gt;, and through the integer dice.
+ *
+ * Where a model doesn't have an operation, it is done by hand on the rolled
+ * values, the same way a user of that model would have to.
+ *
+ * Every model gets its random numbers from the same kind of provider: the
+ * default thread-local one, per-thread split generators, or a single
+ * {@link Random} shared by every thread. {@link Contended} runs the same
+ * benchmarks with several threads, to show what sharing costs. Time per operation is time per
+ * roll of the expression; run with '-prof gc' to get bytes per roll
+ * ('gc.alloc.rate.norm').
+ *
+ * @author Ben Culkin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class DiceModelBenchmark {
+	/**
+	 * Runs the dice model benchmarks with several threads rolling the same
+	 * dice.
+	 *
+	 * @author Ben Culkin
+	 */
+	@Threads(4)
+	public static class Contended extends DiceModelBenchmark {
+		/* Everything is inherited. */
+	}
+
+	/* The number of dice, and the number of sides on each. */
+	private static final int DICE = 10;
+	private static final int SIDES = 10;
+
+	/* The number of dice kept by keephigh. */
+	private static final int KEEP = 3;
+
+	/* The target for success counting. */
+	private static final int TARGET = 7;
+
+	/** The expression to roll. */
+	@Param({ "nds", "keephigh", "explode", "compound", "success" })
+	public String expr;
+
+	/** Where to get random numbers from. */
+	@Param({ "threadLocal", "splittable", "lxm", "shared" })
+	public String random;
+
+	/* The expression for each model. */
+	private bjc.dicelang.dice.Die oldDie;
+	private bjc.dicelang.dice.DieList oldList;
+
+	private bjc.dicelang.dicev2.Die v2Die;
+
+	private RandomProvider neoRng;
+	private DiePool<Integer> neoPool;
+	private IntDiePool intPool;
+
+	/** Build the expression for each model. */
+	@Setup
+	public void setup() {
+		final Predicate<Long> isMax = (val) -> val == SIDES;
+		final LongPredicate isMaxV2 = (val) -> val == SIDES;
+
+		/*
+		 * Die.polyhedral gives an integer die, whose pools roll unboxed, so
+		 * the generic die has to be a plain one.
+		 */
+		final bjc.dicelang.neodice.Die<Integer> neoDie = (rng) -> rng.nextInt(SIDES) + 1;
+		final IntDie intDie = IntDie.polyhedral(SIDES);
+
+		oldDie = null;
+		oldList = null;
+
+		final RandomProvider provider = provider(random);
+
+		bjc.dicelang.dice.DiceBox.setRandomProvider(provider);
+
+		final bjc.dicelang.dicev2.Die v2Dice = Dies.polyhedral(DICE, SIDES);
+
+		v2Dice.setRandom(provider);
+
+		neoRng = provider;
+
+		switch (expr) {
+		case "nds":
+			oldDie = new bjc.dicelang.dice.SimpleDie(DICE, SIDES);
+
+			v2Die = DieMods.sum(v2Dice);
+
+			neoPool = neoDie.times(DICE);
+
+			intPool = intDie.times(DICE);
+			break;
+		case "keephigh":
+			oldList = new bjc.dicelang.dice.SimpleDieList(new bjc.dicelang.dice.ScalarDie(DICE),
+					new bjc.dicelang.dice.ScalarDie(SIDES));
+
+			v2Die = DieMods.sum(DieMods.take(KEEP, DieMods.descending(v2Dice)));
+
+			neoPool = neoDie.times(DICE).keepHighest(Comparator.naturalOrder(), KEEP);
+
+			intPool = intDie.times(DICE).keepHighest(KEEP);
+			break;
+		case "explode":
+			/* The old model explodes a single die, so roll it once per die. */
+			oldList = new bjc.dicelang.dice.ExplodingDice(new bjc.dicelang.dice.SimpleDie(1, SIDES), isMax);
+
+			v2Die = DieMods.sum(DieMods.explode(isMaxV2, v2Dice));
+
+			neoPool = DiePool.expanding(neoDie, (die, rng) -> {
+				final Stream.Builder<Integer> res = Stream.builder();
+
+				for (int i = 0; i < DICE; i++) {
+					int val;
+
+					do {
+						val = die.roll(rng);
+
+						res.add(val);
+					} while (val == SIDES);
+				}
+
+				return res.build();
+			});
+
+			intPool = (rng) -> {
+				final IntStream.Builder res = IntStream.builder();
+
+				for (int i = 0; i < DICE; i++) {
+					int val;
+
+					do {
+						val = intDie.rollInt(rng);
+
+						res.add(val);
+					} while (val == SIDES);
+				}
+
+				return res.build().toArray();
+			};
+			break;
+		case "compound":
+			/* The old model compounds a single die, so roll it once per die. */
+			oldDie = new bjc.dicelang.dice.CompoundingDie(new bjc.dicelang.dice.SimpleDie(1, SIDES), isMax);
+
+			v2Die = DieMods.sum(DieMods.compound(isMaxV2, v2Dice));
+
+			final bjc.dicelang.neodice.Die<Integer> neoCompound = (rng) -> {
+				int total = 0;
+				int val;
+
+				do {
+					val = neoDie.roll(rng);
+
+					total += val;
+				} while (val == SIDES);
+
+				return total;
+			};
+
+			neoPool = neoCompound.times(DICE);
+
+			final IntDie intCompound = (rng) -> {
+				int total = 0;
+				int val;
+
+				do {
+					val = intDie.rollInt(rng);
+
+					total += val;
+				} while (val == SIDES);
+
+				return total;
+			};
+
+			intPool = intCompound.times(DICE);
+			break;
+		case "success":
+			oldList = new bjc.dicelang.dice.SimpleDieList(new bjc.dicelang.dice.ScalarDie(DICE),
+					new bjc.dicelang.dice.ScalarDie(SIDES));
+
+			v2Die = DieMods.counted((val) -> val >= TARGET, v2Dice);
+
+			neoPool = neoDie.times(DICE).filtered((val) -> val >= TARGET);
+
+			intPool = intDie.times(DICE).filteredInt((val) -> val >= TARGET);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown expression " + expr);
+		}
+	}
+
+	/* Get the random provider with a given name. */
+	private static RandomProvider provider(final String name) {
+		switch (name) {
+		case "threadLocal":
+			return RandomProvider.threadLocal();
+		case "splittable":
+			return RandomProvider.splittable();
+		case "lxm":
+			return RandomProvider.lxm();
+		case "shared":
+			return RandomProvider.shared(new Random());
+		default:
+			throw new IllegalArgumentException("Unknown random provider " + name);
+		}
+	}
+
+	/**
+	 * Roll the expression with the original dice model.
+	 *
+	 * @return The result of the roll.
+	 */
+	@Benchmark
+	public long dice() {
+		switch (expr) {
+		case "nds":
+			return oldDie.roll();
+		case "keephigh": {
+			final long[] vals = oldList.roll();
+
+			Arrays.sort(vals);
+
+			long total = 0;
+
+			for (int i = vals.length - KEEP; i < vals.length; i++) {
+				total += vals[i];
+			}
+
+			return total;
+		}
+		case "explode": {
+			long total = 0;
+
+			for (int i = 0; i < DICE; i++) {
+				for (final long val : oldList.roll()) {
+					total += val;
+				}
+			}
+
+			return total;
+		}
+		case "compound": {
+			long total = 0;
+
+			for (int i = 0; i < DICE; i++) {
+				total += oldDie.roll();
+			}
+
+			return total;
+		}
+		case "success": {
+			long count = 0;
+
+			for (final long val : oldList.roll()) {
+				if (val >= TARGET) count += 1;
+			}
+
+			return count;
+		}
+		default:
+			throw new IllegalArgumentException("Unknown expression " + expr);
+		}
+	}
+
+	/**
+	 * Roll the expression with the dicev2 model.
+	 *
+	 * @return The result of the roll.
+	 */
+	@Benchmark
+	public long dicev2() {
+		return v2Die.rollSingle();
+	}
+
+	/**
+	 * Roll the expression with the neodice model.
+	 *
+	 * @return The result of the roll.
+	 */
+	@Benchmark
+	public long neodice() {
+		if (expr.equals("success")) return neoPool.roll(neoRng).count();
+
+		return neoPool.roll(neoRng).mapToLong(Integer::longValue).sum();
+	}
+
+	/**
+	 * Roll the expression with the integer neodice dice.
+	 *
+	 * @return The result of the roll.
+	 */
+	@Benchmark
+	public long neodiceInt() {
+		final int[] vals = intPool.rollInts(neoRng.get());
+
+		if (expr.equals("success")) return vals.length;
+
+		long total = 0;
+
+		for (final int val : vals) {
+			total += val;
+		}
+
+		return total;
+	}
+}
@@ -0,0 +1,152 @@
+package bjc.dicelang.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bjc.dicelang.DiceLangEngine;
+import bjc.dicelang.Node;
+import bjc.dicelang.Parser;
+import bjc.dicelang.Shunter;
+import bjc.dicelang.eval.Evaluator;
+import bjc.dicelang.eval.EvaluatorResult;
+import bjc.dicelang.tokens.Token;
+import bjc.data.Tree;
+import bjc.funcdata.FunctionalList;
+import bjc.funcdata.ListEx;
+
+/**
+ * Benchmarks each stage of the DiceLang pipeline on its own.
+ *
+ * Each stage is fed the output of the stages before it, which is computed
+ * once during setup. Run with '-prof gc' to see allocation rates.
+ *
+ * Compiled evaluation is in {@link CompiledBenchmark}, since not every entry
+ * can be compiled.
+ *
+ * @author Ben Culkin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+	/** The corpus entry to run. */
+	@Param({ "simple", "dice", "nested", "defines", "strings", "dicelists" })
+	public String entry;
+
+	/* The engine to run things in. */
+	private DiceLangEngine eng;
+	private Shunter shunt;
+	private Evaluator eval;
+
+	/* The input to each stage. */
+	private String command;
+	private ListEx<String> preprocessed;
+	private ListEx<Token> lexed;
+	private ListEx<Token> shunted;
+	private ListEx<Tree<Node>> forest;
+
+	/** Run each stage once, to get the input for the next. */
+	@Setup
+	public void setup() {
+		eng = Corpus.engine();
+		shunt = eng.getDefinition().getShunter();
+		eval = new Evaluator(eng);
+
+		command = Corpus.command(entry);
+
+		preprocessed = eng.preprocessCommand(command);
+		lexed = eng.lexTokens(preprocessed);
+		shunted = eng.shuntTokens(lexed);
+
+		forest = new FunctionalList<>();
+
+		if (!Parser.parseTokens(shunted, forest)) {
+			throw new IllegalStateException("Corpus entry " + entry + " didn't parse");
+		}
+
+		/* Don't time the error path. */
+		for (final Tree<Node> ast : forest) {
+			final EvaluatorResult res = eval.evaluate(ast);
+
+			if (res != null && res.type == EvaluatorResult.Type.FAILURE) {
+				throw new IllegalStateException("Corpus entry " + entry + " didn't evaluate");
+			}
+		}
+	}
+
+	/**
+	 * Benchmark preprocessing.
+	 *
+	 * @return The preprocessed tokens.
+	 */
+	@Benchmark
+	public ListEx<String> preprocessCommand() {
+		return eng.preprocessCommand(command);
+	}
+
+	/**
+	 * Benchmark lexing.
+	 *
+	 * @return The lexed tokens.
+	 */
+	@Benchmark
+	public ListEx<Token> lexTokens() {
+		return eng.lexTokens(preprocessed);
+	}
+
+	/**
+	 * Benchmark shunting.
+	 *
+	 * @return The shunted tokens.
+	 */
+	@Benchmark
+	public ListEx<Token> shuntTokens() {
+		final ListEx<Token> res = new FunctionalList<>();
+
+		shunt.shuntTokens(lexed, res);
+
+		return res;
+	}
+
+	/**
+	 * Benchmark parsing.
+	 *
+	 * @return The parsed forest.
+	 */
+	@Benchmark
+	public ListEx<Tree<Node>> parseTokens() {
+		final ListEx<Tree<Node>> res = new FunctionalList<>();
+
+		Parser.parseTokens(shunted, res);
+
+		return res;
+	}
+
+	/**
+	 * Benchmark evaluation.
+	 *
+	 * @param bh
+	 *            The blackhole to sink results into.
+	 */
+	@Benchmark
+	public void evaluate(final Blackhole bh) {
+		for (final Tree<Node> ast : forest) {
+			bh.consume(eval.evaluate(ast));
+		}
+	}
+}
@@ -50,6 +50,22 @@ public class CompoundDie implements Die {
 		return roll();
 	}
 
+	@Override
+	public Distribution distribution() {
+		final Distribution leftDist = left.distribution();
+		final Distribution rightDist = right.distribution();
+
+		return leftDist.combine(rightDist, (lft, rght) -> {
+			if(rght < 0) {
+				String msg = String.format("Can't concatenate negative roll %d onto %d", rght, lft);
+
+				throw new DieException(msg);
+			}
+
+			return Long.parseLong(String.format("%d%d", lft, rght));
+		});
+	}
+
 	@Override
 	public String toString() {
 		String leftString = left.toString();
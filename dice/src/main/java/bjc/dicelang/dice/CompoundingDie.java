@@ -100,6 +100,18 @@ public class CompoundingDie implements Die {
 		return res;
 	}
 
+	@Override
+	public Distribution distribution() {
+		/*
+		 * @NOTE
+		 *
+		 * Compounding can go on forever, so there isn't a finite table
+		 * for it. If we need this, it could be done by truncating once
+		 * the remaining probability is small enough.
+		 */
+		throw new DieException("Compounding dice don't have a finite distribution");
+	}
+
 	@Override
 	public String toString() {
 		String sourceString = source.toString();
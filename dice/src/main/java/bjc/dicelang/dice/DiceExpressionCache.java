@@ -0,0 +1,234 @@
+package bjc.dicelang.dice;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A size-bounded cache of parsed die expressions, keyed by the literal they
+ * were parsed from.
+ *
+ * Literals that aren't die expressions are cached as well, so checking the
+ * same non-dice token again is just as cheap as parsing the same die again.
+ *
+ * Die expressions are immutable, so a cached expression can be handed out to
+ * any number of callers. The cache is safe to use from multiple threads, and
+ * looking up a literal that is already cached never locks. Once the cache is
+ * full, it evicts entries that haven't been used since the last eviction
+ * first, so it keeps roughly the most recently used literals.
+ *
+ * @author Ben Culkin
+ */
+public class DiceExpressionCache {
+	/* A cached parse. */
+	private static final class Entry {
+		/* The parsed expression, or null if the literal isn't one. */
+		final DiceExpression exp;
+
+		/* Whether the entry was used since the last eviction. */
+		volatile boolean used;
+
+		Entry(final DiceExpression ex) {
+			exp = ex;
+		}
+	}
+
+	/* The cached parses. */
+	private final ConcurrentHashMap<String, Entry> entries;
+
+	/* Only one thread evicts at a time. */
+	private final ReentrantLock evictLock;
+
+	/* The max. number of entries. */
+	private volatile int capacity;
+
+	/* Statistics. */
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+
+	/**
+	 * Create a new die expression cache.
+	 *
+	 * @param cap
+	 *        The max. number of entries to hold. A capacity of zero disables
+	 *        the cache.
+	 */
+	public DiceExpressionCache(final int cap) {
+		if(cap < 0) {
+			throw new IllegalArgumentException("Cache capacity must be non-negative, not " + cap);
+		}
+
+		capacity = cap;
+
+		entries = new ConcurrentHashMap<>();
+		evictLock = new ReentrantLock();
+
+		hits = new LongAdder();
+		misses = new LongAdder();
+		evictions = new LongAdder();
+	}
+
+	/**
+	 * Get the expression for a literal, parsing and caching it if it isn't
+	 * cached.
+	 *
+	 * Each call counts as exactly one hit or one miss.
+	 *
+	 * @param literal
+	 *        The literal to look up.
+	 *
+	 * @param parser
+	 *        The parser to use if the literal isn't cached. It returns null
+	 *        if the literal isn't a die expression.
+	 *
+	 * @return The expression for the literal, or null if it isn't one.
+	 */
+	public DiceExpression getOrParse(final String literal, final Function<String, DiceExpression> parser) {
+		final Entry cached = entries.get(literal);
+
+		if(cached != null) {
+			hits.increment();
+
+			/* Only write if needed, to not bounce the entry between cores. */
+			if(!cached.used) cached.used = true;
+
+			return cached.exp;
+		}
+
+		misses.increment();
+
+		final DiceExpression exp = parser.apply(literal);
+
+		if(capacity > 0) {
+			entries.putIfAbsent(literal, new Entry(exp));
+
+			if(entries.size() > capacity) evict();
+		}
+
+		return exp;
+	}
+
+	/* Evict entries until the cache is a bit under capacity. */
+	private void evict() {
+		/* Someone else is already evicting. */
+		if(!evictLock.tryLock()) return;
+
+		try {
+			final int cap = capacity;
+
+			/* Leave some room, so every miss doesn't have to evict. */
+			final int target = cap - cap / 8;
+
+			/* Drop unused entries first, then anything else. */
+			for(int pass = 0; pass < 2 && entries.size() > target; pass++) {
+				final Iterator<Map.Entry<String, Entry>> itr = entries.entrySet().iterator();
+
+				while(itr.hasNext() && entries.size() > target) {
+					final Entry ent = itr.next().getValue();
+
+					if(pass == 0 && ent.used) {
+						ent.used = false;
+					} else {
+						itr.remove();
+
+						evictions.increment();
+					}
+				}
+			}
+		} finally {
+			evictLock.unlock();
+		}
+	}
+
+	/**
+	 * Remove every expression from the cache.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Change the max. number of expressions in the cache.
+	 *
+	 * Shrinking the cache evicts expressions until it fits.
+	 *
+	 * @param cap
+	 *        The new capacity of the cache.
+	 */
+	public void setCapacity(final int cap) {
+		if(cap < 0) {
+			throw new IllegalArgumentException("Cache capacity must be non-negative, not " + cap);
+		}
+
+		capacity = cap;
+
+		if(cap == 0) {
+			entries.clear();
+		} else if(entries.size() > cap) {
+			evict();
+		}
+	}
+
+	/**
+	 * Get the max. number of expressions in the cache.
+	 *
+	 * @return The capacity of the cache.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of literals currently in the cache, including the ones
+	 * that aren't die expressions.
+	 *
+	 * @return The number of cached literals.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found a cached literal.
+	 *
+	 * @return The number of cache hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of lookups that had to parse the literal.
+	 *
+	 * @return The number of cache misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get the number of literals removed to make room for others.
+	 *
+	 * @return The number of cache evictions.
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/** Reset the statistics for the cache. */
+	public void resetStats() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DiceExpressionCache [size=%d, capacity=%d, hits=%d, misses=%d, evictions=%d]",
+				entries.size(), capacity, hits.sum(), misses.sum(), evictions.sum());
+	}
+}
@@ -0,0 +1,262 @@
+package bjc.dicelang.dice;
+
+import java.util.function.Predicate;
+
+/**
+ * Single-pass parser for die expression literals.
+ *
+ * The grammar that is accepted is:
+ *
+ * <pre>
+ * expression := group [ 'dl' group | '!!' compare | 'p!' compare | '!' compare ]
+ * group      := scalar | simple | fudge | compound
+ * scalar     := [ '+' | '-' ] number 'sd'
+ * simple     := [ number ] 'd' number
+ * fudge      := [ number ] 'dF'
+ * compound   := simple 'c' ( simple | number )
+ * compare    := ( '&lt;' | '=' | '&gt;' ) number
+ * </pre>
+ *
+ * Parsing a string doesn't throw. If it fails, the position and reason are
+ * kept so that the caller can decide whether to report them.
+ *
+ * @author Ben Culkin
+ */
+final class DiceLiteralParser {
+	/* The string being parsed. */
+	private final String input;
+	/* The index of the next character. */
+	private int pos;
+
+	/* Where parsing failed, and why. */
+	private int errorPos;
+	private String errorReason;
+
+	/**
+	 * Create a new parser for a string.
+	 *
+	 * @param inp
+	 *        The string to parse.
+	 */
+	DiceLiteralParser(final String inp) {
+		input = inp;
+
+		errorPos = -1;
+	}
+
+	/**
+	 * Parse the string as a die expression.
+	 *
+	 * @return The die expression, or null if the string isn't one.
+	 */
+	DiceExpression parse() {
+		pos = 0;
+
+		final Die group = parseGroup();
+		if(group == null) return null;
+
+		if(atEnd()) return new ScalarDiceExpression(group);
+
+		final DiceExpression res;
+
+		if(accept("dl")) {
+			final Die right = parseGroup();
+			if(right == null) return null;
+
+			res = new ListDiceExpression(new SimpleDieList(group, right));
+		} else if(accept("!!")) {
+			final int start = pos;
+			final Predicate<Long> cond = parseCompare();
+			if(cond == null) return null;
+
+			res = new ScalarDiceExpression(new CompoundingDie(group, cond, input.substring(start, pos)));
+		} else if(accept("p!")) {
+			res = parseExploding(group, true);
+			if(res == null) return null;
+		} else if(accept('!')) {
+			res = parseExploding(group, false);
+			if(res == null) return null;
+		} else {
+			return fail("Unexpected character '" + input.charAt(pos) + "'");
+		}
+
+		if(!atEnd()) return fail("Unexpected character '" + input.charAt(pos) + "'");
+
+		return res;
+	}
+
+	/**
+	 * Get the error from the last parse.
+	 *
+	 * @return The error from the last parse, or null if it succeeded.
+	 */
+	DiceParseException getError() {
+		if(errorReason == null) return null;
+
+		return new DiceParseException(input, errorPos, errorReason);
+	}
+
+	/* Parse a scalar, simple, fudge or compound die. */
+	private Die parseGroup() {
+		if(atEnd()) return fail("Expected a die");
+
+		final char first = input.charAt(pos);
+
+		/* Only scalars can be signed. */
+		if(first == '+' || first == '-') {
+			pos += 1;
+
+			final long num = parseNumber();
+			if(num < 0) return null;
+
+			if(!accept("sd")) return fail("Expected 'sd' after signed number");
+
+			return new ScalarDie(first == '-' ? -num : num);
+		}
+
+		long count = 1;
+
+		if(isDigit(first)) {
+			count = parseNumber();
+			if(count < 0) return null;
+
+			if(accept("sd")) return new ScalarDie(count);
+		}
+
+		if(!accept('d')) return fail("Expected 'd' or 'sd'");
+
+		if(accept('F')) return new FudgeDie(count);
+
+		final long sides = parseNumber();
+		if(sides < 0) return null;
+
+		final Die simple = new SimpleDie(count, sides);
+
+		if(!accept('c')) return simple;
+
+		/* The right side of a compound die is a simple die or a number. */
+		long right = 1;
+		boolean hasCount = false;
+
+		if(!atEnd() && isDigit(input.charAt(pos))) {
+			right = parseNumber();
+			if(right < 0) return null;
+
+			hasCount = true;
+		}
+
+		/* A 'd' here might start a 'dl' instead. */
+		if(peekSides()) {
+			pos += 1;
+
+			final long rightSides = parseNumber();
+			if(rightSides < 0) return null;
+
+			return new CompoundDie(simple, new SimpleDie(right, rightSides));
+		}
+
+		if(!hasCount) return fail("Expected a die or number after 'c'");
+
+		return new CompoundDie(simple, new ScalarDie(right));
+	}
+
+	/* Parse the compare point of an exploding die. */
+	private DiceExpression parseExploding(final Die group, final boolean penetrate) {
+		final int start = pos;
+		final Predicate<Long> cond = parseCompare();
+		if(cond == null) return null;
+
+		return new ListDiceExpression(new ExplodingDice(group, cond, input.substring(start, pos), penetrate));
+	}
+
+	/* Parse a compare point. */
+	private Predicate<Long> parseCompare() {
+		if(atEnd()) return fail("Expected '<', '=' or '>'");
+
+		final char op = input.charAt(pos);
+
+		if(op != '<' && op != '=' && op != '>') return fail("Expected '<', '=' or '>'");
+
+		pos += 1;
+
+		final long num = parseNumber();
+		if(num < 0) return null;
+
+		switch(op) {
+		case '<':
+			return (roll) -> (roll < num);
+		case '=':
+			return (roll) -> (roll == num);
+		default:
+			return (roll) -> (roll > num);
+		}
+	}
+
+	/* Parse an unsigned number, or return -1 if there isn't one. */
+	private long parseNumber() {
+		final int start = pos;
+
+		long num = 0;
+
+		while(!atEnd() && isDigit(input.charAt(pos))) {
+			final int digit = input.charAt(pos) - '0';
+
+			if(num > (Long.MAX_VALUE - digit) / 10) {
+				fail(start, "Number too large");
+				return -1;
+			}
+
+			num = num * 10 + digit;
+			pos += 1;
+		}
+
+		if(pos == start) {
+			fail("Expected a number");
+			return -1;
+		}
+
+		return num;
+	}
+
+	/* Check if the next characters are a 'd' followed by a number. */
+	private boolean peekSides() {
+		return pos + 1 < input.length() && input.charAt(pos) == 'd' && isDigit(input.charAt(pos + 1));
+	}
+
+	private boolean accept(final char ch) {
+		if(atEnd() || input.charAt(pos) != ch) return false;
+
+		pos += 1;
+
+		return true;
+	}
+
+	private boolean accept(final String str) {
+		if(!input.startsWith(str, pos)) return false;
+
+		pos += str.length();
+
+		return true;
+	}
+
+	private boolean atEnd() {
+		return pos >= input.length();
+	}
+
+	private static boolean isDigit(final char ch) {
+		return ch >= '0' && ch <= '9';
+	}
+
+	/* Record a failure at the current position. */
+	private <T> T fail(final String reason) {
+		return fail(pos, reason);
+	}
+
+	/* Record a failure at a position. */
+	private <T> T fail(final int at, final String reason) {
+		errorPos = at;
+		errorReason = reason;
+
+		return null;
+	}
+}
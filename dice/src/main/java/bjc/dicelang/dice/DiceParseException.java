@@ -0,0 +1,64 @@
+package bjc.dicelang.dice;
+
+/**
+ * Exception thrown when a string isn't a valid die expression.
+ *
+ * @author Ben Culkin
+ */
+public class DiceParseException extends DieException {
+	private static final long serialVersionUID = -2783472960553817204L;
+
+	/* The string that was being parsed. */
+	private final String input;
+	/* The index in the string where parsing failed. */
+	private final int position;
+	/* What was wrong at that position. */
+	private final String reason;
+
+	/**
+	 * Create a new dice parse exception.
+	 *
+	 * @param inp
+	 * 	The string that was being parsed.
+	 *
+	 * @param pos
+	 * 	The index in the string where parsing failed.
+	 *
+	 * @param why
+	 * 	What was wrong at that position.
+	 */
+	public DiceParseException(String inp, int pos, String why) {
+		super(String.format("%s at position %d of die expression '%s'", why, pos, inp));
+
+		input = inp;
+		position = pos;
+		reason = why;
+	}
+
+	/**
+	 * Get the string that was being parsed.
+	 *
+	 * @return The string that was being parsed.
+	 */
+	public String getInput() {
+		return input;
+	}
+
+	/**
+	 * Get the index in the string where parsing failed.
+	 *
+	 * @return The index where parsing failed.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Get what was wrong at the position parsing failed.
+	 *
+	 * @return The reason parsing failed.
+	 */
+	public String getReason() {
+		return reason;
+	}
+}
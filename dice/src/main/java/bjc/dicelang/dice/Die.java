@@ -36,4 +36,14 @@ public interface Die {
 	 * @return A possible roll of a single portion of this die.
 	 */
 	long rollSingle();
+
+	/**
+	 * Compute the exact distribution of the rolls of this die.
+	 *
+	 * @return The probability of each possible roll of this die.
+	 *
+	 * @throws DieException
+	 *         If this die doesn't have a finite distribution.
+	 */
+	Distribution distribution();
 }
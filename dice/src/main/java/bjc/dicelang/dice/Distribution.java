@@ -0,0 +1,488 @@
+package bjc.dicelang.dice;
+
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * The exact probability distribution of the results of a die.
+ *
+ * Distributions are stored as a dense table of probabilities over a contiguous
+ * range of results, so dice can be combined by convolution instead of by
+ * sampling large numbers of rolls.
+ *
+ * Distributions are immutable, and can be freely shared.
+ *
+ * @author Ben Culkin
+ */
+public final class Distribution {
+	/**
+	 * The largest number of results a single distribution may cover.
+	 *
+	 * Operations that would produce a wider distribution throw a
+	 * {@link DieException} instead.
+	 */
+	public static final int MAX_SUPPORT = 1 << 24;
+
+	/* The smallest result stored in the table. */
+	private final long min;
+
+	/* The probability of each result, indexed by (result - min). */
+	private final double[] probs;
+
+	/* Create a distribution from a table that is already trimmed. */
+	private Distribution(final long mn, final double[] prbs) {
+		min = mn;
+		probs = prbs;
+	}
+
+	/**
+	 * Create a distribution that always produces a single result.
+	 *
+	 * @param val
+	 *        The result to produce.
+	 *
+	 * @return A distribution with all of its mass on the given result.
+	 */
+	public static Distribution pointMass(final long val) {
+		return new Distribution(val, new double[] { 1.0 });
+	}
+
+	/**
+	 * Create a distribution where every result in a range is equally likely.
+	 *
+	 * @param lo
+	 *        The lowest result, inclusive.
+	 *
+	 * @param hi
+	 *        The highest result, inclusive.
+	 *
+	 * @return A uniform distribution over the range.
+	 */
+	public static Distribution uniform(final long lo, final long hi) {
+		if(hi < lo) {
+			String msg = String.format("Can't create uniform distribution from %d to %d", lo, hi);
+
+			throw new DieException(msg);
+		}
+
+		final double[] table = new double[checkedWidth(lo, hi)];
+
+		Arrays.fill(table, 1.0 / table.length);
+
+		return new Distribution(lo, table);
+	}
+
+	/**
+	 * Create a distribution from a table of probabilities.
+	 *
+	 * @param lo
+	 *        The result that the first entry in the table is for.
+	 *
+	 * @param table
+	 *        The probability of each result, starting from lo. The table
+	 *        is copied.
+	 *
+	 * @return A distribution with the given probabilities.
+	 */
+	public static Distribution of(final long lo, final double[] table) {
+		return trimmed(lo, Arrays.copyOf(table, table.length));
+	}
+
+	/**
+	 * Create a distribution that picks between several distributions.
+	 *
+	 * @param weights
+	 *        The probability of picking each distribution.
+	 *
+	 * @param parts
+	 *        The distributions to pick between.
+	 *
+	 * @return A distribution that picks one of the parts by weight.
+	 */
+	public static Distribution mixture(final double[] weights, final Distribution[] parts) {
+		long lo = Long.MAX_VALUE;
+		long hi = Long.MIN_VALUE;
+
+		for(int i = 0; i < parts.length; i++) {
+			if(weights[i] == 0) continue;
+
+			lo = Math.min(lo, parts[i].minValue());
+			hi = Math.max(hi, parts[i].maxValue());
+		}
+
+		if(hi < lo) {
+			throw new DieException("Can't create a mixture with no weight");
+		}
+
+		final double[] table = new double[checkedWidth(lo, hi)];
+
+		for(int i = 0; i < parts.length; i++) {
+			if(weights[i] == 0) continue;
+
+			final Distribution part = parts[i];
+			final int offset = (int) (part.min - lo);
+
+			for(int j = 0; j < part.probs.length; j++) {
+				table[offset + j] += weights[i] * part.probs[j];
+			}
+		}
+
+		return trimmed(lo, table);
+	}
+
+	/**
+	 * Get the smallest result with a non-zero probability.
+	 *
+	 * @return The smallest possible result.
+	 */
+	public long minValue() {
+		return min;
+	}
+
+	/**
+	 * Get the largest result with a non-zero probability.
+	 *
+	 * @return The largest possible result.
+	 */
+	public long maxValue() {
+		return min + probs.length - 1;
+	}
+
+	/**
+	 * Check if this distribution only ever produces one result.
+	 *
+	 * @return Whether this distribution is a point mass.
+	 */
+	public boolean isPointMass() {
+		return probs.length == 1;
+	}
+
+	/**
+	 * Get the probability of a given result.
+	 *
+	 * @param val
+	 *        The result to check.
+	 *
+	 * @return The probability of getting exactly that result.
+	 */
+	public double probability(final long val) {
+		if(val < min || val > maxValue()) return 0;
+
+		return probs[(int) (val - min)];
+	}
+
+	/**
+	 * Get the probability of a result at least as large as a given one.
+	 *
+	 * @param val
+	 *        The result to check.
+	 *
+	 * @return The probability of getting val or more.
+	 */
+	public double probabilityAtLeast(final long val) {
+		if(val <= min) return 1;
+
+		double res = 0;
+
+		for(long i = val; i <= maxValue(); i++) {
+			res += probs[(int) (i - min)];
+		}
+
+		return res;
+	}
+
+	/**
+	 * Get the probability of a result no larger than a given one.
+	 *
+	 * @param val
+	 *        The result to check.
+	 *
+	 * @return The probability of getting val or less.
+	 */
+	public double probabilityAtMost(final long val) {
+		if(val >= maxValue()) return 1;
+
+		double res = 0;
+
+		for(long i = min; i <= val; i++) {
+			res += probs[(int) (i - min)];
+		}
+
+		return res;
+	}
+
+	/**
+	 * Get the expected value of this distribution.
+	 *
+	 * @return The mean result.
+	 */
+	public double mean() {
+		double res = 0;
+
+		for(int i = 0; i < probs.length; i++) {
+			res += probs[i] * (min + i);
+		}
+
+		return res;
+	}
+
+	/**
+	 * Get the variance of this distribution.
+	 *
+	 * @return The variance of the results.
+	 */
+	public double variance() {
+		final double mean = mean();
+
+		double res = 0;
+
+		for(int i = 0; i < probs.length; i++) {
+			final double dev = (min + i) - mean;
+
+			res += probs[i] * dev * dev;
+		}
+
+		return res;
+	}
+
+	/**
+	 * Get the probability table for this distribution.
+	 *
+	 * Entry i of the table is the probability of the result
+	 * {@code minValue() + i}.
+	 *
+	 * @return A copy of the probability table.
+	 */
+	public double[] probabilities() {
+		return Arrays.copyOf(probs, probs.length);
+	}
+
+	/**
+	 * Get the cumulative probability table for this distribution.
+	 *
+	 * Entry i of the table is the probability of a result no larger than
+	 * {@code minValue() + i}.
+	 *
+	 * @return The cumulative probability table.
+	 */
+	public double[] cumulative() {
+		final double[] res = new double[probs.length];
+
+		double acc = 0;
+
+		for(int i = 0; i < probs.length; i++) {
+			acc += probs[i];
+
+			res[i] = acc;
+		}
+
+		return res;
+	}
+
+	/**
+	 * Get the distribution of the sum of a result from this distribution
+	 * and one from another.
+	 *
+	 * @param other
+	 *        The distribution to add.
+	 *
+	 * @return The convolution of the two distributions.
+	 */
+	public Distribution plus(final Distribution other) {
+		final double[] table = new double[checkedWidth(min + other.min, maxValue() + other.maxValue())];
+
+		for(int i = 0; i < probs.length; i++) {
+			final double lp = probs[i];
+
+			if(lp == 0) continue;
+
+			for(int j = 0; j < other.probs.length; j++) {
+				table[i + j] += lp * other.probs[j];
+			}
+		}
+
+		return trimmed(min + other.min, table);
+	}
+
+	/**
+	 * Get the distribution of the negation of results from this
+	 * distribution.
+	 *
+	 * @return The negated distribution.
+	 */
+	public Distribution negate() {
+		final double[] table = new double[probs.length];
+
+		for(int i = 0; i < probs.length; i++) {
+			table[probs.length - 1 - i] = probs[i];
+		}
+
+		return new Distribution(-maxValue(), table);
+	}
+
+	/**
+	 * Get the distribution of the difference of a result from this
+	 * distribution and one from another.
+	 *
+	 * @param other
+	 *        The distribution to subtract.
+	 *
+	 * @return The distribution of the difference.
+	 */
+	public Distribution minus(final Distribution other) {
+		return plus(other.negate());
+	}
+
+	/**
+	 * Get the distribution of the product of a result from this
+	 * distribution and one from another.
+	 *
+	 * @param other
+	 *        The distribution to multiply by.
+	 *
+	 * @return The distribution of the product.
+	 */
+	public Distribution times(final Distribution other) {
+		return combine(other, (lft, rght) -> lft * rght);
+	}
+
+	/**
+	 * Get the distribution of applying an arbitrary operator to a result
+	 * from this distribution and one from another.
+	 *
+	 * @param other
+	 *        The distribution for the right operand.
+	 *
+	 * @param op
+	 *        The operator to apply.
+	 *
+	 * @return The distribution of the results of the operator.
+	 */
+	public Distribution combine(final Distribution other, final LongBinaryOperator op) {
+		/* Find the range of the results first, so we only allocate once. */
+		long lo = Long.MAX_VALUE;
+		long hi = Long.MIN_VALUE;
+
+		for(int i = 0; i < probs.length; i++) {
+			if(probs[i] == 0) continue;
+
+			for(int j = 0; j < other.probs.length; j++) {
+				if(other.probs[j] == 0) continue;
+
+				final long res = op.applyAsLong(min + i, other.min + j);
+
+				lo = Math.min(lo, res);
+				hi = Math.max(hi, res);
+			}
+		}
+
+		final double[] table = new double[checkedWidth(lo, hi)];
+
+		for(int i = 0; i < probs.length; i++) {
+			if(probs[i] == 0) continue;
+
+			for(int j = 0; j < other.probs.length; j++) {
+				if(other.probs[j] == 0) continue;
+
+				final long res = op.applyAsLong(min + i, other.min + j);
+
+				table[(int) (res - lo)] += probs[i] * other.probs[j];
+			}
+		}
+
+		return trimmed(lo, table);
+	}
+
+	/**
+	 * Get the distribution of the sum of several independent results from
+	 * this distribution.
+	 *
+	 * @param count
+	 *        The number of results to sum. Counts less than one sum to
+	 *        zero.
+	 *
+	 * @return The distribution of the sum.
+	 */
+	public Distribution repeat(final long count) {
+		Distribution res = pointMass(0);
+		Distribution base = this;
+
+		/* Exponentiation by squaring, so only O(log n) convolutions. */
+		long remaining = count;
+
+		while(remaining > 0) {
+			if((remaining & 1) == 1) res = res.plus(base);
+
+			remaining >>= 1;
+
+			if(remaining > 0) base = base.plus(base);
+		}
+
+		return res;
+	}
+
+	/* Strip zero entries from the ends of a table. */
+	private static Distribution trimmed(final long lo, final double[] table) {
+		int start = 0;
+		int end = table.length;
+
+		while(start < end && table[start] == 0) start += 1;
+		while(end > start && table[end - 1] == 0) end -= 1;
+
+		if(start == end) {
+			throw new DieException("Distribution has no non-zero results");
+		}
+
+		if(start == 0 && end == table.length) return new Distribution(lo, table);
+
+		return new Distribution(lo + start, Arrays.copyOfRange(table, start, end));
+	}
+
+	/* Get the width of a range of results, checking it is storable. */
+	private static int checkedWidth(final long lo, final long hi) {
+		final long width = hi - lo + 1;
+
+		if(width <= 0 || width > MAX_SUPPORT) {
+			String msg = String.format("Distribution from %d to %d is too wide to compute", lo, hi);
+
+			throw new DieException(msg);
+		}
+
+		return (int) width;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("{");
+
+		for(int i = 0; i < probs.length; i++) {
+			if(probs[i] == 0) continue;
+
+			if(sb.length() > 1) sb.append(", ");
+
+			sb.append(min + i).append("=").append(probs[i]);
+		}
+
+		return sb.append("}").toString();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (min ^ (min >>> 32));
+		result = prime * result + Arrays.hashCode(probs);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) return true;
+		if(obj == null) return false;
+		if(getClass() != obj.getClass()) return false;
+		Distribution other = (Distribution) obj;
+		if(min != other.min) return false;
+		if(!Arrays.equals(probs, other.probs)) return false;
+		return true;
+	}
+}
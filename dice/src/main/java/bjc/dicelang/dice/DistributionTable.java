@@ -0,0 +1,537 @@
+package bjc.dicelang.dice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A precomputed file of distributions for simple dice pools, such as 3d6 or
+ * 4d6 drop lowest, that is memory-mapped instead of read.
+ *
+ * Loading a table does no computation, and looking up a probability is just
+ * a search of the index and a read from the mapped file. Since the file is
+ * mapped read-only, every process on a host that loads the same table shares
+ * the same pages of it.
+ *
+ * Tables are built with a {@link Builder}. Pools that keep or drop some of
+ * their dice are stored as pools that keep the highest or lowest dice, so
+ * 4d6 drop lowest is the same entry as 4d6 keep highest 3.
+ *
+ * <h2>File Format</h2>
+ *
+ * All values are little-endian.
+ *
+ * <ul>
+ * <li>A header, with the magic number, the format version, the number of
+ * entries, and a reserved int.</li>
+ * <li>An index, with one 32-byte record per entry, sorted by sides, dice,
+ * kept dice and direction. Each record is the number of sides, the number of
+ * dice, the number of kept dice, whether the highest dice are kept (as an
+ * int), the smallest result, the number of results, and the offset of the
+ * data for the entry.</li>
+ * <li>The data, with the probability of each result of an entry, followed by
+ * the cumulative probability of each result, as doubles.</li>
+ * </ul>
+ *
+ * @author Ben Culkin
+ */
+public final class DistributionTable {
+	/**
+	 * The magic number at the start of a table file.
+	 */
+	public static final int MAGIC = 0x54444c44;
+
+	/**
+	 * The version of the file format.
+	 */
+	public static final int VERSION = 1;
+
+	/* Sizes of the parts of the file. */
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 32;
+
+	/* Offsets of the fields in an index record. */
+	private static final int SIDES_OFFSET = 0;
+	private static final int DICE_OFFSET = 4;
+	private static final int KEEP_OFFSET = 8;
+	private static final int HIGHEST_OFFSET = 12;
+	private static final int MIN_OFFSET = 16;
+	private static final int LENGTH_OFFSET = 24;
+	private static final int DATA_OFFSET = 28;
+
+	/* The mapped file. */
+	private final ByteBuffer buf;
+
+	/* The number of entries in the table. */
+	private final int numEntries;
+
+	/* Create a table from a mapped file. */
+	private DistributionTable(final ByteBuffer bf, final int entries) {
+		buf = bf;
+
+		numEntries = entries;
+	}
+
+	/**
+	 * Load a table by memory-mapping it.
+	 *
+	 * @param path
+	 *        The file to load.
+	 *
+	 * @return The table in the file.
+	 *
+	 * @throws IOException
+	 *         If the file can't be mapped, or isn't a table.
+	 */
+	public static DistributionTable open(final Path path) throws IOException {
+		final ByteBuffer buf;
+
+		/* The mapping stays valid after the channel is closed. */
+		try(FileChannel chan = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = chan.size();
+
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("Distribution table " + path + " is too large to map");
+			}
+
+			if(size < HEADER_SIZE) {
+				throw new IOException("File " + path + " is not a distribution table");
+			}
+
+			buf = chan.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		if(buf.getInt(0) != MAGIC) {
+			throw new IOException("File " + path + " is not a distribution table");
+		}
+
+		if(buf.getInt(4) != VERSION) {
+			String msg = String.format("Distribution table %s has version %d, not %d", path, buf.getInt(4),
+					VERSION);
+
+			throw new IOException(msg);
+		}
+
+		final int entries = buf.getInt(8);
+
+		if(entries < 0 || HEADER_SIZE + (long) entries * RECORD_SIZE > buf.capacity()) {
+			throw new IOException("Distribution table " + path + " is truncated");
+		}
+
+		return new DistributionTable(buf, entries);
+	}
+
+	/**
+	 * Get the number of entries in this table.
+	 *
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return numEntries;
+	}
+
+	/**
+	 * Find the entry for a pool of dice.
+	 *
+	 * @param dice
+	 *        The number of dice.
+	 *
+	 * @param sides
+	 *        The number of sides on each die.
+	 *
+	 * @return The entry for the pool, or -1 if it isn't in the table.
+	 */
+	public int find(final int dice, final int sides) {
+		return find(dice, sides, dice, true);
+	}
+
+	/**
+	 * Find the entry for a pool of dice that keeps some of its dice.
+	 *
+	 * @param dice
+	 *        The number of dice.
+	 *
+	 * @param sides
+	 *        The number of sides on each die.
+	 *
+	 * @param keep
+	 *        The number of dice to keep.
+	 *
+	 * @param highest
+	 *        Whether the highest dice are kept, instead of the lowest.
+	 *
+	 * @return The entry for the pool, or -1 if it isn't in the table.
+	 */
+	public int find(final int dice, final int sides, final int keep, final boolean highest) {
+		final int kept = Math.max(0, Math.min(keep, dice));
+
+		/* Keeping every die doesn't depend on which ones. */
+		final int high = (highest || kept == dice) ? 1 : 0;
+
+		int lo = 0;
+		int hi = numEntries - 1;
+
+		while(lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			final int rec = HEADER_SIZE + mid * RECORD_SIZE;
+
+			int cmp = Integer.compare(buf.getInt(rec + SIDES_OFFSET), sides);
+			if(cmp == 0) cmp = Integer.compare(buf.getInt(rec + DICE_OFFSET), dice);
+			if(cmp == 0) cmp = Integer.compare(buf.getInt(rec + KEEP_OFFSET), kept);
+			if(cmp == 0) cmp = Integer.compare(buf.getInt(rec + HIGHEST_OFFSET), high);
+
+			if(cmp < 0) {
+				lo = mid + 1;
+			} else if(cmp > 0) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Find the entry for a pool of dice that drops some of its dice.
+	 *
+	 * @param dice
+	 *        The number of dice.
+	 *
+	 * @param sides
+	 *        The number of sides on each die.
+	 *
+	 * @param drop
+	 *        The number of dice to drop.
+	 *
+	 * @param lowest
+	 *        Whether the lowest dice are dropped, instead of the highest.
+	 *
+	 * @return The entry for the pool, or -1 if it isn't in the table.
+	 */
+	public int findDropping(final int dice, final int sides, final int drop, final boolean lowest) {
+		return find(dice, sides, dice - Math.max(0, drop), lowest);
+	}
+
+	/**
+	 * Get the smallest result of an entry.
+	 *
+	 * @param entry
+	 *        The entry to check.
+	 *
+	 * @return The smallest possible result.
+	 */
+	public long minValue(final int entry) {
+		return buf.getLong(record(entry) + MIN_OFFSET);
+	}
+
+	/**
+	 * Get the largest result of an entry.
+	 *
+	 * @param entry
+	 *        The entry to check.
+	 *
+	 * @return The largest possible result.
+	 */
+	public long maxValue(final int entry) {
+		final int rec = record(entry);
+
+		return buf.getLong(rec + MIN_OFFSET) + buf.getInt(rec + LENGTH_OFFSET) - 1;
+	}
+
+	/**
+	 * Get the probability of a given result of an entry.
+	 *
+	 * @param entry
+	 *        The entry to check.
+	 *
+	 * @param val
+	 *        The result to check.
+	 *
+	 * @return The probability of getting exactly that result.
+	 */
+	public double probability(final int entry, final long val) {
+		final int rec = record(entry);
+
+		final long idx = val - buf.getLong(rec + MIN_OFFSET);
+
+		if(idx < 0 || idx >= buf.getInt(rec + LENGTH_OFFSET)) return 0;
+
+		return buf.getDouble(buf.getInt(rec + DATA_OFFSET) + (int) idx * Double.BYTES);
+	}
+
+	/**
+	 * Get the probability of a result of an entry no larger than a given
+	 * one.
+	 *
+	 * @param entry
+	 *        The entry to check.
+	 *
+	 * @param val
+	 *        The result to check.
+	 *
+	 * @return The probability of getting val or less.
+	 */
+	public double probabilityAtMost(final int entry, final long val) {
+		final int rec = record(entry);
+
+		final int len = buf.getInt(rec + LENGTH_OFFSET);
+		final long idx = val - buf.getLong(rec + MIN_OFFSET);
+
+		if(idx < 0) return 0;
+		if(idx >= len - 1) return 1;
+
+		return buf.getDouble(buf.getInt(rec + DATA_OFFSET) + (len + (int) idx) * Double.BYTES);
+	}
+
+	/**
+	 * Get the probability of a result of an entry at least as large as a
+	 * given one.
+	 *
+	 * @param entry
+	 *        The entry to check.
+	 *
+	 * @param val
+	 *        The result to check.
+	 *
+	 * @return The probability of getting val or more.
+	 */
+	public double probabilityAtLeast(final int entry, final long val) {
+		return 1 - probabilityAtMost(entry, val - 1);
+	}
+
+	/**
+	 * Copy an entry out of the table.
+	 *
+	 * @param entry
+	 *        The entry to copy.
+	 *
+	 * @return The distribution for the entry.
+	 */
+	public Distribution distribution(final int entry) {
+		final int rec = record(entry);
+
+		final int len = buf.getInt(rec + LENGTH_OFFSET);
+		final int data = buf.getInt(rec + DATA_OFFSET);
+
+		final double[] table = new double[len];
+
+		for(int i = 0; i < len; i++) {
+			table[i] = buf.getDouble(data + i * Double.BYTES);
+		}
+
+		return Distribution.of(buf.getLong(rec + MIN_OFFSET), table);
+	}
+
+	/* Get the position of the index record for an entry. */
+	private int record(final int entry) {
+		if(entry < 0 || entry >= numEntries) {
+			String msg = String.format("No entry %d in a table with %d entries", entry, numEntries);
+
+			throw new DieException(msg);
+		}
+
+		return HEADER_SIZE + entry * RECORD_SIZE;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DistributionTable [entries=%d, bytes=%d]", numEntries, buf.capacity());
+	}
+
+	/**
+	 * Builds the file for a distribution table.
+	 *
+	 * By default, this covers 1 to 100 dice with 4, 6, 8, 10, 12, 20 and 100
+	 * sides, along with keeping the highest or lowest of up to 20 dice.
+	 *
+	 * @author Ben Culkin
+	 */
+	public static final class Builder {
+		/*
+		 * The sizes of dice in the default table, sorted.
+		 *
+		 * This is private so it can't be changed; builders share it until
+		 * their sides are set.
+		 */
+		private static final int[] DEFAULT_SIDES = { 4, 6, 8, 10, 12, 20, 100 };
+
+		/**
+		 * The most dice in a pool in the default table.
+		 */
+		public static final int DEFAULT_MAX_DICE = 100;
+
+		/**
+		 * The most dice in a pool that keeps some dice in the default table.
+		 */
+		public static final int DEFAULT_MAX_KEEP_DICE = 20;
+
+		/* What to put in the table. */
+		private int[] sides = DEFAULT_SIDES;
+
+		private int maxDice = DEFAULT_MAX_DICE;
+		private int maxKeepDice = DEFAULT_MAX_KEEP_DICE;
+
+		/**
+		 * Set the sizes of dice to put in the table.
+		 *
+		 * @param sds
+		 *        The sizes of dice.
+		 *
+		 * @return This builder.
+		 */
+		public Builder sides(final int... sds) {
+			for(final int sd : sds) {
+				if(sd < 1) throw new DieException("Dice must have at least one side, not " + sd);
+			}
+
+			sides = Arrays.stream(sds).sorted().distinct().toArray();
+
+			return this;
+		}
+
+		/**
+		 * Set the most dice in a pool to put in the table.
+		 *
+		 * @param max
+		 *        The most dice in a pool.
+		 *
+		 * @return This builder.
+		 */
+		public Builder maxDice(final int max) {
+			if(max < 0) throw new DieException("Can't have a negative number of dice");
+
+			maxDice = max;
+
+			return this;
+		}
+
+		/**
+		 * Set the most dice in a pool that keeps some of its dice to put
+		 * in the table. Pools that keep some dice can have far larger
+		 * tables, since there are many ways to keep dice.
+		 *
+		 * @param max
+		 *        The most dice in a pool that keeps some dice.
+		 *
+		 * @return This builder.
+		 */
+		public Builder maxKeepDice(final int max) {
+			if(max < 0) throw new DieException("Can't have a negative number of dice");
+
+			maxKeepDice = max;
+
+			return this;
+		}
+
+		/**
+		 * Compute the distributions, and write them to a file.
+		 *
+		 * @param path
+		 *        The file to write the table to.
+		 *
+		 * @throws IOException
+		 *         If the table can't be written.
+		 */
+		public void write(final Path path) throws IOException {
+			final int keepLimit = Math.min(maxKeepDice, maxDice);
+
+			/* Entries are added in the order of the index. */
+			int numEntries = 0;
+			for(int dice = 1; dice <= maxDice; dice++) {
+				numEntries += 1;
+
+				if(dice <= keepLimit) numEntries += 2 * (dice - 1);
+			}
+
+			numEntries *= sides.length;
+
+			final long dataStart = HEADER_SIZE + (long) numEntries * RECORD_SIZE;
+
+			final ByteBuffer index = ByteBuffer.allocate((int) dataStart).order(ByteOrder.LITTLE_ENDIAN);
+
+			index.putInt(MAGIC);
+			index.putInt(VERSION);
+			index.putInt(numEntries);
+			index.putInt(0);
+
+			try(FileChannel chan = FileChannel.open(path, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				long pos = dataStart;
+
+				for(final int side : sides) {
+					final Distribution face = Distribution.uniform(1, side);
+
+					for(int dice = 1; dice <= maxDice; dice++) {
+						final List<Distribution> kept = new ArrayList<>();
+
+						if(dice <= keepLimit) {
+							for(int keep = 1; keep < dice; keep++) {
+								kept.add(OrderStatistics.keepLowest(face, dice, keep));
+								kept.add(OrderStatistics.keepHighest(face, dice, keep));
+							}
+						}
+
+						kept.add(face.repeat(dice));
+
+						for(int i = 0; i < kept.size(); i++) {
+							final boolean isAll = i == kept.size() - 1;
+
+							final int keep = isAll ? dice : i / 2 + 1;
+							final boolean highest = isAll || i % 2 == 1;
+
+							pos = writeEntry(chan, index, pos, side, dice, keep, highest, kept.get(i));
+						}
+					}
+				}
+
+				index.flip();
+
+				long at = 0;
+				while(index.hasRemaining()) {
+					at += chan.write(index, at);
+				}
+			}
+		}
+
+		/* Write the data for an entry, and add its index record. */
+		private static long writeEntry(final FileChannel chan, final ByteBuffer index, final long pos,
+				final int sides, final int dice, final int keep, final boolean highest,
+				final Distribution dist) throws IOException {
+			final double[] probs = dist.probabilities();
+			final double[] cumul = dist.cumulative();
+
+			final long end = pos + 2L * probs.length * Double.BYTES;
+
+			if(end > Integer.MAX_VALUE) {
+				throw new DieException("Distribution table is too large to map");
+			}
+
+			index.putInt(sides);
+			index.putInt(dice);
+			index.putInt(keep);
+			index.putInt(highest ? 1 : 0);
+			index.putLong(dist.minValue());
+			index.putInt(probs.length);
+			index.putInt((int) pos);
+
+			final ByteBuffer data = ByteBuffer.allocate(2 * probs.length * Double.BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+
+			data.asDoubleBuffer().put(probs).put(cumul);
+
+			long at = pos;
+			while(data.hasRemaining()) {
+				at += chan.write(data, at);
+			}
+
+			return end;
+		}
+	}
+}
@@ -1,5 +1,9 @@
 package bjc.dicelang.dice;
 
+import java.util.random.RandomGenerator;
+
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * A fudge die, one that has -1, 0 and 1 as its sides.
  *
@@ -7,9 +11,15 @@ package bjc.dicelang.dice;
  *
  */
 public class FudgeDie implements Die {
+	/* The distribution of a single fudge die. */
+	private static final Distribution FUDGE_DIST = Distribution.uniform(-1, 1);
+
 	/* The number of dice to roll. */
 	private final Die numDice;
 
+	/* Where to get random numbers from, or null to use the default. */
+	private final RandomProvider rng;
+
 	/**
 	 * Create a new fudge die.
 	 *
@@ -17,7 +27,7 @@ public class FudgeDie implements Die {
 	 *        The number of dice to roll.
 	 */
 	public FudgeDie(final long nDice) {
-		numDice = new ScalarDie(nDice);
+		this(new ScalarDie(nDice));
 	}
 
 	/**
@@ -27,7 +37,23 @@ public class FudgeDie implements Die {
 	 *        The number of dice to roll.
 	 */
 	public FudgeDie(final Die nDice) {
+		this(nDice, null);
+	}
+
+	/**
+	 * Create a new fudge die that gets random numbers from a given
+	 * provider.
+	 *
+	 * @param nDice
+	 *        The number of dice to roll.
+	 *
+	 * @param rnd
+	 *        The provider to use, or null to use the one from DiceBox.
+	 */
+	public FudgeDie(final Die nDice, final RandomProvider rnd) {
 		numDice = nDice;
+
+		rng = rnd;
 	}
 
 	@Override
@@ -46,8 +72,10 @@ public class FudgeDie implements Die {
 
 		final long nDice = numDice.roll();
 
+		final RandomGenerator gen = generator();
+
 		for(int i = 0; i < nDice; i++) {
-			res += rollSingle();
+			res += gen.nextInt(3) - 1;
 		}
 
 		return res;
@@ -55,7 +83,33 @@ public class FudgeDie implements Die {
 
 	@Override
 	public long rollSingle() {
-		return DiceBox.rng.nextInt(3) - 1;
+		return generator().nextInt(3) - 1;
+	}
+
+	/* Get the generator to roll with. */
+	private RandomGenerator generator() {
+		return (rng == null ? DiceBox.rng : rng).get();
+	}
+
+	@Override
+	public Distribution distribution() {
+		final Distribution countDist = numDice.distribution();
+
+		if(countDist.isPointMass()) {
+			return FUDGE_DIST.repeat(countDist.minValue());
+		}
+
+		final int numParts = (int) (countDist.maxValue() - countDist.minValue() + 1);
+
+		final double[] weights     = new double[numParts];
+		final Distribution[] parts = new Distribution[numParts];
+
+		for(int i = 0; i < numParts; i++) {
+			weights[i] = countDist.probability(countDist.minValue() + i);
+			parts[i]   = FUDGE_DIST.repeat(countDist.minValue() + i);
+		}
+
+		return Distribution.mixture(weights, parts);
 	}
 
 	@Override
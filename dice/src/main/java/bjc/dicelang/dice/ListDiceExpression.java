@@ -11,7 +11,7 @@ import java.util.Arrays;
 public class ListDiceExpression implements DiceExpression {
 
 	/** The list value in this expression, if there is one. */
-	public DieList list;
+	public final DieList list;
 
 	/**
 	 * Create a list die expression.
@@ -70,6 +70,33 @@ public class MathDie implements Die {
 		right = rght;
 	}
 
+	/**
+	 * Get the operator this die applies.
+	 *
+	 * @return The operator.
+	 */
+	public MathDie.MathOp getOperator() {
+		return type;
+	}
+
+	/**
+	 * Get the left operand of this die.
+	 *
+	 * @return The left operand.
+	 */
+	public Die getLeft() {
+		return left;
+	}
+
+	/**
+	 * Get the right operand of this die.
+	 *
+	 * @return The right operand.
+	 */
+	public Die getRight() {
+		return right;
+	}
+
 	@Override
 	public boolean canOptimize() {
 		return left.canOptimize() && right.canOptimize();
@@ -115,6 +142,26 @@ public class MathDie implements Die {
 		return performOp(lft, rght);
 	}
 
+	@Override
+	public Distribution distribution() {
+		final Distribution lft = left.distribution();
+		final Distribution rght = right.distribution();
+
+		switch(type) {
+		case ADD:
+			return lft.plus(rght);
+
+		case SUBTRACT:
+			return lft.minus(rght);
+
+		case MULTIPLY:
+			return lft.times(rght);
+
+		default:
+			return Distribution.pointMass(0);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return left.toString() + " " + type.toString() + " " + right.toString();
@@ -0,0 +1,311 @@
+package bjc.dicelang.dice;
+
+import java.util.Arrays;
+
+/**
+ * Computes the exact distributions of sums of the highest or lowest few dice
+ * out of a pool of identical dice, such as 4d6 drop lowest.
+ *
+ * Instead of going through every way the pool could roll, this goes through
+ * the faces of the die in order, and works out how many dice land on each
+ * face. Which dice are kept only depends on how many dice landed on higher
+ * faces, so the work grows with the number of faces, dice and kept sums,
+ * not exponentially with the number of dice.
+ *
+ * @author Ben Culkin
+ */
+public final class OrderStatistics {
+	private OrderStatistics() {
+		/* Don't create this class. */
+	}
+
+	/**
+	 * Get the distribution of the sum of the highest dice in a pool.
+	 *
+	 * @param face
+	 *        The distribution of a single die.
+	 *
+	 * @param count
+	 *        The number of dice in the pool.
+	 *
+	 * @param keep
+	 *        The number of dice to keep.
+	 *
+	 * @return The distribution of the sum of the highest dice.
+	 */
+	public static Distribution keepHighest(final Distribution face, final int count, final int keep) {
+		return sliceSum(face, count, 0, keep, true);
+	}
+
+	/**
+	 * Get the distribution of the sum of the lowest dice in a pool.
+	 *
+	 * @param face
+	 *        The distribution of a single die.
+	 *
+	 * @param count
+	 *        The number of dice in the pool.
+	 *
+	 * @param keep
+	 *        The number of dice to keep.
+	 *
+	 * @return The distribution of the sum of the lowest dice.
+	 */
+	public static Distribution keepLowest(final Distribution face, final int count, final int keep) {
+		return sliceSum(face, count, 0, keep, false);
+	}
+
+	/**
+	 * Get the distribution of the sum of a pool, without its highest dice.
+	 *
+	 * @param face
+	 *        The distribution of a single die.
+	 *
+	 * @param count
+	 *        The number of dice in the pool.
+	 *
+	 * @param drop
+	 *        The number of dice to drop.
+	 *
+	 * @return The distribution of the sum of the remaining dice.
+	 */
+	public static Distribution dropHighest(final Distribution face, final int count, final int drop) {
+		return sliceSum(face, count, drop, count, true);
+	}
+
+	/**
+	 * Get the distribution of the sum of a pool, without its lowest dice.
+	 *
+	 * @param face
+	 *        The distribution of a single die.
+	 *
+	 * @param count
+	 *        The number of dice in the pool.
+	 *
+	 * @param drop
+	 *        The number of dice to drop.
+	 *
+	 * @return The distribution of the sum of the remaining dice.
+	 */
+	public static Distribution dropLowest(final Distribution face, final int count, final int drop) {
+		return sliceSum(face, count, drop, count, false);
+	}
+
+	/**
+	 * Get the distribution of the sum of a run of dice from a sorted pool.
+	 *
+	 * This is the sum of sorting the pool, skipping some dice, then keeping
+	 * some of the ones after that.
+	 *
+	 * @param face
+	 *        The distribution of a single die.
+	 *
+	 * @param count
+	 *        The number of dice in the pool.
+	 *
+	 * @param skip
+	 *        The number of dice to skip.
+	 *
+	 * @param keep
+	 *        The max. number of dice to keep after the skipped ones.
+	 *
+	 * @param descending
+	 *        Whether the pool is sorted highest first.
+	 *
+	 * @return The distribution of the sum of the kept dice.
+	 *
+	 * @throws DieException
+	 *         If any of the counts are negative, or the sum would be too
+	 *         wide.
+	 */
+	public static Distribution sliceSum(final Distribution face, final int count, final int skip,
+			final int keep, final boolean descending) {
+		if(count < 0 || skip < 0 || keep < 0) {
+			String msg = String.format("Can't keep %d dice after %d dice out of %d", keep, skip, count);
+
+			throw new DieException(msg);
+		}
+
+		/* The kept dice are the ones ranked from first to last. */
+		int first = Math.min(skip, count);
+		int last = (int) Math.min((long) skip + keep, count);
+
+		final int numKept = last - first;
+
+		if(numKept == 0) return Distribution.pointMass(0);
+
+		/*
+		 * The work grows with how many dice have to be placed before the
+		 * kept ones are, so count from whichever end is closer.
+		 */
+		boolean fromTop = descending;
+
+		if(count - first < last) {
+			final int oldFirst = first;
+
+			first = count - last;
+			last = count - oldFirst;
+
+			fromTop = !descending;
+		}
+
+		final double[] probs = face.probabilities();
+		final int numFaces = probs.length;
+
+		final long width = (long) numKept * (numFaces - 1) + 1;
+
+		if(width > Distribution.MAX_SUPPORT) {
+			String msg = String.format("Sum of %d dice with %d faces is too wide", numKept, numFaces);
+
+			throw new DieException(msg);
+		}
+
+		double total = 0;
+		int lastFace = -1;
+
+		for(int idx = 0; idx < numFaces; idx++) {
+			total += probs[idx];
+
+			/* The last face to be visited, if any are left. */
+			if(probs[idx] > 0 && (lastFace == -1 || !fromTop)) lastFace = idx;
+		}
+
+		final double[] logFact = logFactorials(count);
+
+		/*
+		 * The chance of each sum of the kept dice, for when some number of
+		 * dice have landed on the visited faces, along with the range of
+		 * sums that are possible. Once every kept die is placed, the sum is
+		 * done.
+		 */
+		double[][] state = new double[last][(int) width];
+		int[] stateLo = new int[last];
+		int[] stateHi = new int[last];
+
+		double[][] next = new double[last][(int) width];
+		int[] nextLo = new int[last];
+		int[] nextHi = new int[last];
+
+		Arrays.fill(stateHi, -1);
+
+		final double[] res = new double[(int) width];
+		final double[] binom = new double[count + 1];
+
+		state[0][0] = 1;
+		stateHi[0] = 0;
+
+		/* The chance of a die landing on an unvisited face. */
+		double remaining = total;
+
+		for(int step = 0; step < numFaces; step++) {
+			final int idx = fromTop ? numFaces - 1 - step : step;
+
+			final double prob = probs[idx];
+
+			if(prob == 0) continue;
+
+			/* The chance of a die landing here, given it's on this face or a later one. */
+			final double here = idx == lastFace ? 1 : Math.min(1, prob / remaining);
+
+			remaining -= prob;
+
+			for(int placed = 0; placed < last; placed++) {
+				if(nextLo[placed] <= nextHi[placed]) {
+					Arrays.fill(next[placed], nextLo[placed], nextHi[placed] + 1, 0);
+				}
+
+				nextLo[placed] = (int) width;
+				nextHi[placed] = -1;
+			}
+
+			for(int placed = 0; placed < last; placed++) {
+				final double[] from = state[placed];
+
+				final int lo = stateLo[placed];
+				final int hi = stateHi[placed];
+
+				if(hi < lo) continue;
+
+				final int left = count - placed;
+
+				binomial(logFact, left, here, binom);
+
+				for(int landed = 0; landed <= left; landed++) {
+					final double chance = binom[landed];
+
+					if(chance == 0) continue;
+
+					final int placedAfter = placed + landed;
+					final int kept = Math.max(0, Math.min(placedAfter, last) - Math.max(placed, first));
+
+					final int shift = kept * idx;
+
+					final double[] to;
+
+					if(placedAfter >= last) {
+						to = res;
+					} else {
+						to = next[placedAfter];
+
+						nextLo[placedAfter] = Math.min(nextLo[placedAfter], lo + shift);
+						nextHi[placedAfter] = Math.max(nextHi[placedAfter], hi + shift);
+					}
+
+					for(int sum = lo; sum <= hi; sum++) {
+						to[sum + shift] += from[sum] * chance;
+					}
+				}
+			}
+
+			final double[][] tmp = state;
+			state = next;
+			next = tmp;
+
+			final int[] tmpLo = stateLo;
+			stateLo = nextLo;
+			nextLo = tmpLo;
+
+			final int[] tmpHi = stateHi;
+			stateHi = nextHi;
+			nextHi = tmpHi;
+		}
+
+		return Distribution.of(numKept * face.minValue(), res);
+	}
+
+	/* Compute the logs of the factorials up to a number. */
+	private static double[] logFactorials(final int max) {
+		final double[] res = new double[max + 1];
+
+		for(int idx = 1; idx <= max; idx++) {
+			res[idx] = res[idx - 1] + Math.log(idx);
+		}
+
+		return res;
+	}
+
+	/* Fill in the binomial probabilities for a number of trials. */
+	private static void binomial(final double[] logFact, final int trials, final double chance,
+			final double[] dest) {
+		if(chance >= 1) {
+			Arrays.fill(dest, 0, trials, 0);
+			dest[trials] = 1;
+
+			return;
+		}
+
+		final double logHit = Math.log(chance);
+		final double logMiss = Math.log1p(-chance);
+
+		for(int hits = 0; hits <= trials; hits++) {
+			final int misses = trials - hits;
+
+			double logProb = logFact[trials] - logFact[hits] - logFact[misses];
+
+			if(hits > 0) logProb += hits * logHit;
+			if(misses > 0) logProb += misses * logMiss;
+
+			dest[hits] = Math.exp(logProb);
+		}
+	}
+}
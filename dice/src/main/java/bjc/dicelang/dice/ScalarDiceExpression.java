@@ -10,7 +10,7 @@ public class ScalarDiceExpression implements DiceExpression {
 	/**
 	 * The scalar value in this expression, if there is one.
 	 */
-	public Die scalar;
+	public final Die scalar;
 
 	/**
 	 * Create a new scalar dice expression.
@@ -40,6 +40,11 @@ public class ScalarDie implements Die {
 		return val;
 	}
 
+	@Override
+	public Distribution distribution() {
+		return Distribution.pointMass(val);
+	}
+
 	@Override
 	public String toString() {
 		return String.format("%d", val);
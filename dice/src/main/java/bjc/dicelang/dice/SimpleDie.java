@@ -1,5 +1,10 @@
 package bjc.dicelang.dice;
 
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * A simple group of dice.
  *
@@ -19,6 +24,9 @@ public class SimpleDie implements Die {
 	 */
 	private final Die diceSize;
 
+	/* Where to get random numbers from, or null to use the default. */
+	private final RandomProvider rng;
+
 	/**
 	 * Create a new dice group.
 	 *
@@ -68,14 +76,36 @@ public class SimpleDie implements Die {
 	 *        The size of the dice.
 	 */
 	public SimpleDie(final Die nDice, final Die size) {
+		this(nDice, size, null);
+	}
+
+	/**
+	 * Create a new dice group that gets random numbers from a given
+	 * provider.
+	 *
+	 * @param nDice
+	 *        The number of dice.
+	 *
+	 * @param size
+	 *        The size of the dice.
+	 *
+	 * @param rnd
+	 *        The provider to use, or null to use the one from DiceBox.
+	 */
+	public SimpleDie(final Die nDice, final Die size, final RandomProvider rnd) {
 		numDice = nDice;
 		diceSize = size;
+
+		rng = rnd;
 	}
 
 	@Override
 	public boolean canOptimize() {
-		if(diceSize.canOptimize() && diceSize.optimize() <= 1) {
-			return numDice.canOptimize();
+		/* Negative sizes are left to fail when rolled. */
+		if(diceSize.canOptimize()) {
+			final long optSize = diceSize.optimize();
+
+			if(optSize == 0 || optSize == 1) return numDice.canOptimize();
 		}
 
 		return false;
@@ -99,8 +129,12 @@ public class SimpleDie implements Die {
 		final long nDice = numDice.roll();
 		final long dSize = diceSize.roll();
 
+		if(!checkSides(dSize)) return 0;
+
+		final RandomGenerator gen = generator();
+
 		for(int i = 0; i < nDice; i++) {
-			total += Math.abs(DiceBox.rng.nextLong()) % dSize + 1;
+			total += gen.nextLong(dSize) + 1;
 		}
 
 		return total;
@@ -108,7 +142,91 @@ public class SimpleDie implements Die {
 
 	@Override
 	public long rollSingle() {
-		return Math.abs(DiceBox.rng.nextLong()) % diceSize.roll() + 1;
+		final long dSize = diceSize.roll();
+
+		if(!checkSides(dSize)) return 0;
+
+		return generator().nextLong(dSize) + 1;
+	}
+
+	/*
+	 * Check if dice with a given size can be rolled.
+	 *
+	 * Zero-sided dice roll zero, the same as optimize() and distribution()
+	 * treat them.
+	 */
+	private static boolean checkSides(final long size) {
+		if(size == 0) {
+			return false;
+		} else if(size < 0) {
+			String msg = String.format("Can't roll a die with %d sides", size);
+
+			throw new DieException(msg);
+		}
+
+		return true;
+	}
+
+	/* Get the generator to roll with. */
+	private RandomGenerator generator() {
+		return (rng == null ? DiceBox.rng : rng).get();
+	}
+
+	@Override
+	public Distribution distribution() {
+		final Distribution countDist = numDice.distribution();
+		final Distribution sizeDist  = diceSize.distribution();
+
+		/* Fast path for the usual case of NdS with fixed N and S. */
+		if(countDist.isPointMass() && sizeDist.isPointMass()) {
+			return sidesDistribution(sizeDist.minValue()).repeat(countDist.minValue());
+		}
+
+		/*
+		 * Both the count and the size are rolled once per roll, so
+		 * mix the sums for each combination of them.
+		 */
+		final int numParts = (int) ((countDist.maxValue() - countDist.minValue() + 1)
+				* (sizeDist.maxValue() - sizeDist.minValue() + 1));
+
+		final double[] weights     = new double[numParts];
+		final Distribution[] parts = new Distribution[numParts];
+
+		int idx = 0;
+		for(long size = sizeDist.minValue(); size <= sizeDist.maxValue(); size++) {
+			final double sizeProb = sizeDist.probability(size);
+
+			if(sizeProb == 0) continue;
+
+			final Distribution sides = sidesDistribution(size);
+
+			for(long count = countDist.minValue(); count <= countDist.maxValue(); count++) {
+				final double countProb = countDist.probability(count);
+
+				if(countProb == 0) continue;
+
+				weights[idx] = sizeProb * countProb;
+				parts[idx]   = sides.repeat(count);
+
+				idx += 1;
+			}
+		}
+
+		return Distribution.mixture(Arrays.copyOf(weights, idx), Arrays.copyOf(parts, idx));
+	}
+
+	/* Get the distribution of a single die with a given size. */
+	private static Distribution sidesDistribution(final long size) {
+		/* Zero-sided dice are treated like optimize() treats them. */
+		if(size == 0) {
+			return Distribution.pointMass(0);
+		} else if(size < 0) {
+			String msg = String.format("Can't compute distribution of a die with %d sides", size);
+
+			throw new DieException(msg);
+		}
+
+		return Distribution.uniform(1, size);
 	}
 
 	@Override
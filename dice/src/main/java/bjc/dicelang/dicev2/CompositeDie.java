@@ -1,6 +1,9 @@
 package bjc.dicelang.dicev2;
 
 import java.util.Random;
+import java.util.random.RandomGenerator;
+
+import bjc.dicelang.rng.RandomProvider;
 
 /**
  * A dice where both the number of dice to roll and the number of sides of the
@@ -94,6 +97,52 @@ public class CompositeDie extends Die {
 		this.rerollSides = rerollSides;
 	}
 
+	/**
+	 * Create a new composite dice using a specific source of RNGs, rolling
+	 * dice one per side.
+	 * 
+	 * @param rnd
+	 *                 Where to get the RNG from.
+	 * @param numDice
+	 *                 The number of dice to use.
+	 * @param numSides
+	 *                 The number of sides for the dice.
+	 */
+	public CompositeDie(RandomProvider rnd, Die numDice, Die numSides) {
+		this(rnd, numDice, numSides, false);
+	}
+
+	/**
+	 * Create a new composite dice using a specific source of RNGs and
+	 * side-rolling behavior.
+	 * 
+	 * @param rnd
+	 *                    Where to get the RNG from.
+	 * @param numDice
+	 *                    The number of dice to use.
+	 * @param numSides
+	 *                    The number of sides on the dice.
+	 * @param rerollSides
+	 *                    Whether to rolls the sides once per roll, or once per
+	 *                    dice.
+	 */
+	public CompositeDie(RandomProvider rnd, Die numDice, Die numSides, boolean rerollSides) {
+		super(rnd);
+
+		this.numDice = numDice;
+		this.numSides = numSides;
+
+		this.rerollSides = rerollSides;
+	}
+
+	@Override
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		numDice.setRandom(rnd);
+		numSides.setRandom(rnd);
+	}
+
 	@Override
 	public long[] roll() {
 		int target = (int) numDice.rollSingle();
@@ -101,8 +150,10 @@ public class CompositeDie extends Die {
 
 		long[] res = new long[target];
 
+		RandomGenerator gen = rng.get();
+
 		for (int i = 0; i < target; i++) {
-			res[i] = rng.nextInt(sides) + 1;
+			res[i] = gen.nextInt(sides) + 1;
 
 			if (rerollSides)
 				sides = (int) numSides.rollSingle();
@@ -111,9 +162,43 @@ public class CompositeDie extends Die {
 		return res;
 	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
+		int target = (int) numDice.rollSingle();
+		int sides = (int) numSides.rollSingle();
+
+		dest.ensureCapacity(dest.size() + target);
+
+		RandomGenerator gen = rng.get();
+
+		for (int i = 0; i < target; i++) {
+			dest.add(gen.nextInt(sides) + 1);
+
+			if (rerollSides)
+				sides = (int) numSides.rollSingle();
+		}
+	}
+
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		int target = (int) numDice.rollSingle();
+		int sides = (int) numSides.rollSingle();
+
+		RandomGenerator gen = rng.get();
+
+		for (int i = 0; i < target; i++) {
+			dest[offset + i] = gen.nextInt(sides) + 1;
+
+			if (rerollSides)
+				sides = (int) numSides.rollSingle();
+		}
+
+		return target;
+	}
+
 	@Override
 	public long rollSingle() {
-		return rng.nextInt((int) numSides.rollSingle());
+		return rng.get().nextInt((int) numSides.rollSingle()) + 1;
 	}
 
 	@Override
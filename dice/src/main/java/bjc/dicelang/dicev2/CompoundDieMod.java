@@ -1,11 +1,9 @@
 package bjc.dicelang.dicev2;
 
-import bjc.utils.funcutils.ListUtils;
-
-import java.util.ArrayList;
-import java.util.List;
 import java.util.function.LongPredicate;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * Create a compounding dice.
  * 
@@ -55,28 +53,38 @@ public class CompoundDieMod extends Die {
 	}
 
 	@Override
-	public long[] roll() {
-		List<Long> lst = new ArrayList<>(5);
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		for(Die die : dice) {
+			die.setRandom(rnd);
+		}
+	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
 		for(Die die : dice) {
-			for(long val : die.roll()) {
-				long res = val;
-				
-				long newVal = die.rollSingle();
+			int start = dest.size();
+
+			die.rollInto(dest);
+
+			/* Compound each result in place, the same way rollSingle does. */
+			for(int i = start; i < dest.size(); i++) {
+				long newVal = dest.get(i);
+
+				long res = newVal;
 
 				while(compound.test(newVal)) {
+					newVal = die.rollSingle();
+
 					if(penetrate) newVal -= 1;
 
 					res += newVal;
-
-					newVal = die.rollSingle();
 				}
 
-				lst.add(res);
+				dest.set(i, res);
 			}
 		}
-
-		return ListUtils.toPrimitive(lst);
 	}
 
 	@Override
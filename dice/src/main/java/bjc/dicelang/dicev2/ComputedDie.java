@@ -2,6 +2,9 @@ package bjc.dicelang.dicev2;
 
 import java.util.Random;
 import java.util.function.IntSupplier;
+import java.util.random.RandomGenerator;
+
+import bjc.dicelang.rng.RandomProvider;
 
 /**
  * Create a computed die, which gets its values from arbitrary functions.
@@ -73,6 +76,32 @@ public class ComputedDie extends Die {
 		this.rerollSides = rerollSides;
 	}
 
+	/**
+	 * Create a new computed die using a specified source of RNGs.
+	 * @param rnd Where to get the RNG from.
+	 * @param numDice The number of dice to roll.
+	 * @param numSides The number of sides on the dice.
+	 */
+	public ComputedDie(RandomProvider rnd, IntSupplier numDice, IntSupplier numSides) {
+		this(rnd, numDice, numSides, false);
+	}
+
+	/**
+	 * Create a new computed die using a specified source of RNGs and side-roll behavior.
+	 * @param rnd Where to get the RNG from.
+	 * @param numDice The number of dice to roll.
+	 * @param numSides The number of sides on the dice.
+	 * @param rerollSides Controls whether the number of sides should be rerolled once per die.
+	 */
+	public ComputedDie(RandomProvider rnd, IntSupplier numDice, IntSupplier numSides, boolean rerollSides) {
+		super(rnd);
+
+		this.numDice  = numDice;
+		this.numSides = numSides;
+
+		this.rerollSides = rerollSides;
+	}
+
 	@Override
 	public long[] roll() {
 		int target = numDice.getAsInt();
@@ -80,8 +109,10 @@ public class ComputedDie extends Die {
 
 		long[] res = new long[target];
 
+		RandomGenerator gen = rng.get();
+
 		for(int i = 0; i < target; i++) {
-			res[i] = rng.nextInt(sides) + 1;
+			res[i] = gen.nextInt(sides) + 1;
 
 			if(rerollSides) sides = numSides.getAsInt();
 		}
@@ -89,9 +120,41 @@ public class ComputedDie extends Die {
 		return res;
 	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
+		int target = numDice.getAsInt();
+		int sides  = numSides.getAsInt();
+
+		dest.ensureCapacity(dest.size() + target);
+
+		RandomGenerator gen = rng.get();
+
+		for(int i = 0; i < target; i++) {
+			dest.add(gen.nextInt(sides) + 1);
+
+			if(rerollSides) sides = numSides.getAsInt();
+		}
+	}
+
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		int target = numDice.getAsInt();
+		int sides  = numSides.getAsInt();
+
+		RandomGenerator gen = rng.get();
+
+		for(int i = 0; i < target; i++) {
+			dest[offset + i] = gen.nextInt(sides) + 1;
+
+			if(rerollSides) sides = numSides.getAsInt();
+		}
+
+		return target;
+	}
+
 	@Override
 	public long rollSingle() {
-		return rng.nextInt(numSides.getAsInt());
+		return rng.get().nextInt(numSides.getAsInt()) + 1;
 	}
 
 	/*
@@ -1,5 +1,7 @@
 package bjc.dicelang.dicev2;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * Concatentate a series of dice together.
  * @author Ben Culkin
@@ -21,22 +23,81 @@ public class ConcatDieMod extends Die {
 		this.dice = dice;
 	}
 
+	@Override
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		for(Die die : dice) {
+			die.setRandom(rnd);
+		}
+	}
+
 	@Override
 	public long[] roll() {
 		return new long[] { rollSingle() };
 	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
+		dest.add(rollSingle());
+	}
+
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		dest[offset] = rollSingle();
+
+		return 1;
+	}
+
 	@Override
 	public long rollSingle() {
-		StringBuilder sb = new StringBuilder();
+		RollBuffer vals = acquireScratch();
 
-		for(Die die : dice) {
-			for(long val : die.roll()) {
-				sb.append(val);
+		try {
+			for(Die die : dice) {
+				die.rollInto(vals);
 			}
+
+			if(vals.size() == 0) {
+				throw new NumberFormatException("No dice to concatenate");
+			}
+
+			long[] arr = vals.array();
+
+			long res = arr[0];
+			for(int i = 1; i < vals.size(); i++) {
+				res = appendDigits(res, arr[i]);
+			}
+
+			return res;
+		} finally {
+			releaseScratch(vals);
 		}
+	}
 
-		return Long.parseLong(sb.toString());
+	/*
+	 * Append the decimal digits of a value onto a number, the same as
+	 * parsing the concatenation of their strings would.
+	 */
+	private static long appendDigits(long acc, long val) {
+		if(val < 0) {
+			String msg = String.format("Can't concatenate negative value %d onto %d", val, acc);
+
+			throw new NumberFormatException(msg);
+		}
+
+		long scale = 10;
+		while(scale <= val) scale *= 10;
+
+		try {
+			long shifted = Math.multiplyExact(acc, scale);
+
+			return acc < 0 ? Math.subtractExact(shifted, val) : Math.addExact(shifted, val);
+		} catch(ArithmeticException aex) {
+			String msg = String.format("Concatenating %d onto %d overflows", val, acc);
+
+			throw new NumberFormatException(msg);
+		}
 	}
 
 	@Override
@@ -2,6 +2,8 @@ package bjc.dicelang.dicev2;
 
 import java.util.function.LongPredicate;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * Create a die pool that will count successes/failures.
  * @author Ben Culkin
@@ -49,24 +51,54 @@ public class CountDieMod extends Die {
 		this.dice    = dice;
 	}
 
+	@Override
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		for(Die die : dice) {
+			die.setRandom(rnd);
+		}
+	}
+
 	@Override
 	public long[] roll() {
 		return new long[] { rollSingle() };
 	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
+		dest.add(rollSingle());
+	}
+
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		dest[offset] = rollSingle();
+
+		return 1;
+	}
+
 	@Override
 	public long rollSingle() {
-		long count = 0;
+		RollBuffer vals = acquireScratch();
 
-		for(Die die : dice) {
-			for(long val : die.roll()) {
-				if(success.test(val)) count += 1;
+		try {
+			for(Die die : dice) {
+				die.rollInto(vals);
+			}
+
+			long count = 0;
+
+			long[] arr = vals.array();
+			for(int i = 0; i < vals.size(); i++) {
+				if(success.test(arr[i])) count += 1;
 
-				if(failure != null && failure.test(val)) count -= 1;
+				if(failure != null && failure.test(arr[i])) count -= 1;
 			}
-		}
 
-		return count;
+			return count;
+		} finally {
+			releaseScratch(vals);
+		}
 	}
 
 	/* :UnoptimizableDice */
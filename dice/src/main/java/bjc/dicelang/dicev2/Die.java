@@ -1,7 +1,10 @@
 package bjc.dicelang.dicev2;
 
+import java.util.ArrayDeque;
 import java.util.Random;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * An abstract class that represents a single pool of dice.
  * 
@@ -9,12 +12,18 @@ import java.util.Random;
  *
  */
 public abstract class Die {
-	private static final Random BASE = new Random();
+	private static final RandomProvider BASE = RandomProvider.threadLocal();
+
+	/* Spare scratch buffers for the current thread. */
+	private static final ThreadLocal<ArrayDeque<RollBuffer>> SCRATCH
+		= ThreadLocal.withInitial(ArrayDeque::new);
 
 	/**
-	 * The RNG to use.
+	 * Where to get the RNG to use from.
+	 * 
+	 * Fetch the generator once per roll, not once per die.
 	 */
-	protected Random rng;
+	protected RandomProvider rng;
 
 	/**
 	 * Create a new basic die.
@@ -30,6 +39,16 @@ public abstract class Die {
 	 *            The RNG to use.
 	 */
 	protected Die(Random rnd) {
+		this(RandomProvider.shared(rnd));
+	}
+
+	/**
+	 * Create a new basic die.
+	 * 
+	 * @param rnd
+	 *            Where to get the RNG to use from.
+	 */
+	protected Die(RandomProvider rnd) {
 		rng = rnd;
 	}
 
@@ -40,15 +59,91 @@ public abstract class Die {
 	 *            The RNG used by the die pool.
 	 */
 	public void setRandom(Random rnd) {
+		setRandom(RandomProvider.shared(rnd));
+	}
+
+	/**
+	 * Set where this die pool gets its RNG from.
+	 * 
+	 * Die pools built out of other die pools set it for those as well.
+	 * 
+	 * @param rnd
+	 *            Where the die pool gets its RNG from.
+	 */
+	public void setRandom(RandomProvider rnd) {
 		rng = rnd;
 	}
 
+	/**
+	 * Get where this die pool gets its RNG from.
+	 * 
+	 * @return Where the die pool gets its RNG from.
+	 */
+	public RandomProvider getRandom() {
+		return rng;
+	}
+
 	/**
 	 * Roll the entire die pool.
 	 * 
 	 * @return The results from rolling the dice.
 	 */
-	public abstract long[] roll();
+	public long[] roll() {
+		RollBuffer buf = new RollBuffer();
+
+		rollInto(buf);
+
+		return buf.toArray();
+	}
+
+	/**
+	 * Roll the entire die pool, adding the results to the end of a buffer.
+	 * 
+	 * @param dest
+	 *            The buffer to add the results to.
+	 */
+	public abstract void rollInto(RollBuffer dest);
+
+	/**
+	 * Roll the entire die pool, storing the results into an array.
+	 * 
+	 * @param dest
+	 *            The array to store the results into.
+	 * @param offset
+	 *            The index to store the first result at.
+	 * 
+	 * @return The number of results that were stored.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             If the results don't fit into the array.
+	 */
+	public int rollInto(long[] dest, int offset) {
+		RollBuffer buf = acquireScratch();
+
+		try {
+			rollInto(buf);
+
+			System.arraycopy(buf.array(), 0, dest, offset, buf.size());
+
+			return buf.size();
+		} finally {
+			releaseScratch(buf);
+		}
+	}
+
+	/**
+	 * Roll a single die in the pool a number of times.
+	 * 
+	 * @param n
+	 *            The number of times to roll.
+	 * @param out
+	 *            The array to store the results into.
+	 */
+	public void rollMany(int n, long[] out) {
+		for (int i = 0; i < n; i++) {
+			out[i] = rollSingle();
+		}
+	}
 
 	/**
 	 * Roll a single die in the pool.
@@ -74,4 +169,54 @@ public abstract class Die {
 	 * @return The optimized version of the pool.
 	 */
 	public abstract long optimize();
+
+	/**
+	 * Get the lowest value any single result of this pool can be.
+	 * 
+	 * Pools that can't tell return Long.MIN_VALUE.
+	 * 
+	 * @return The lowest possible result.
+	 */
+	public long minFace() {
+		return Long.MIN_VALUE;
+	}
+
+	/**
+	 * Get the highest value any single result of this pool can be.
+	 * 
+	 * Pools that can't tell return Long.MAX_VALUE.
+	 * 
+	 * @return The highest possible result.
+	 */
+	public long maxFace() {
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Get an empty scratch buffer for holding intermediate results.
+	 * 
+	 * The buffer should be handed back with {@link #releaseScratch(RollBuffer)}
+	 * once it is no longer needed.
+	 * 
+	 * @return An empty scratch buffer.
+	 */
+	protected static RollBuffer acquireScratch() {
+		RollBuffer buf = SCRATCH.get().pollLast();
+
+		if (buf == null) return new RollBuffer();
+
+		buf.clear();
+
+		return buf;
+	}
+
+	/**
+	 * Hand back a scratch buffer, so that it can be reused.
+	 * 
+	 * @param buf
+	 *            The buffer to hand back.
+	 */
+	protected static void releaseScratch(RollBuffer buf) {
+		SCRATCH.get().addLast(buf);
+	}
 }
@@ -0,0 +1,39 @@
+package bjc.dicelang.dicev2;
+
+import bjc.dicelang.dice.Distribution;
+
+/**
+ * The computed distribution of a die pool, along with how much probability
+ * was cut off to make it finite.
+ * 
+ * @author Ben Culkin
+ *
+ */
+public final class DieDistribution {
+	/**
+	 * The distribution, which is missing the tail mass.
+	 */
+	public final Distribution distribution;
+
+	/**
+	 * The probability of the results that were cut off from the end of
+	 * explosions.
+	 */
+	public final double tailMass;
+
+	/**
+	 * Create a new die distribution.
+	 * 
+	 * @param distribution The distribution.
+	 * @param tailMass The probability of the results that were cut off.
+	 */
+	public DieDistribution(Distribution distribution, double tailMass) {
+		this.distribution = distribution;
+		this.tailMass = tailMass;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (tail mass %g)", distribution, tailMass);
+	}
+}
@@ -1,7 +1,5 @@
 package bjc.dicelang.dicev2;
 
-import bjc.data.GeneratingIterator;
-
 import java.util.Comparator;
 import java.util.function.LongPredicate;
 import java.util.function.LongBinaryOperator;
@@ -249,10 +247,9 @@ public class DieMods {
 	 * @return A die pool that sorts in descending order.
 	 */
 	public static Die descending(Die die) {
-		return new SortDieMod(Long::compare, die);
+		return new SortDieMod(Comparator.reverseOrder(), die);
 	}
 
-	/* :SyntheticMod */
 	/**
 	 * Create a die pool that takes the first n dice.
 	 * @param num The number of dice to take.
@@ -260,21 +257,9 @@ public class DieMods {
 	 * @return The die pool that takes the first n dice.
 	 */
 	public static Die take(int num, Die die) {
-		GeneratingIterator<Integer> itr = new GeneratingIterator<>(num, (val) -> {
-			return val - 1;
-		}, (val) -> val == 0);
-
-		return filter((val) -> {
-			if (itr.hasNext()) {
-				itr.next();
-				return true;
-			}
-
-			return false;
-		}, die);
+		return new SliceDieMod(0, num, die);
 	}
 
-	/* :SyntheticMod */
 	/**
 	 * Create a die pool that drops the first n dice.
 	 * @param num The number of dice to drops.
@@ -282,18 +267,7 @@ public class DieMods {
 	 * @return The die pool that drops the first n dice.
 	 */
 	public static Die drop(int num, Die die) {
-		GeneratingIterator<Integer> itr = new GeneratingIterator<>(num, (val) -> {
-			return val - 1;
-		}, (val) -> val == 0);
-
-		return filter((val) -> {
-			if (itr.hasNext()) {
-				itr.next();
-				return false;
-			}
-
-			return true;
-		}, die);
+		return new SliceDieMod(num, Integer.MAX_VALUE, die);
 	}
 
 	/* :SyntheticMod */
@@ -0,0 +1,496 @@
+package bjc.dicelang.dicev2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+
+import bjc.dicelang.dice.Distribution;
+import bjc.dicelang.dice.OrderStatistics;
+
+/**
+ * Computes the exact distributions of die pools, instead of sampling them.
+ * 
+ * The results of a pool are treated as a sequence of independent parts, each
+ * of which is either a single result or a chain of exploding results. Sums,
+ * counts and other reductions are worked out by carrying the distribution of
+ * the running value through each part in turn.
+ * 
+ * Explosions and compounding can go on forever, so each chain is cut off once
+ * less than epsilon of its probability is left. Whatever was cut off is
+ * reported as the tail mass.
+ * 
+ * Only scalar, polyhedral and fudge dice, and the pool, filter, explode,
+ * compound, count and reduce mods are supported. The totals of sorted and
+ * sliced pools are also supported, as long as the sliced pool always has the
+ * same number of results; keeping or dropping the highest or lowest of a pool
+ * of identical dice uses {@link OrderStatistics}.
+ * 
+ * @author Ben Culkin
+ *
+ */
+public final class DistributionPass {
+	/**
+	 * The default probability at which explosions are cut off.
+	 */
+	public static final double DEFAULT_EPSILON = 1e-12;
+
+	/*
+	 * The most rolls an explosion is followed for, in case it can't stop.
+	 */
+	private static final int MAX_CHAIN = 1 << 16;
+
+	/* The probability at which explosions are cut off. */
+	private final double epsilon;
+
+	/* Part of a roll, which is either one result or an exploding chain. */
+	private static final class Part {
+		/* The distribution of the first result. */
+		public final Map<Long, Double> first;
+
+		/* The die explosions are rolled with, or null. */
+		public final Map<Long, Double> single;
+		public final LongPredicate explode;
+		public final boolean penetrate;
+
+		/* Which results are kept, or null to keep all of them. */
+		public final LongPredicate filter;
+
+		public Part(Map<Long, Double> first, Map<Long, Double> single, LongPredicate explode,
+				boolean penetrate, LongPredicate filter) {
+			this.first = first;
+
+			this.single = single;
+			this.explode = explode;
+			this.penetrate = penetrate;
+
+			this.filter = filter;
+		}
+
+		public Part(Map<Long, Double> first) {
+			this(first, null, null, false, null);
+		}
+
+		public boolean isPlain() {
+			return explode == null && filter == null;
+		}
+	}
+
+	/**
+	 * Create a new distribution pass, with the default epsilon.
+	 */
+	public DistributionPass() {
+		this(DEFAULT_EPSILON);
+	}
+
+	/**
+	 * Create a new distribution pass.
+	 * 
+	 * @param epsilon The probability at which explosions are cut off.
+	 */
+	public DistributionPass(double epsilon) {
+		if(!(epsilon >= 0 && epsilon < 1)) {
+			throw new IllegalArgumentException("Epsilon must be in [0, 1), not " + epsilon);
+		}
+
+		this.epsilon = epsilon;
+	}
+
+	/**
+	 * Compute the distribution of the sum of the results of a die pool.
+	 * 
+	 * @param die The die pool.
+	 * 
+	 * @return The distribution of the sum of its results.
+	 * 
+	 * @throws UnsupportedOperationException If the pool contains an unsupported die.
+	 */
+	public DieDistribution total(Die die) {
+		return finish(totalOf(die));
+	}
+
+	/**
+	 * Compute the distribution of rolling a single die from a pool.
+	 * 
+	 * This is the distribution of {@link Die#rollSingle()}; for count and
+	 * reduce mods, it is the distribution of the count or reduction.
+	 * 
+	 * @param die The die pool.
+	 * 
+	 * @return The distribution of a single die in the pool.
+	 * 
+	 * @throws UnsupportedOperationException If the pool contains an unsupported die.
+	 */
+	public DieDistribution single(Die die) {
+		return finish(singleOf(die));
+	}
+
+	/* Convert a sparse distribution into a dense one. */
+	private static DieDistribution finish(Map<Long, Double> dist) {
+		long lo = Long.MAX_VALUE;
+		long hi = Long.MIN_VALUE;
+
+		double mass = 0;
+
+		for(Map.Entry<Long, Double> ent : dist.entrySet()) {
+			lo = Math.min(lo, ent.getKey());
+			hi = Math.max(hi, ent.getKey());
+
+			mass += ent.getValue();
+		}
+
+		if(hi < lo || hi - lo >= Distribution.MAX_SUPPORT) {
+			throw new UnsupportedOperationException("Distribution is too wide to compute");
+		}
+
+		double[] table = new double[(int) (hi - lo) + 1];
+
+		for(Map.Entry<Long, Double> ent : dist.entrySet()) {
+			table[(int) (ent.getKey() - lo)] += ent.getValue();
+		}
+
+		return new DieDistribution(Distribution.of(lo, table), Math.max(0, 1 - mass));
+	}
+
+	/* Get the distribution of the sum of a die pool. */
+	private Map<Long, Double> totalOf(Die die) {
+		if(die instanceof PoolDiceMod) {
+			/* The children might be sliced, so sum them separately. */
+			Map<Long, Double> res = point(0);
+
+			for(Die child : ((PoolDiceMod) die).dice) {
+				res = convolve(res, totalOf(child));
+			}
+
+			return res;
+		} else if(die instanceof SortDieMod) {
+			/* Sorting doesn't change the sum. */
+			return totalOf(((SortDieMod) die).die);
+		} else if(die instanceof SliceDieMod) {
+			return sliceTotal((SliceDieMod) die);
+		}
+
+		return reduce(parts(die), Long::sum, 0);
+	}
+
+	/* Get the distribution of the sum of a sliced die pool. */
+	private Map<Long, Double> sliceTotal(SliceDieMod slice) {
+		Die inner = slice.die;
+
+		Comparator<Long> sorter = null;
+
+		if(inner instanceof SortDieMod) {
+			sorter = ((SortDieMod) inner).sorter;
+			inner = ((SortDieMod) inner).die;
+		}
+
+		List<Part> parts = plainParts(inner, "slic");
+
+		int from = Math.min(slice.skip, parts.size());
+		int to = (int) Math.min((long) slice.skip + slice.keep, parts.size());
+
+		if(sorter == null) {
+			/* The kept results are always the same ones. */
+			return reduce(parts.subList(from, to), Long::sum, 0);
+		}
+
+		boolean ascending = sorter == Comparator.<Long>naturalOrder();
+		boolean descending = sorter == Comparator.<Long>reverseOrder();
+
+		if(!ascending && !descending) {
+			throw new UnsupportedOperationException("Can't compute the distribution of a custom sort");
+		}
+
+		if(parts.isEmpty() || from == to) return point(0);
+
+		Map<Long, Double> face = parts.get(0).first;
+
+		for(Part part : parts) {
+			if(!part.first.equals(face)) {
+				throw new UnsupportedOperationException("Can't compute the distribution of slicing different dice");
+			}
+		}
+
+		Distribution dist = OrderStatistics.sliceSum(finish(face).distribution, parts.size(),
+				slice.skip, slice.keep, descending);
+
+		Map<Long, Double> res = new HashMap<>();
+
+		for(long val = dist.minValue(); val <= dist.maxValue(); val++) {
+			double prob = dist.probability(val);
+
+			if(prob != 0) res.put(val, prob);
+		}
+
+		return res;
+	}
+
+	/* Get the distribution of the sum of two independent results. */
+	private static Map<Long, Double> convolve(Map<Long, Double> left, Map<Long, Double> right) {
+		Map<Long, Double> res = new HashMap<>();
+
+		for(Map.Entry<Long, Double> lft : left.entrySet()) {
+			for(Map.Entry<Long, Double> rght : right.entrySet()) {
+				res.merge(lft.getKey() + rght.getKey(), lft.getValue() * rght.getValue(), Double::sum);
+			}
+		}
+
+		return res;
+	}
+
+	/* Get the distribution of rolling a single die. */
+	private Map<Long, Double> singleOf(Die die) {
+		if(die instanceof ScalarDie) {
+			return point(((ScalarDie) die).val);
+		} else if(die instanceof PolyhedralDie) {
+			return uniform(1, ((PolyhedralDie) die).numSides);
+		} else if(die instanceof FudgeDie) {
+			return uniform(-1, 1);
+		} else if(die instanceof CompoundDieMod) {
+			CompoundDieMod mod = (CompoundDieMod) die;
+
+			Map<Long, Double> base = singleOf(mod.dice[0]);
+
+			return compound(base, base, mod.compound, mod.penetrate);
+		} else if(die instanceof CountDieMod) {
+			CountDieMod mod = (CountDieMod) die;
+
+			LongPredicate success = mod.success;
+			LongPredicate failure = mod.failure;
+
+			return reduce(parts(mod.dice), (acc, val) -> {
+				long res = acc;
+
+				if(success.test(val)) res += 1;
+				if(failure != null && failure.test(val)) res -= 1;
+
+				return res;
+			}, 0);
+		} else if(die instanceof ReduceDieMod) {
+			ReduceDieMod mod = (ReduceDieMod) die;
+
+			return reduce(parts(mod.dice), mod.fold, mod.initial);
+		}
+
+		String msg = String.format("Can't compute the distribution of a single %s",
+				die.getClass().getSimpleName());
+
+		throw new UnsupportedOperationException(msg);
+	}
+
+	/* Split the results of several die pools into parts. */
+	private List<Part> parts(Die[] dice) {
+		List<Part> res = new ArrayList<>();
+
+		for(Die die : dice) {
+			res.addAll(parts(die));
+		}
+
+		return res;
+	}
+
+	/* Split the results of a die pool into parts. */
+	private List<Part> parts(Die die) {
+		List<Part> res = new ArrayList<>();
+
+		if(die instanceof PolyhedralDie || die instanceof FudgeDie) {
+			int numDice = die instanceof PolyhedralDie
+					? ((PolyhedralDie) die).numDice
+					: ((FudgeDie) die).numDice;
+
+			Map<Long, Double> face = singleOf(die);
+
+			for(int i = 0; i < numDice; i++) {
+				res.add(new Part(face));
+			}
+		} else if(die instanceof ScalarDie || die instanceof CountDieMod
+				|| die instanceof ReduceDieMod) {
+			/* These always give one result. */
+			res.add(new Part(singleOf(die)));
+		} else if(die instanceof PoolDiceMod) {
+			res.addAll(parts(((PoolDiceMod) die).dice));
+		} else if(die instanceof FilterDieMod) {
+			FilterDieMod mod = (FilterDieMod) die;
+
+			for(Part part : parts(mod.dice)) {
+				LongPredicate filter = part.filter == null
+						? mod.filter
+						: part.filter.and(mod.filter);
+
+				res.add(new Part(part.first, part.single, part.explode, part.penetrate, filter));
+			}
+		} else if(die instanceof ExplodingDieMod) {
+			ExplodingDieMod mod = (ExplodingDieMod) die;
+
+			for(Die inner : mod.dice) {
+				Map<Long, Double> single = null;
+
+				for(Part part : plainParts(inner, "explode")) {
+					/* Only look for the single die if it can explode. */
+					if(single == null) single = singleOf(inner);
+
+					res.add(new Part(part.first, single, mod.explode, mod.penetrate, null));
+				}
+			}
+		} else if(die instanceof CompoundDieMod) {
+			CompoundDieMod mod = (CompoundDieMod) die;
+
+			for(Die inner : mod.dice) {
+				Map<Long, Double> single = null;
+
+				for(Part part : plainParts(inner, "compound")) {
+					if(single == null) single = singleOf(inner);
+
+					res.add(new Part(compound(part.first, single, mod.compound, mod.penetrate)));
+				}
+			}
+		} else {
+			String msg = String.format("Can't compute the distribution of a %s",
+					die.getClass().getSimpleName());
+
+			throw new UnsupportedOperationException(msg);
+		}
+
+		return res;
+	}
+
+	/* Get the parts of a die pool, which must be single results. */
+	private List<Part> plainParts(Die die, String action) {
+		List<Part> res = parts(die);
+
+		for(Part part : res) {
+			if(!part.isPlain()) {
+				String msg = String.format("Can't compute the distribution of a %s that is %sed",
+						die.getClass().getSimpleName(), action);
+
+				throw new UnsupportedOperationException(msg);
+			}
+		}
+
+		return res;
+	}
+
+	/* Compute the distribution of compounding a die. */
+	private Map<Long, Double> compound(Map<Long, Double> first, Map<Long, Double> single,
+			LongPredicate compound, boolean penetrate) {
+		Part chain = new Part(first, single, compound, penetrate, null);
+
+		List<Part> parts = new ArrayList<>(1);
+		parts.add(chain);
+
+		return reduce(parts, Long::sum, 0);
+	}
+
+	/*
+	 * Carry the distribution of a running value through a sequence of parts.
+	 */
+	private Map<Long, Double> reduce(List<Part> parts, LongBinaryOperator fold, long initial) {
+		Map<Long, Double> state = point(initial);
+
+		for(Part part : parts) {
+			if(part.explode == null) {
+				state = step(state, part.first, false, part, fold, null, null);
+
+				continue;
+			}
+
+			/* The states where the last result exploded. */
+			Map<Long, Double> live = new HashMap<>();
+			Map<Long, Double> done = new HashMap<>();
+
+			step(state, part.first, false, part, fold, live, done);
+
+			double startMass = mass(state);
+
+			for(int i = 0; i < MAX_CHAIN; i++) {
+				if(live.isEmpty() || mass(live) <= epsilon * startMass) break;
+
+				Map<Long, Double> next = new HashMap<>();
+
+				step(live, part.single, part.penetrate, part, fold, next, done);
+
+				live = next;
+			}
+
+			/* Anything still exploding is cut off. */
+			state = done;
+		}
+
+		return state;
+	}
+
+	/*
+	 * Roll one result for every state, and sort the new states by whether
+	 * the result explodes. With no explosions, return the new states.
+	 */
+	private static Map<Long, Double> step(Map<Long, Double> state, Map<Long, Double> roll,
+			boolean penetrate, Part part, LongBinaryOperator fold, Map<Long, Double> live, Map<Long, Double> done) {
+		Map<Long, Double> res = done == null ? new HashMap<>() : done;
+
+		for(Map.Entry<Long, Double> st : state.entrySet()) {
+			long acc = st.getKey();
+			double accProb = st.getValue();
+
+			for(Map.Entry<Long, Double> rl : roll.entrySet()) {
+				long val = rl.getKey();
+
+				/* Only the results after the first one penetrate. */
+				if(penetrate) val -= 1;
+
+				double prob = accProb * rl.getValue();
+
+				if(prob == 0) continue;
+
+				long newAcc = acc;
+				if(part.filter == null || part.filter.test(val)) {
+					newAcc = fold.applyAsLong(acc, val);
+				}
+
+				if(live != null && part.explode.test(val)) {
+					live.merge(newAcc, prob, Double::sum);
+				} else {
+					res.merge(newAcc, prob, Double::sum);
+				}
+			}
+		}
+
+		return res;
+	}
+
+	private static double mass(Map<Long, Double> dist) {
+		double res = 0;
+
+		for(double prob : dist.values()) {
+			res += prob;
+		}
+
+		return res;
+	}
+
+	private static Map<Long, Double> point(long val) {
+		Map<Long, Double> res = new HashMap<>();
+
+		res.put(val, 1.0);
+
+		return res;
+	}
+
+	private static Map<Long, Double> uniform(long lo, long hi) {
+		if(hi < lo) {
+			throw new UnsupportedOperationException("Can't compute the distribution of a die with no sides");
+		}
+
+		Map<Long, Double> res = new HashMap<>();
+
+		double prob = 1.0 / (hi - lo + 1);
+
+		for(long val = lo; val <= hi; val++) {
+			res.put(val, prob);
+		}
+
+		return res;
+	}
+}
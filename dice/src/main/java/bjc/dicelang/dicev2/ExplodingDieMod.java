@@ -1,11 +1,9 @@
 package bjc.dicelang.dicev2;
 
-import bjc.utils.funcutils.ListUtils;
-
-import java.util.ArrayList;
-import java.util.List;
 import java.util.function.LongPredicate;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * An exploding die pool.
  * @author Ben Culkin
@@ -53,26 +51,42 @@ public class ExplodingDieMod extends Die {
 	}
 
 	@Override
-	public long[] roll() {
-		List<Long> lst = new ArrayList<>(dice.length);
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
 
 		for(Die die : dice) {
-			for(long val : die.roll()) {
-				lst.add(val);
+			die.setRandom(rnd);
+		}
+	}
+
+	@Override
+	public void rollInto(RollBuffer dest) {
+		RollBuffer rolls = acquireScratch();
+
+		try {
+			for(Die die : dice) {
+				rolls.clear();
 
-				long newVal = val;
+				die.rollInto(rolls);
 
-				while(explode.test(newVal)) {
-					newVal = die.rollSingle();
+				/* Explosions go right after the die that caused them. */
+				for(int i = 0; i < rolls.size(); i++) {
+					long newVal = rolls.get(i);
 
-					if(penetrate) newVal -= 1;
+					dest.add(newVal);
 
-					lst.add(newVal);
+					while(explode.test(newVal)) {
+						newVal = die.rollSingle();
+
+						if(penetrate) newVal -= 1;
+
+						dest.add(newVal);
+					}
 				}
 			}
+		} finally {
+			releaseScratch(rolls);
 		}
-
-		return ListUtils.toPrimitive(lst);
 	}
 
 	/*
@@ -98,4 +112,29 @@ public class ExplodingDieMod extends Die {
 	public long optimize() {
 		throw new UnsupportedOperationException("Exploding dice can't be optimized");
 	}
+
+	@Override
+	public long minFace() {
+		long min = Long.MAX_VALUE;
+
+		for(Die die : dice) {
+			min = Math.min(min, die.minFace());
+		}
+
+		/* Penetrating explosions knock one off of the extra dice. */
+		if(penetrate && min != Long.MIN_VALUE) min -= 1;
+
+		return min;
+	}
+
+	@Override
+	public long maxFace() {
+		long max = Long.MIN_VALUE;
+
+		for(Die die : dice) {
+			max = Math.max(max, die.maxFace());
+		}
+
+		return max;
+	}
 }
@@ -1,12 +1,9 @@
 package bjc.dicelang.dicev2;
 
-import bjc.utils.funcutils.ListUtils;
-
-import java.util.ArrayList;
-import java.util.List;
-
 import java.util.function.LongPredicate;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * A filtered die pool. 
  * @author Ben Culkin
@@ -38,16 +35,31 @@ public class FilterDieMod extends Die {
 	}
 
 	@Override
-	public long[] roll() {
-		List<Long> lst = new ArrayList<>(dice.length);
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
 
 		for(Die die : dice) {
-			for(long val : die.roll()) {
-				if(filter.test(val)) lst.add(val);
-			}
+			die.setRandom(rnd);
 		}
+	}
 
-		return ListUtils.toPrimitive(lst);
+	@Override
+	public void rollInto(RollBuffer dest) {
+		int start = dest.size();
+
+		for(Die die : dice) {
+			die.rollInto(dest);
+		}
+
+		/* Compact the results that pass the filter down in place. */
+		long[] vals = dest.array();
+
+		int kept = start;
+		for(int i = start; i < dest.size(); i++) {
+			if(filter.test(vals[i])) vals[kept++] = vals[i];
+		}
+
+		dest.truncate(kept);
 	}
 
 	@Override
@@ -66,4 +78,26 @@ public class FilterDieMod extends Die {
 	public long optimize() {
 		throw new UnsupportedOperationException("Filtered dice can't be optimized");
 	}
+
+	@Override
+	public long minFace() {
+		long min = Long.MAX_VALUE;
+
+		for(Die die : dice) {
+			min = Math.min(min, die.minFace());
+		}
+
+		return min;
+	}
+
+	@Override
+	public long maxFace() {
+		long max = Long.MIN_VALUE;
+
+		for(Die die : dice) {
+			max = Math.max(max, die.maxFace());
+		}
+
+		return max;
+	}
 }
@@ -1,6 +1,9 @@
 package bjc.dicelang.dicev2;
 
 import java.util.Random;
+import java.util.random.RandomGenerator;
+
+import bjc.dicelang.rng.RandomProvider;
 
 /**
  * Create a set of Fudge dice.
@@ -39,21 +42,53 @@ public class FudgeDie extends Die {
 		this.numDice = numDice;
 	}
 
+	/**
+	 * Create a new pool for fudge dice.
+	 * 
+	 * @param rnd Where to get the random number generator from.
+	 * @param numDice The number of dice in the pool.
+	 */
+	public FudgeDie(RandomProvider rnd, int numDice) {
+		super(rnd);
+
+		this.numDice = numDice;
+	}
+
 	@Override
 	public long[] roll() {
 		long[] res = new long[numDice];
 
+		rollInto(res, 0);
+
+		return res;
+	}
+
+	@Override
+	public void rollInto(RollBuffer dest) {
+		dest.ensureCapacity(dest.size() + numDice);
+
+		RandomGenerator gen = rng.get();
+
 		for(int i = 0; i < numDice; i++) {
-			res[i] = rollSingle();
+			dest.add(gen.nextInt(3) - 1);
 		}
+	}
 
-		return res;
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		RandomGenerator gen = rng.get();
+
+		for(int i = 0; i < numDice; i++) {
+			dest[offset + i] = gen.nextInt(3) - 1;
+		}
+
+		return numDice;
 	}
 
 	@Override
 	public long rollSingle() {
 		/* Return an int in the range [-1, 1] */
-		return rng.nextInt(3) - 1;
+		return rng.get().nextInt(3) - 1;
 	}
 
 	@Override
@@ -65,4 +100,14 @@ public class FudgeDie extends Die {
 	public long optimize() {
 		return 0;
 	}
+
+	@Override
+	public long minFace() {
+		return -1;
+	}
+
+	@Override
+	public long maxFace() {
+		return 1;
+	}
 }
@@ -2,6 +2,8 @@ package bjc.dicelang.dicev2;
 
 import java.util.function.LongUnaryOperator;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * Die pool which executes a mapping on the result.
  * 
@@ -32,6 +34,13 @@ public class MapDieMod extends Die {
 		this.map = map;
 	}
 
+	@Override
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		die.setRandom(rnd);
+	}
+
 	@Override
 	public long[] roll() {
 		long[] res = die.roll();
@@ -43,6 +52,18 @@ public class MapDieMod extends Die {
 		return res;
 	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
+		int start = dest.size();
+
+		die.rollInto(dest);
+
+		long[] vals = dest.array();
+		for(int i = start; i < dest.size(); i++) {
+			vals[i] = map.applyAsLong(vals[i]);
+		}
+	}
+
 	@Override
 	public long rollSingle() {
 		return map.applyAsLong(die.rollSingle());
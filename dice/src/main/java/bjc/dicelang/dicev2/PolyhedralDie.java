@@ -1,6 +1,9 @@
 package bjc.dicelang.dicev2;
 
 import java.util.Random;
+import java.util.random.RandomGenerator;
+
+import bjc.dicelang.rng.RandomProvider;
 
 /**
  * Polyhedral die pool
@@ -45,21 +48,55 @@ public class PolyhedralDie extends Die {
 		this.numSides = numSides;
 	}
 
+	/**
+	 * Create a new polyhedral die pool.
+	 * 
+	 * @param rnd Where to get the random number generator from.
+	 * @param numDice The number of dice in the pool.
+	 * @param numSides The number of side on each die.
+	 */
+	public PolyhedralDie(RandomProvider rnd, int numDice, int numSides) {
+		super(rnd);
+
+		this.numDice  = numDice;
+		this.numSides = numSides;
+	}
+
 	@Override
 	public long[] roll() {
 		long[] res = new long[numDice];
 
+		rollInto(res, 0);
+
+		return res;
+	}
+
+	@Override
+	public void rollInto(RollBuffer dest) {
+		dest.ensureCapacity(dest.size() + numDice);
+
+		RandomGenerator gen = rng.get();
+
 		for(int i = 0; i < numDice; i++) {
-			res[i] = rollSingle();
+			dest.add(gen.nextInt(numSides) + 1);
 		}
+	}
 
-		return res;
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		RandomGenerator gen = rng.get();
+
+		for(int i = 0; i < numDice; i++) {
+			dest[offset + i] = gen.nextInt(numSides) + 1;
+		}
+
+		return numDice;
 	}
 
 	@Override
 	public long rollSingle() {
 		/* nextInt is from 0 (inclusive) to numSides (exclusive) */
-		return rng.nextInt(numSides) + 1;
+		return rng.get().nextInt(numSides) + 1;
 	}
 
 	@Override
@@ -73,4 +110,14 @@ public class PolyhedralDie extends Die {
 
 		return numDice;
 	}
+
+	@Override
+	public long minFace() {
+		return 1;
+	}
+
+	@Override
+	public long maxFace() {
+		return numSides;
+	}
 }
@@ -1,9 +1,6 @@
 package bjc.dicelang.dicev2;
 
-import bjc.utils.funcutils.ListUtils;
-
-import java.util.ArrayList;
-import java.util.List;
+import bjc.dicelang.rng.RandomProvider;
 
 /**
  * Converts a die pool into a single die.
@@ -32,16 +29,19 @@ public class PoolDiceMod extends Die {
 	}
 
 	@Override
-	public long[] roll() {
-		List<Long> lst = new ArrayList<>(dice.length);
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
 
 		for(Die die : dice) {
-			for(long val : die.roll()) {
-				lst.add(val);
-			}
+			die.setRandom(rnd);
 		}
+	}
 
-		return ListUtils.toPrimitive(lst);
+	@Override
+	public void rollInto(RollBuffer dest) {
+		for(Die die : dice) {
+			die.rollInto(dest);
+		}
 	}
 
 	/* :NoSingleRolls */
@@ -60,4 +60,26 @@ public class PoolDiceMod extends Die {
 	public long optimize() {
 		throw new UnsupportedOperationException("Pooled dice can't be optimized");
 	}
+
+	@Override
+	public long minFace() {
+		long min = Long.MAX_VALUE;
+
+		for(Die die : dice) {
+			min = Math.min(min, die.minFace());
+		}
+
+		return min;
+	}
+
+	@Override
+	public long maxFace() {
+		long max = Long.MIN_VALUE;
+
+		for(Die die : dice) {
+			max = Math.max(max, die.maxFace());
+		}
+
+		return max;
+	}
 }
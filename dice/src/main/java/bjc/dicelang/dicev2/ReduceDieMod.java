@@ -2,6 +2,8 @@ package bjc.dicelang.dicev2;
 
 import java.util.function.LongBinaryOperator;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * Die pool which performs a reduction.
  * 
@@ -40,22 +42,52 @@ public class ReduceDieMod extends Die {
 		this.initial = initial;
 	}
 
+	@Override
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		for(Die die : dice) {
+			die.setRandom(rnd);
+		}
+	}
+
 	@Override
 	public long[] roll() {
 		return new long[] { rollSingle() };
 	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
+		dest.add(rollSingle());
+	}
+
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		dest[offset] = rollSingle();
+
+		return 1;
+	}
+
 	@Override
 	public long rollSingle() {
-		long res = initial;
+		RollBuffer vals = acquireScratch();
 
-		for(Die die : dice) {
-			for(long val : die.roll()) {
-				res = fold.applyAsLong(res, val);
+		try {
+			for(Die die : dice) {
+				die.rollInto(vals);
 			}
-		}
 
-		return res;
+			long res = initial;
+
+			long[] arr = vals.array();
+			for(int i = 0; i < vals.size(); i++) {
+				res = fold.applyAsLong(res, arr[i]);
+			}
+
+			return res;
+		} finally {
+			releaseScratch(vals);
+		}
 	}
 
 	@Override
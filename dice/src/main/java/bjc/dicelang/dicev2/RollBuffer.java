@@ -0,0 +1,135 @@
+package bjc.dicelang.dicev2;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of die results.
+ *
+ * Buffers are meant to be reused across rolls, so that once they have grown
+ * large enough, rolling into them doesn't need to allocate anything.
+ *
+ * @author Ben Culkin
+ *
+ */
+public final class RollBuffer {
+	/* The stored results. Only the first size entries are valid. */
+	private long[] vals;
+
+	/* The number of stored results. */
+	private int size;
+
+	/**
+	 * Create a new empty buffer.
+	 */
+	public RollBuffer() {
+		this(16);
+	}
+
+	/**
+	 * Create a new empty buffer with a given starting capacity.
+	 *
+	 * @param capacity The number of results the buffer can hold before growing.
+	 */
+	public RollBuffer(int capacity) {
+		vals = new long[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Add a result to the end of the buffer.
+	 *
+	 * @param val The result to add.
+	 */
+	public void add(long val) {
+		if(size == vals.length) ensureCapacity(size + 1);
+
+		vals[size++] = val;
+	}
+
+	/**
+	 * Get a result from the buffer.
+	 *
+	 * @param idx The index of the result.
+	 * @return The result at that index.
+	 */
+	public long get(int idx) {
+		if(idx < 0 || idx >= size) throw new IndexOutOfBoundsException(idx);
+
+		return vals[idx];
+	}
+
+	/**
+	 * Replace a result in the buffer.
+	 *
+	 * @param idx The index of the result.
+	 * @param val The new value for the result.
+	 */
+	public void set(int idx, long val) {
+		if(idx < 0 || idx >= size) throw new IndexOutOfBoundsException(idx);
+
+		vals[idx] = val;
+	}
+
+	/**
+	 * Get the number of results in the buffer.
+	 *
+	 * @return The number of results in the buffer.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all of the results from the buffer, keeping its storage.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Remove results from the end of the buffer.
+	 *
+	 * @param newSize The number of results to keep.
+	 */
+	public void truncate(int newSize) {
+		if(newSize < 0 || newSize > size) throw new IndexOutOfBoundsException(newSize);
+
+		size = newSize;
+	}
+
+	/**
+	 * Make sure the buffer can hold a number of results without growing.
+	 *
+	 * @param capacity The number of results the buffer needs to hold.
+	 */
+	public void ensureCapacity(int capacity) {
+		if(capacity <= vals.length) return;
+
+		vals = Arrays.copyOf(vals, Math.max(capacity, vals.length * 2));
+	}
+
+	/**
+	 * Get the array backing this buffer.
+	 *
+	 * Only the first {@link #size()} entries are valid, and the array may be
+	 * replaced whenever the buffer grows.
+	 *
+	 * @return The array backing this buffer.
+	 */
+	public long[] array() {
+		return vals;
+	}
+
+	/**
+	 * Copy the results in the buffer into a new array.
+	 *
+	 * @return An array containing the results in the buffer.
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(vals, size);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
@@ -1,5 +1,7 @@
 package bjc.dicelang.dicev2;
 
+import java.util.Arrays;
+
 /**
  * Die which represents a single number.
  * @author Ben Culkin
@@ -27,6 +29,23 @@ public class ScalarDie extends Die {
 		return new long[] { rollSingle() };
 	}
 
+	@Override
+	public void rollInto(RollBuffer dest) {
+		dest.add(val);
+	}
+
+	@Override
+	public int rollInto(long[] dest, int offset) {
+		dest[offset] = val;
+
+		return 1;
+	}
+
+	@Override
+	public void rollMany(int n, long[] out) {
+		Arrays.fill(out, 0, n, val);
+	}
+
 	@Override
 	public long rollSingle() {
 		return val;
@@ -41,4 +60,14 @@ public class ScalarDie extends Die {
 	public long optimize() {
 		return val;
 	}
+
+	@Override
+	public long minFace() {
+		return val;
+	}
+
+	@Override
+	public long maxFace() {
+		return val;
+	}
 }
@@ -0,0 +1,99 @@
+package bjc.dicelang.dicev2;
+
+import bjc.dicelang.rng.RandomProvider;
+
+/**
+ * Die mod which keeps a contiguous run of its results, such as the first few
+ * of them.
+ * 
+ * @author Ben Culkin
+ *
+ */
+public class SliceDieMod extends Die {
+	/**
+	 * Die to slice.
+	 */
+	public final Die die;
+
+	/**
+	 * Number of results to skip.
+	 */
+	public final int skip;
+
+	/**
+	 * Max. number of results to keep after the skipped ones.
+	 */
+	public final int keep;
+
+	/**
+	 * Create a new slicing die mod.
+	 * 
+	 * @param skip Number of results to skip.
+	 * @param keep Max. number of results to keep after the skipped ones.
+	 * @param die Die to slice.
+	 */
+	public SliceDieMod(int skip, int keep, Die die) {
+		super();
+
+		if(skip < 0 || keep < 0) {
+			throw new IllegalArgumentException("Slice bounds must be non-negative");
+		}
+
+		this.skip = skip;
+		this.keep = keep;
+
+		this.die = die;
+	}
+
+	@Override
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		die.setRandom(rnd);
+	}
+
+	@Override
+	public void rollInto(RollBuffer dest) {
+		int start = dest.size();
+
+		die.rollInto(dest);
+
+		int end = dest.size();
+
+		int from = start + Math.min(skip, end - start);
+		int len = Math.min(keep, end - from);
+
+		long[] vals = dest.array();
+
+		System.arraycopy(vals, from, vals, start, len);
+
+		dest.truncate(start + len);
+	}
+
+	@Override
+	public long rollSingle() {
+		throw new UnsupportedOperationException("Sliced dice can't be rolled singly");
+	}
+
+	/* :UnoptimizableDice */
+
+	@Override
+	public boolean canOptimize() {
+		return false;
+	}
+
+	@Override
+	public long optimize() {
+		throw new UnsupportedOperationException("Sliced dice can't be optimized");
+	}
+
+	@Override
+	public long minFace() {
+		return die.minFace();
+	}
+
+	@Override
+	public long maxFace() {
+		return die.maxFace();
+	}
+}
@@ -1,17 +1,30 @@
 package bjc.dicelang.dicev2;
 
-import bjc.utils.funcutils.ListUtils;
-
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Comparator;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * Die mod which sorts its results.
+ * 
+ * Sorting in ascending or descending order works on the primitive results,
+ * and pools of dice with few faces (like polyhedral or fudge dice) are
+ * sorted in linear time.
  * @author Ben Culkin
  *
  */
 public class SortDieMod extends Die {
+	/*
+	 * Pools with at least this many results, and fewer than this many faces,
+	 * are counting sorted.
+	 */
+	private static final int COUNTING_MIN_RESULTS = 16;
+	private static final int COUNTING_MAX_FACES   = 1024;
+
+	/* Pools sorted with other comparators are insertion sorted up to this size. */
+	private static final int INSERTION_MAX_RESULTS = 32;
+
 	/**
 	 * Die to sort.
 	 */
@@ -37,23 +50,110 @@ public class SortDieMod extends Die {
 	}
 
 	@Override
-	public long[] roll() {
-		/*
-		 * @NOTE
-		 *
-		 * This is likely quite a bit slower than using Arrays.sort, but
-		 * that only sorts in ascending numeric order. If this ends up
-		 * being a performance issue, add another sort that does that.
-		 */
-		List<Long> lst = new ArrayList<>();
-
-		for(long val : die.roll()) {
-			lst.add(val);
+	public void setRandom(RandomProvider rnd) {
+		super.setRandom(rnd);
+
+		die.setRandom(rnd);
+	}
+
+	@Override
+	public void rollInto(RollBuffer dest) {
+		int start = dest.size();
+
+		die.rollInto(dest);
+
+		long[] vals = dest.array();
+		int end = dest.size();
+
+		boolean ascending  = sorter == Comparator.<Long>naturalOrder();
+		boolean descending = sorter == Comparator.<Long>reverseOrder();
+
+		if(!ascending && !descending) {
+			sortWithComparator(vals, start, end);
+
+			return;
+		}
+
+		long minFace = die.minFace();
+		long maxFace = die.maxFace();
+
+		/* Subtracting can overflow if the pool doesn't know its faces. */
+		long range = maxFace - minFace;
+
+		if(end - start >= COUNTING_MIN_RESULTS && maxFace >= minFace
+				&& range >= 0 && range < COUNTING_MAX_FACES) {
+			countingSort(vals, start, end, minFace, (int) range + 1, descending);
+
+			return;
 		}
 
-		lst.sort(sorter);
-		
-		return ListUtils.toPrimitive(lst);
+		Arrays.sort(vals, start, end);
+
+		if(descending) {
+			for(int i = start, j = end - 1; i < j; i++, j--) {
+				long tmp = vals[i];
+
+				vals[i] = vals[j];
+				vals[j] = tmp;
+			}
+		}
+	}
+
+	/*
+	 * Sort values known to fall in a small range by counting how many of each
+	 * there are, and then writing them back out in order.
+	 */
+	private static void countingSort(long[] vals, int start, int end, long minFace, int numFaces,
+			boolean descending) {
+		int[] counts = new int[numFaces];
+
+		for(int i = start; i < end; i++) {
+			counts[(int) (vals[i] - minFace)] += 1;
+		}
+
+		int pos = start;
+		for(int face = 0; face < numFaces; face++) {
+			int idx = descending ? numFaces - 1 - face : face;
+
+			long val = minFace + idx;
+
+			for(int cnt = counts[idx]; cnt > 0; cnt--) {
+				vals[pos++] = val;
+			}
+		}
+	}
+
+	/* Sort values with an arbitrary comparator, keeping equal values in order. */
+	private void sortWithComparator(long[] vals, int start, int end) {
+		if(end - start > INSERTION_MAX_RESULTS) {
+			/* Big pools are boxed, so that they can use a merge sort. */
+			Long[] boxed = new Long[end - start];
+
+			for(int i = start; i < end; i++) {
+				boxed[i - start] = vals[i];
+			}
+
+			Arrays.sort(boxed, sorter);
+
+			for(int i = start; i < end; i++) {
+				vals[i] = boxed[i - start];
+			}
+
+			return;
+		}
+
+		for(int i = start + 1; i < end; i++) {
+			long val = vals[i];
+
+			int j = i - 1;
+			while(j >= start && sorter.compare(vals[j], val) > 0) {
+				vals[j + 1] = vals[j];
+
+				j -= 1;
+			}
+
+			vals[j + 1] = val;
+		}
 	}
 
 	@Override
@@ -70,4 +170,14 @@ public class SortDieMod extends Die {
 	public long optimize() {
 		return die.optimize();
 	}
+
+	@Override
+	public long minFace() {
+		return die.minFace();
+	}
+
+	@Override
+	public long maxFace() {
+		return die.maxFace();
+	}
 }
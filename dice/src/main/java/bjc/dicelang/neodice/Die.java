@@ -2,8 +2,11 @@ package bjc.dicelang.neodice;
 
 import java.util.*;
 import java.util.function.*;
+import java.util.random.*;
 import java.util.stream.*;
 
+import bjc.dicelang.dice.Distribution;
+import bjc.dicelang.rng.RandomProvider;
 import bjc.esodata.*;
 
 /**
@@ -22,7 +25,18 @@ public interface Die<SideType> {
 	 * 
 	 * @return The result of rolling the die.
 	 */
-	public SideType roll(Random rng);
+	public SideType roll(RandomGenerator rng);
+
+	/**
+	 * Rolls this die, with a generator from a provider.
+	 * 
+	 * @param rng Where to get the generator for random numbers from.
+	 * 
+	 * @return The result of rolling the die.
+	 */
+	default SideType roll(RandomProvider rng) {
+		return roll(rng.get());
+	}
 	
 	/**
 	 * Returns a die pool which rolls this die the specified number of times.
@@ -78,7 +92,7 @@ public interface Die<SideType> {
 	 * 
 	 * @return An iterator which gives rolls of this dice.
 	 */
-	default Stream<SideType> stream(Random rng) {
+	default Stream<SideType> stream(RandomGenerator rng) {
 		return Stream.generate(() -> this.roll(rng));
 	}
 	
@@ -102,12 +116,12 @@ public interface Die<SideType> {
 	 * 
 	 * @return A die which returns a result from 1 to sides.
 	 */
-	static Die<Integer> polyhedral(int sides) {
+	static IntDie polyhedral(int sides) {
 		return new PolyhedralDie(sides);
 	}
 }
 
-class PolyhedralDie implements Die<Integer> {
+class PolyhedralDie implements IntDie {
     private final int sides;
 
     public PolyhedralDie(int sides) {
@@ -115,11 +129,16 @@ class PolyhedralDie implements Die<Integer> {
     }
 
     @Override
-    public Integer roll(Random rng) {
+    public int rollInt(RandomGenerator rng) {
         // Dice are one-based, not zero-based.
         return rng.nextInt(sides) + 1;
     }
 
+    @Override
+    public Distribution distribution() {
+        return Distribution.uniform(1, sides);
+    }
+
     @Override
     public String toString() {
         return String.format("d%d", sides);
@@ -181,7 +200,7 @@ class RerollDie<SideType> implements Die<SideType> {
     }
     
     @Override
-    public SideType roll(Random rng) {
+    public SideType roll(RandomGenerator rng) {
         SideType roll = contained.roll(rng);
 
         MinMaxList<SideType> newRolls = new MinMaxList<>(comparer, roll);
@@ -2,8 +2,11 @@ package bjc.dicelang.neodice;
 
 import java.util.*;
 import java.util.function.*;
+import java.util.random.*;
 import java.util.stream.*;
 
+import bjc.dicelang.rng.RandomProvider;
+
 /**
  * Represents a pool of dice.
  * 
@@ -23,7 +26,19 @@ public interface DiePool<SideType> {
 	 * 
 	 * @return The result of rolling each die in the pool.
 	 */
-	public Stream<SideType> roll(Random rng);
+	public Stream<SideType> roll(RandomGenerator rng);
+
+	/**
+	 * Roll each die in the pool with a generator from a provider, and return
+	 * the results.
+	 * 
+	 * @param rng Where to get the generator for random numbers from.
+	 * 
+	 * @return The result of rolling each die in the pool.
+	 */
+	default Stream<SideType> roll(RandomProvider rng) {
+		return roll(rng.get());
+	}
 	
 	/**
 	 * Gets the dice contained in this pool.
@@ -105,13 +120,9 @@ public interface DiePool<SideType> {
 	 */
 	default DiePool<SideType> dropLast(int number) {
 		return new TransformDiePool<>(this, (pool) -> {
-			Deque<SideType> temp = new ArrayDeque<>();
-			
-			pool.forEachOrdered((die) -> temp.add(die));
-			
-			for (int i = 0; i < number; i++) temp.pollLast();
+			List<SideType> temp = pool.collect(Collectors.toList());
 			
-			return temp.stream();
+			return temp.subList(0, Math.max(0, temp.size() - number)).stream();
 		});
 	}
 
@@ -136,19 +147,18 @@ public interface DiePool<SideType> {
 	 */
 	default DiePool<SideType> keepLast(int number) {
 		return new TransformDiePool<>(this, (pool) -> {
-			Deque<SideType> temp = new ArrayDeque<>();
+			List<SideType> temp = pool.collect(Collectors.toList());
 			
-			pool.forEachOrdered((die) -> temp.add(die));
-			
-			while (temp.size() > number) temp.pollFirst();
-			
-			return temp.stream();
+			return temp.subList(Math.max(0, temp.size() - number), temp.size()).stream();
 		});
 	}
 	
 	/* 
-	 * These die-pool operations are formed exclusively through other die pool
-	 * operations.
+	 * These die-pool operations pick out the highest or lowest values, without
+	 * sorting the whole roll.
+	 *
+	 * Unless asked to keep the original order, they return the remaining
+	 * values in ascending order.
 	 */
 	
 	/**
@@ -160,7 +170,7 @@ public interface DiePool<SideType> {
 	 * @return A die pool which has the lowest entries dropped.
 	 */
 	default DiePool<SideType> dropLowest(Comparator<SideType> comparer, int number) {
-		return this.sorted(comparer, false).dropFirst(number);
+		return dropLowest(comparer, number, false);
 	}
 	
 	/**
@@ -168,11 +178,49 @@ public interface DiePool<SideType> {
 	 * 
 	 * @param comparer The comparer to use for the sides.
 	 * @param number The number of lowest values to drop.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
 	 * 
 	 * @return A die pool which has the lowest entries dropped.
 	 */
-	default DiePool<SideType> dropHighest(Comparator<SideType> comparer,int number) {
-		return this.sorted(comparer, false).dropLast(number);
+	default DiePool<SideType> dropLowest(Comparator<SideType> comparer, int number, boolean keepOrder) {
+		return new SelectDiePool<>(this, comparer, number, false, false, keepOrder);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then drops a number of the highest values.
+	 * 
+	 * @param comparer The comparer to use for the sides.
+	 * @param number The number of highest values to drop.
+	 * 
+	 * @return A die pool which has the highest entries dropped.
+	 */
+	default DiePool<SideType> dropHighest(Comparator<SideType> comparer, int number) {
+		return dropHighest(comparer, number, false);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then drops a number of the highest values.
+	 * 
+	 * @param comparer The comparer to use for the sides.
+	 * @param number The number of highest values to drop.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
+	 * 
+	 * @return A die pool which has the highest entries dropped.
+	 */
+	default DiePool<SideType> dropHighest(Comparator<SideType> comparer, int number, boolean keepOrder) {
+		return new SelectDiePool<>(this, comparer, number, false, true, keepOrder);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then keeps a number of the lowest values.
+	 * 
+	 * @param comparer The comparer to use for the sides.
+	 * @param number The number of lowest values to keep.
+	 * 
+	 * @return A die pool which has the lowest entries kept.
+	 */
+	default DiePool<SideType> keepLowest(Comparator<SideType> comparer, int number) {
+		return keepLowest(comparer, number, false);
 	}
 	
 	/**
@@ -180,11 +228,24 @@ public interface DiePool<SideType> {
 	 * 
 	 * @param comparer The comparer to use for the sides.
 	 * @param number The number of lowest values to keep.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
 	 * 
 	 * @return A die pool which has the lowest entries kept.
 	 */
-	default DiePool<SideType> keepLowest(Comparator<SideType> comparer,int number) {
-		return this.sorted(comparer, false).keepFirst(number);
+	default DiePool<SideType> keepLowest(Comparator<SideType> comparer, int number, boolean keepOrder) {
+		return new SelectDiePool<>(this, comparer, number, true, false, keepOrder);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then keeps a number of the highest values.
+	 * 
+	 * @param comparer The comparer to use for the sides.
+	 * @param number The number of highest values to keep.
+	 * 
+	 * @return A die pool which has the highest entries kept.
+	 */
+	default DiePool<SideType> keepHighest(Comparator<SideType> comparer, int number) {
+		return keepHighest(comparer, number, false);
 	}
 	
 	/**
@@ -192,11 +253,12 @@ public interface DiePool<SideType> {
 	 * 
 	 * @param comparer The comparer to use for the sides.
 	 * @param number The number of highest values to keep.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
 	 * 
 	 * @return A die pool which has the highest entries kept.
 	 */
-	default DiePool<SideType> keepHighest(Comparator<SideType> comparer,int number) {
-		return this.sorted(comparer, false).keepLast(number);
+	default DiePool<SideType> keepHighest(Comparator<SideType> comparer, int number, boolean keepOrder) {
+		return new SelectDiePool<>(this, comparer, number, true, true, keepOrder);
 	}
 	
 	/* These are misc. operations that don't form new dice pools. */
@@ -208,7 +270,7 @@ public interface DiePool<SideType> {
 	 * 
 	 * @return An iterator over a single roll of this die pool.
 	 */
-	default Iterator<SideType> iterator(Random rng) {
+	default Iterator<SideType> iterator(RandomGenerator rng) {
 		return this.roll(rng).iterator();
 	}
 
@@ -237,7 +299,7 @@ public interface DiePool<SideType> {
 	 * @return A die pool that expands the result given the provided function.
 	 */
 	static <Side> DiePool<Side> expanding(Die<Side> contained,
-	        BiFunction<Die<Side>, Random, Stream<Side>> expander)
+	        BiFunction<Die<Side>, RandomGenerator, Stream<Side>> expander)
 	{
 	    return new ExpandDiePool<>(contained, expander);
 	}
@@ -252,7 +314,7 @@ public interface DiePool<SideType> {
 class ExpandDiePool<SideType> implements DiePool<SideType> {
     private final Die<SideType> contained;
     
-    private final BiFunction<Die<SideType>, Random, Stream<SideType>> expander;
+    private final BiFunction<Die<SideType>, RandomGenerator, Stream<SideType>> expander;
 
     /**
      * Create a new expanding die pool.
@@ -261,13 +323,13 @@ class ExpandDiePool<SideType> implements DiePool<SideType> {
      * @param expander The function to use for expanding.
      */
     public ExpandDiePool(Die<SideType> contained,
-            BiFunction<Die<SideType>, Random, Stream<SideType>> expander) {
+            BiFunction<Die<SideType>, RandomGenerator, Stream<SideType>> expander) {
         this.contained = contained;
         this.expander = expander;
     }
 
     @Override
-    public Stream<SideType> roll(Random rng) {
+    public Stream<SideType> roll(RandomGenerator rng) {
         return expander.apply(contained, rng);
     }
     
@@ -309,7 +371,7 @@ class FixedDiePool<SideType> implements DiePool<SideType> {
     }
 
     @Override
-    public Stream<SideType> roll(Random rng) {
+    public Stream<SideType> roll(RandomGenerator rng) {
         return dice.stream().map((die) -> die.roll(rng));
     }
 
@@ -353,7 +415,7 @@ class TimesDiePool<SideType> implements DiePool<SideType> {
     }
 
     @Override
-    public Stream<SideType> roll(Random rng) {
+    public Stream<SideType> roll(RandomGenerator rng) {
         return Stream.generate(() -> contained.roll(rng))
             .limit(numDice);
     }
@@ -404,7 +466,7 @@ class TransformDiePool<SideType> implements DiePool<SideType> {
     }
 
     @Override
-    public Stream<SideType> roll(Random rng) {
+    public Stream<SideType> roll(RandomGenerator rng) {
         return transform.apply(contained.roll(rng));
     }
     
@@ -434,4 +496,93 @@ class TransformDiePool<SideType> implements DiePool<SideType> {
     public String toString() {
         return contained.toString() + "(transformed)";
     }
-}
\ No newline at end of file
+}
+
+/**
+ * A die pool that keeps or drops the highest or lowest values of another.
+ * 
+ * @author Ben Culkin
+ *
+ * @param <SideType> The type of the sides of the dice.
+ */
+class SelectDiePool<SideType> implements DiePool<SideType> {
+    private final DiePool<SideType> contained;
+    
+    private final Comparator<SideType> comparer;
+    
+    private final int number;
+    
+    // Whether number is how many to keep, rather than how many to drop.
+    private final boolean isKeep;
+    // Whether number counts from the highest values, rather than the lowest.
+    private final boolean isHighest;
+    
+    private final boolean keepOrder;
+
+    public SelectDiePool(DiePool<SideType> contained, Comparator<SideType> comparer,
+            int number, boolean isKeep, boolean isHighest, boolean keepOrder) {
+        this.contained = contained;
+        this.comparer  = comparer;
+        
+        this.number    = number;
+        this.isKeep    = isKeep;
+        this.isHighest = isHighest;
+        this.keepOrder = keepOrder;
+    }
+
+    @Override
+    public Stream<SideType> roll(RandomGenerator rng) {
+        List<SideType> vals = contained.roll(rng).collect(Collectors.toList());
+        
+        int size = vals.size();
+        int kept = isKeep ? Math.min(number, size) : Math.max(0, size - number);
+        
+        // Keeping the highest is the same as dropping the lowest.
+        boolean fromTop = isKeep == isHighest;
+        
+        boolean[] mask = Selection.keepMask(size, kept, fromTop, Selection.byValue(
+                (left, right) -> comparer.compare(vals.get(left), vals.get(right))));
+        
+        List<SideType> res = new ArrayList<>(kept);
+        
+        for (int idx = 0; idx < size; idx++) {
+            if (mask[idx]) res.add(vals.get(idx));
+        }
+        
+        if (!keepOrder) res.sort(comparer);
+        
+        return res.stream();
+    }
+    
+    @Override
+    public List<Die<SideType>> contained() {
+        return contained.contained();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contained, comparer, number, isKeep, isHighest, keepOrder);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)                  return true;
+        if (obj == null)                  return false;
+        if (getClass() != obj.getClass()) return false;
+    
+        SelectDiePool<?> other = (SelectDiePool<?>) obj;
+        
+        return Objects.equals(contained, other.contained)
+                && Objects.equals(comparer, other.comparer)
+                && number == other.number
+                && isKeep == other.isKeep
+                && isHighest == other.isHighest
+                && keepOrder == other.keepOrder;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s%s%s%d", contained,
+                isKeep ? "k" : "d", isHighest ? "h" : "l", number);
+    }
+}
@@ -0,0 +1,89 @@
+package bjc.dicelang.neodice;
+
+import java.util.random.*;
+import java.util.stream.*;
+
+import bjc.dicelang.dice.Distribution;
+
+/**
+ * Represents a single die with integer sides, rolled without boxing.
+ * 
+ * An IntDie is also a Die&lt;Integer&gt;, so it can be used anywhere the
+ * generic dice can. Rolling it through the generic API boxes the result.
+ * 
+ * @author Ben Culkin
+ */
+@FunctionalInterface
+public interface IntDie extends Die<Integer> {
+	/**
+	 * Rolls this die.
+	 * 
+	 * @param rng The source for random numbers
+	 * 
+	 * @return The result of rolling the die.
+	 */
+	public int rollInt(RandomGenerator rng);
+	
+	@Override
+	default Integer roll(RandomGenerator rng) {
+		return rollInt(rng);
+	}
+	
+	/**
+	 * Returns a die pool which rolls this die the specified number of times.
+	 * 
+	 * @param numTimes The number of times to roll this die.
+	 * 
+	 * @return A die pool that rolls this die the specified number of times.
+	 */
+	@Override
+	default IntDiePool times(int numTimes) {
+		return new TimesIntDiePool(this, numTimes);
+	}
+	
+	/**
+	 * Get the exact distribution of the rolls of this die.
+	 * 
+	 * @return The distribution of the rolls of this die.
+	 * 
+	 * @throws UnsupportedOperationException If the distribution of this die isn't known.
+	 */
+	default Distribution distribution() {
+		throw new UnsupportedOperationException("Distribution of " + this + " isn't known");
+	}
+	
+	/**
+	 * Create an stream which gives rolls of this dice.
+	 * 
+	 * @param rng The source for random numbers.
+	 * 
+	 * @return A stream which gives rolls of this dice.
+	 */
+	default IntStream ints(RandomGenerator rng) {
+		return IntStream.generate(() -> this.rollInt(rng));
+	}
+	
+	/**
+	 * Create a simple polyhedral die with a fixed number of sides.
+	 * 
+	 * @param sides The number of sides for the die.
+	 * 
+	 * @return A die which returns a result from 1 to sides.
+	 */
+	static IntDie polyhedral(int sides) {
+		return Die.polyhedral(sides);
+	}
+	
+	/**
+	 * Get an integer die that rolls a generic die.
+	 * 
+	 * @param die The die to roll.
+	 * 
+	 * @return The die, or a die that unboxes its results.
+	 */
+	static IntDie from(Die<Integer> die) {
+		if (die instanceof IntDie) return (IntDie) die;
+		
+		return (rng) -> die.roll(rng);
+	}
+}
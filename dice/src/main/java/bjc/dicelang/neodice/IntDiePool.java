@@ -0,0 +1,463 @@
+package bjc.dicelang.neodice;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.random.*;
+import java.util.stream.*;
+
+import bjc.dicelang.dice.Distribution;
+import bjc.dicelang.dice.OrderStatistics;
+
+/**
+ * Represents a pool of dice with integer sides, rolled into primitive arrays
+ * instead of streams of boxed values.
+ * 
+ * An IntDiePool is also a DiePool&lt;Integer&gt;, so it can be used anywhere
+ * the generic pools can. Rolling it through the generic API boxes the
+ * results.
+ * 
+ * @author Ben Culkin
+ */
+@FunctionalInterface
+public interface IntDiePool extends DiePool<Integer> {
+	/**
+	 * Roll each die in the pool, and return the results.
+	 * 
+	 * The array is newly created for each roll, so callers are free to
+	 * modify it.
+	 * 
+	 * @param rng The source for random numbers
+	 * 
+	 * @return The result of rolling each die in the pool.
+	 */
+	public int[] rollInts(RandomGenerator rng);
+	
+	@Override
+	default Stream<Integer> roll(RandomGenerator rng) {
+		return Arrays.stream(rollInts(rng)).boxed();
+	}
+	
+	/**
+	 * Roll each die in the pool, and return the sum of the results.
+	 * 
+	 * @param rng The source for random numbers
+	 * 
+	 * @return The sum of rolling each die in the pool.
+	 */
+	default long rollSum(RandomGenerator rng) {
+		long sum = 0;
+		
+		for (int val : rollInts(rng)) sum += val;
+		
+		return sum;
+	}
+	
+	/**
+	 * Get the exact distribution of the sum of the results of this pool.
+	 * 
+	 * @return The distribution of the sum of this pool.
+	 * 
+	 * @throws UnsupportedOperationException If the distribution of this pool isn't known.
+	 */
+	default Distribution sumDistribution() {
+		throw new UnsupportedOperationException("Distribution of " + this + " isn't known");
+	}
+	
+	/*
+	 * These die pool operations transform this pool in some way.
+	 */
+	
+	/**
+	 * Returns a version of this die pool which returns its results in sorted
+	 * order.
+	 * 
+	 * @param isDescending True to sort in descending order, false to sort in ascending order.
+	 * 
+	 * @return The die pool, which returns its results in sorted order.
+	 */
+	default IntDiePool sorted(boolean isDescending) {
+		return new TransformIntDiePool(this, (vals) -> {
+			Arrays.sort(vals);
+			
+			if (isDescending) {
+				for (int i = 0, j = vals.length - 1; i < j; i++, j--) {
+					int tmp = vals[i];
+					
+					vals[i] = vals[j];
+					vals[j] = tmp;
+				}
+			}
+			
+			return vals;
+		});
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then filters out any results that
+	 * don't match the provided predicate.
+	 * 
+	 * @param matcher The predicate that determines which results are kept.
+	 * 
+	 * @return A die pool which contains only entries that pass the predicate.
+	 */
+	default IntDiePool filteredInt(IntPredicate matcher) {
+		return new TransformIntDiePool(this, (vals) -> {
+			int kept = 0;
+			
+			for (int val : vals) {
+				if (matcher.test(val)) vals[kept++] = val;
+			}
+			
+			return kept == vals.length ? vals : Arrays.copyOf(vals, kept);
+		});
+	}
+	
+	/* 
+	 * These die-pool operations are counterparts to the generic ones. Unless
+	 * asked to keep the original order, they return the remaining values in
+	 * ascending order.
+	 */
+	
+	/**
+	 * Return a die pool which rolls this one, then drops a number of the lowest values.
+	 * 
+	 * @param number The number of lowest values to drop.
+	 * 
+	 * @return A die pool which has the lowest entries dropped.
+	 */
+	default IntDiePool dropLowest(int number) {
+		return dropLowest(number, false);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then drops a number of the lowest values.
+	 * 
+	 * @param number The number of lowest values to drop.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
+	 * 
+	 * @return A die pool which has the lowest entries dropped.
+	 */
+	default IntDiePool dropLowest(int number, boolean keepOrder) {
+		return new SelectIntDiePool(this, number, false, false, keepOrder);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then drops a number of the highest values.
+	 * 
+	 * @param number The number of highest values to drop.
+	 * 
+	 * @return A die pool which has the highest entries dropped.
+	 */
+	default IntDiePool dropHighest(int number) {
+		return dropHighest(number, false);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then drops a number of the highest values.
+	 * 
+	 * @param number The number of highest values to drop.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
+	 * 
+	 * @return A die pool which has the highest entries dropped.
+	 */
+	default IntDiePool dropHighest(int number, boolean keepOrder) {
+		return new SelectIntDiePool(this, number, false, true, keepOrder);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then keeps a number of the lowest values.
+	 * 
+	 * @param number The number of lowest values to keep.
+	 * 
+	 * @return A die pool which has the lowest entries kept.
+	 */
+	default IntDiePool keepLowest(int number) {
+		return keepLowest(number, false);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then keeps a number of the lowest values.
+	 * 
+	 * @param number The number of lowest values to keep.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
+	 * 
+	 * @return A die pool which has the lowest entries kept.
+	 */
+	default IntDiePool keepLowest(int number, boolean keepOrder) {
+		return new SelectIntDiePool(this, number, true, false, keepOrder);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then keeps a number of the highest values.
+	 * 
+	 * @param number The number of highest values to keep.
+	 * 
+	 * @return A die pool which has the highest entries kept.
+	 */
+	default IntDiePool keepHighest(int number) {
+		return keepHighest(number, false);
+	}
+	
+	/**
+	 * Return a die pool which rolls this one, then keeps a number of the highest values.
+	 * 
+	 * @param number The number of highest values to keep.
+	 * @param keepOrder True to keep the remaining values in the order they were rolled.
+	 * 
+	 * @return A die pool which has the highest entries kept.
+	 */
+	default IntDiePool keepHighest(int number, boolean keepOrder) {
+		return new SelectIntDiePool(this, number, true, true, keepOrder);
+	}
+	
+	/**
+	 * Create a die pool containing the provided dice.
+	 * 
+	 * @param dice The dice to put into the pool.
+	 * 
+	 * @return A pool which contains the provided dice.
+	 */
+	static IntDiePool containing(IntDie... dice) {
+		return new FixedIntDiePool(dice);
+	}
+	
+	/**
+	 * Get an integer die pool that rolls a generic die pool.
+	 * 
+	 * @param pool The pool to roll.
+	 * 
+	 * @return The pool, or a pool that unboxes its results.
+	 */
+	static IntDiePool from(DiePool<Integer> pool) {
+		if (pool instanceof IntDiePool) return (IntDiePool) pool;
+		
+		return new IntDiePool() {
+			@Override
+			public int[] rollInts(RandomGenerator rng) {
+				return pool.roll(rng).mapToInt(Integer::intValue).toArray();
+			}
+			
+			@Override
+			public List<Die<Integer>> contained() {
+				return pool.contained();
+			}
+			
+			@Override
+			public String toString() {
+				return pool.toString();
+			}
+		};
+	}
+}
+
+/**
+ * An integer die pool that has a fixed set of dice.
+ * 
+ * @author Ben Culkin
+ */
+class FixedIntDiePool implements IntDiePool {
+    private final IntDie[] dice;
+
+    public FixedIntDiePool(IntDie... dice) {
+        this.dice = Arrays.copyOf(dice, dice.length);
+    }
+
+    @Override
+    public int[] rollInts(RandomGenerator rng) {
+        int[] res = new int[dice.length];
+        
+        for (int index = 0; index < dice.length; index++) {
+            res[index] = dice[index].rollInt(rng);
+        }
+        
+        return res;
+    }
+
+    @Override
+    public List<Die<Integer>> contained() {
+        return Collections.unmodifiableList(Arrays.asList(dice));
+    }
+
+    @Override
+    public Distribution sumDistribution() {
+        Distribution res = Distribution.pointMass(0);
+
+        for (IntDie die : dice) {
+            res = res.plus(die.distribution());
+        }
+
+        return res;
+    }
+    
+    @Override
+    public String toString() {
+        return Arrays.stream(dice)
+            .map(IntDie::toString)
+            .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(dice);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)                  return true;
+        if (obj == null)                  return false;
+        if (getClass() != obj.getClass()) return false;
+    
+        FixedIntDiePool other = (FixedIntDiePool) obj;
+        
+        return Arrays.equals(dice, other.dice);
+    }
+}
+
+/**
+ * An integer die pool that transforms the results of another one.
+ * 
+ * @author Ben Culkin
+ */
+class TransformIntDiePool implements IntDiePool {
+    private final IntDiePool contained;
+    
+    /* May modify the array it is given. */
+    private final UnaryOperator<int[]> transform;
+
+    public TransformIntDiePool(IntDiePool contained, UnaryOperator<int[]> transform) {
+        this.contained = contained;
+        this.transform = transform;
+    }
+
+    @Override
+    public int[] rollInts(RandomGenerator rng) {
+        return transform.apply(contained.rollInts(rng));
+    }
+    
+    @Override
+    public List<Die<Integer>> contained() {
+        return contained.contained();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contained, transform);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)                  return true;
+        if (obj == null)                  return false;
+        if (getClass() != obj.getClass()) return false;
+    
+        TransformIntDiePool other = (TransformIntDiePool) obj;
+        
+        return Objects.equals(contained, other.contained)
+                && Objects.equals(transform, other.transform);
+    }
+    
+    @Override
+    public String toString() {
+        return contained.toString() + "(transformed)";
+    }
+}
+
+/**
+ * An integer die pool that keeps or drops the highest or lowest of the results
+ * of another one.
+ * 
+ * @author Ben Culkin
+ */
+class SelectIntDiePool implements IntDiePool {
+    private final IntDiePool contained;
+    private final int number;
+
+    private final boolean isKeep;
+    private final boolean isHighest;
+    private final boolean keepOrder;
+
+    public SelectIntDiePool(IntDiePool contained, int number, boolean isKeep,
+            boolean isHighest, boolean keepOrder) {
+        this.contained = contained;
+        this.number = number;
+
+        this.isKeep = isKeep;
+        this.isHighest = isHighest;
+        this.keepOrder = keepOrder;
+    }
+
+    @Override
+    public int[] rollInts(RandomGenerator rng) {
+        int[] vals = contained.rollInts(rng);
+
+        int kept = isKeep ? number : vals.length - number;
+
+        return selected(vals, kept, isKeep == isHighest, keepOrder);
+    }
+
+    @Override
+    public List<Die<Integer>> contained() {
+        return contained.contained();
+    }
+
+    @Override
+    public Distribution sumDistribution() {
+        /* Only pools of identical dice can be done without enumerating them. */
+        if (!(contained instanceof TimesIntDiePool)) {
+            return IntDiePool.super.sumDistribution();
+        }
+
+        TimesIntDiePool pool = (TimesIntDiePool) contained;
+
+        Distribution face = pool.die().distribution();
+
+        int numDice = pool.numDice();
+        int kept = Math.max(0, Math.min(isKeep ? number : numDice - number, numDice));
+
+        if (isKeep == isHighest) return OrderStatistics.keepHighest(face, numDice, kept);
+        else                     return OrderStatistics.keepLowest(face, numDice, kept);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%s%s%d", contained,
+                isKeep ? "k" : "d", isHighest ? "h" : "l", number);
+    }
+
+    /* Keep a number of the highest or lowest values of a roll. */
+    private static int[] selected(int[] vals, int kept, boolean fromTop, boolean keepOrder) {
+        int count = Math.max(0, Math.min(kept, vals.length));
+        
+        boolean[] mask = Selection.keepMask(vals.length, count, fromTop,
+                Selection.byValue((left, right) -> Integer.compare(vals[left], vals[right])));
+        
+        int[] res = new int[count];
+        
+        int pos = 0;
+        for (int idx = 0; idx < vals.length; idx++) {
+            if (mask[idx]) res[pos++] = vals[idx];
+        }
+        
+        if (!keepOrder) Arrays.sort(res);
+        
+        return res;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contained, number, isKeep, isHighest, keepOrder);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)                  return true;
+        if (obj == null)                  return false;
+        if (getClass() != obj.getClass()) return false;
+
+        SelectIntDiePool other = (SelectIntDiePool) obj;
+
+        return Objects.equals(contained, other.contained) && number == other.number
+                && isKeep == other.isKeep && isHighest == other.isHighest
+                && keepOrder == other.keepOrder;
+    }
+}
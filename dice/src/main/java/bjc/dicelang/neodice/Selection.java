@@ -0,0 +1,126 @@
+package bjc.dicelang.neodice;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Picks the highest or lowest few of a roll, without sorting all of it.
+ * 
+ * Values are referred to by their index in the roll, and compared by an
+ * ordering on those indices. Orderings break ties by index, so that picking
+ * the highest k values and picking the lowest n - k values always split the
+ * roll the same way.
+ * 
+ * @author Ben Culkin
+ */
+final class Selection {
+    private Selection() {
+        // Only static methods.
+    }
+    
+    /**
+     * Create an ordering of indices from a comparison of their values.
+     * 
+     * @param compare The comparison of the values at two indices.
+     * 
+     * @return An ordering which breaks ties by index.
+     */
+    static IntBinaryOperator byValue(IntBinaryOperator compare) {
+        return (left, right) -> {
+            int res = compare.applyAsInt(left, right);
+            
+            return res != 0 ? res : Integer.compare(left, right);
+        };
+    }
+    
+    /**
+     * Work out which values of a roll to keep.
+     * 
+     * Uses a bounded heap, taking O(n log m) time, where m is the smaller of
+     * the number kept and the number dropped.
+     * 
+     * @param size The number of values in the roll.
+     * @param kept The number of values to keep.
+     * @param fromTop True to keep the highest values, false to keep the lowest ones.
+     * @param order The ascending ordering of the indices.
+     * 
+     * @return Whether each value should be kept.
+     */
+    static boolean[] keepMask(int size, int kept, boolean fromTop, IntBinaryOperator order) {
+        boolean[] mask = new boolean[size];
+        
+        if (kept >= size) {
+            Arrays.fill(mask, true);
+            
+            return mask;
+        } else if (kept <= 0) {
+            return mask;
+        }
+        
+        IntBinaryOperator descending = (left, right) -> order.applyAsInt(right, left);
+        
+        if (kept <= size - kept) {
+            int[] picked = pick(size, kept, fromTop ? order : descending);
+            
+            for (int idx : picked) mask[idx] = true;
+        } else {
+            // Cheaper to pick the ones to drop from the other end.
+            int[] picked = pick(size, size - kept, fromTop ? descending : order);
+            
+            Arrays.fill(mask, true);
+            
+            for (int idx : picked) mask[idx] = false;
+        }
+        
+        return mask;
+    }
+    
+    /*
+     * Pick the indices of the count greatest values, by keeping a min-heap
+     * of the best ones seen so far.
+     */
+    private static int[] pick(int size, int count, IntBinaryOperator order) {
+        int[] heap = new int[count];
+        int heapSize = 0;
+        
+        for (int idx = 0; idx < size; idx++) {
+            if (heapSize < count) {
+                // Sift the new index up into place.
+                int pos = heapSize++;
+                
+                while (pos > 0) {
+                    int parent = (pos - 1) / 2;
+                    
+                    if (order.applyAsInt(heap[parent], idx) <= 0) break;
+                    
+                    heap[pos] = heap[parent];
+                    pos = parent;
+                }
+                
+                heap[pos] = idx;
+            } else if (order.applyAsInt(idx, heap[0]) > 0) {
+                // Replace the least of the best, and sift it down.
+                int pos = 0;
+                
+                while (true) {
+                    int child = 2 * pos + 1;
+                    
+                    if (child >= count) break;
+                    
+                    if (child + 1 < count && order.applyAsInt(heap[child + 1], heap[child]) < 0) {
+                        child += 1;
+                    }
+                    
+                    if (order.applyAsInt(idx, heap[child]) <= 0) break;
+                    
+                    heap[pos] = heap[child];
+                    pos = child;
+                }
+                
+                heap[pos] = idx;
+            }
+        }
+        
+        return heap;
+    }
+}
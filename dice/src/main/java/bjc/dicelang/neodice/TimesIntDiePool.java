@@ -0,0 +1,71 @@
+package bjc.dicelang.neodice;
+
+import java.util.*;
+import java.util.random.*;
+
+import bjc.dicelang.dice.Distribution;
+
+/**
+ * An integer die pool that rolls the same die a number of times.
+ * 
+ * @author Ben Culkin
+ */
+class TimesIntDiePool implements IntDiePool {
+    private final IntDie contained;
+    private final int numDice;
+
+    public TimesIntDiePool(IntDie contained, int numDice) {
+        this.contained = contained;
+        this.numDice = numDice;
+    }
+
+    @Override
+    public int[] rollInts(RandomGenerator rng) {
+        int[] res = new int[numDice];
+        
+        for (int index = 0; index < numDice; index++) {
+            res[index] = contained.rollInt(rng);
+        }
+        
+        return res;
+    }
+    
+    @Override
+    public List<Die<Integer>> contained() {
+        return Collections.nCopies(numDice, contained);
+    }
+
+    @Override
+    public Distribution sumDistribution() {
+        return contained.distribution().repeat(numDice);
+    }
+
+    public IntDie die() {
+        return contained;
+    }
+
+    public int numDice() {
+        return numDice;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d%s", numDice, contained);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(contained, numDice);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)                  return true;
+        if (obj == null)                  return false;
+        if (getClass() != obj.getClass()) return false;
+        
+        TimesIntDiePool other = (TimesIntDiePool) obj;
+    
+        return Objects.equals(contained, other.contained) && numDice == other.numDice;
+    }
+}
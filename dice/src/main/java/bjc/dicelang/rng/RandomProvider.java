@@ -0,0 +1,154 @@
+package bjc.dicelang.rng;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * A source of random number generators for dice.
+ *
+ * Dice ask their provider for a generator each time they are rolled, instead
+ * of holding on to one. This lets providers hand each thread its own
+ * generator, so that threads rolling at the same time don't fight over a
+ * single seed the way they do with a shared {@link java.util.Random}.
+ *
+ * @author Ben Culkin
+ */
+@FunctionalInterface
+public interface RandomProvider {
+	/**
+	 * The name of the LXM algorithm used by {@link #lxm()}.
+	 */
+	String DEFAULT_LXM = "L64X128MixRandom";
+
+	/**
+	 * Get the generator to use for a roll.
+	 *
+	 * The generator should only be used by the calling thread, and only for
+	 * the duration of the roll.
+	 *
+	 * @return The generator to use.
+	 */
+	RandomGenerator get();
+
+	/**
+	 * Create a provider that uses {@link ThreadLocalRandom}.
+	 *
+	 * This is the default for all of the dice models. It can't be seeded.
+	 *
+	 * @return A provider using the current thread's random generator.
+	 */
+	static RandomProvider threadLocal() {
+		return ThreadLocalRandom::current;
+	}
+
+	/**
+	 * Create a provider that always uses the same generator.
+	 *
+	 * This is mostly useful for reproducing rolls on a single thread; the
+	 * generator has to be safe to share if several threads roll at once.
+	 *
+	 * @param gen
+	 *            The generator to use.
+	 *
+	 * @return A provider that always uses the generator.
+	 */
+	static RandomProvider shared(final RandomGenerator gen) {
+		if (gen == null) throw new NullPointerException("Generator must not be null");
+
+		return () -> gen;
+	}
+
+	/**
+	 * Create a provider that gives each thread a {@link SplittableRandom}
+	 * split off of a randomly-seeded root.
+	 *
+	 * @return A provider using per-thread split generators.
+	 */
+	static RandomProvider splittable() {
+		return splitting(new SplittableRandom());
+	}
+
+	/**
+	 * Create a provider that gives each thread a {@link SplittableRandom}
+	 * split off of a seeded root.
+	 *
+	 * Which generator a thread gets depends on the order threads first
+	 * roll in, so only single-threaded use is reproducible.
+	 *
+	 * @param seed
+	 *            The seed for the root generator.
+	 *
+	 * @return A provider using per-thread split generators.
+	 */
+	static RandomProvider splittable(final long seed) {
+		return splitting(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Create a provider that gives each thread an LXM generator split off of a
+	 * randomly-seeded root.
+	 *
+	 * @return A provider using per-thread LXM generators.
+	 */
+	static RandomProvider lxm() {
+		return splitting(lxmFactory(DEFAULT_LXM).create());
+	}
+
+	/**
+	 * Create a provider that gives each thread an LXM generator split off of a
+	 * seeded root.
+	 *
+	 * @param algorithm
+	 *            The name of the LXM algorithm to use, such as
+	 *            'L64X128MixRandom'.
+	 *
+	 * @param seed
+	 *            The seed for the root generator.
+	 *
+	 * @return A provider using per-thread LXM generators.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the algorithm doesn't exist, or can't be split.
+	 */
+	static RandomProvider lxm(final String algorithm, final long seed) {
+		return splitting(lxmFactory(algorithm).create(seed));
+	}
+
+	/**
+	 * Create a provider that gives each thread a generator split off of a
+	 * root generator.
+	 *
+	 * The root is only used to split off new generators, the first time each
+	 * thread rolls.
+	 *
+	 * @param root
+	 *            The generator to split from.
+	 *
+	 * @return A provider using per-thread split generators.
+	 */
+	static RandomProvider splitting(final SplittableGenerator root) {
+		if (root == null) throw new NullPointerException("Root generator must not be null");
+
+		final ThreadLocal<RandomGenerator> gens = ThreadLocal.withInitial(() -> {
+			synchronized (root) {
+				return root.split();
+			}
+		});
+
+		return gens::get;
+	}
+
+	/* Get the factory for a splittable algorithm. */
+	private static RandomGeneratorFactory<SplittableGenerator> lxmFactory(final String algorithm) {
+		final RandomGeneratorFactory<SplittableGenerator> fact = RandomGeneratorFactory.of(algorithm);
+
+		if (!fact.isSplittable()) {
+			throw new IllegalArgumentException("Random algorithm " + algorithm + " can't be split");
+		}
+
+		return fact;
+	}
+}
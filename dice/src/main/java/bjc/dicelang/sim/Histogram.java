@@ -0,0 +1,290 @@
+package bjc.dicelang.sim;
+
+import java.util.Arrays;
+
+import bjc.dicelang.dice.Distribution;
+
+/**
+ * A count of how many times each value came up.
+ *
+ * Counts are kept in a primitive array covering the values seen so far, which
+ * grows as new values are added.
+ *
+ * @author Ben Culkin
+ */
+public final class Histogram {
+	/* The count for each value, starting from base. */
+	private long[] counts;
+	/* The value counted by counts[0]. */
+	private long base;
+
+	/* The smallest and largest values seen. */
+	private long lo;
+	private long hi;
+
+	/* The total of all the counts. */
+	private long total;
+
+	/** Create a new empty histogram. */
+	public Histogram() {
+		counts = new long[0];
+	}
+
+	/**
+	 * Count a value once.
+	 *
+	 * @param val
+	 *        The value to count.
+	 */
+	public void add(final long val) {
+		add(val, 1);
+	}
+
+	/**
+	 * Count a value a number of times.
+	 *
+	 * @param val
+	 *        The value to count.
+	 *
+	 * @param times
+	 *        The number of times to count it.
+	 */
+	public void add(final long val, final long times) {
+		if(times < 0) {
+			throw new IllegalArgumentException("Can't count a value a negative number of times");
+		} else if(times == 0) {
+			return;
+		}
+
+		cover(val);
+
+		counts[(int) (val - base)] += times;
+
+		total += times;
+	}
+
+	/**
+	 * Add all of the counts from another histogram to this one.
+	 *
+	 * @param other
+	 *        The histogram to add.
+	 */
+	public void merge(final Histogram other) {
+		if(other.total == 0) return;
+
+		cover(other.lo);
+		cover(other.hi);
+
+		final int off = (int) (other.lo - base);
+		final int otherOff = (int) (other.lo - other.base);
+
+		for(int i = 0; i <= other.hi - other.lo; i++) {
+			counts[off + i] += other.counts[otherOff + i];
+		}
+
+		total += other.total;
+	}
+
+	/**
+	 * Get the number of times a value was counted.
+	 *
+	 * @param val
+	 *        The value to check.
+	 *
+	 * @return The number of times the value was counted.
+	 */
+	public long count(final long val) {
+		if(total == 0 || val < lo || val > hi) return 0;
+
+		return counts[(int) (val - base)];
+	}
+
+	/**
+	 * Get the total number of values counted.
+	 *
+	 * @return The total of all the counts.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Get the smallest value counted.
+	 *
+	 * @return The smallest value counted.
+	 *
+	 * @throws IllegalStateException
+	 *         If nothing has been counted.
+	 */
+	public long minValue() {
+		checkNonEmpty();
+
+		return lo;
+	}
+
+	/**
+	 * Get the largest value counted.
+	 *
+	 * @return The largest value counted.
+	 *
+	 * @throws IllegalStateException
+	 *         If nothing has been counted.
+	 */
+	public long maxValue() {
+		checkNonEmpty();
+
+		return hi;
+	}
+
+	/**
+	 * Get the fraction of the counts that were for a given value.
+	 *
+	 * @param val
+	 *        The value to check.
+	 *
+	 * @return The observed probability of the value.
+	 */
+	public double probability(final long val) {
+		if(total == 0) return 0;
+
+		return (double) count(val) / total;
+	}
+
+	/**
+	 * Get the mean of the counted values.
+	 *
+	 * @return The mean of the counted values.
+	 *
+	 * @throws IllegalStateException
+	 *         If nothing has been counted.
+	 */
+	public double mean() {
+		checkNonEmpty();
+
+		double sum = 0;
+
+		for(long val = lo; val <= hi; val++) {
+			sum += (double) val * counts[(int) (val - base)];
+		}
+
+		return sum / total;
+	}
+
+	/**
+	 * Get the counts for every value from the smallest to the largest.
+	 *
+	 * @return The counts, starting with the one for the smallest value.
+	 */
+	public long[] counts() {
+		if(total == 0) return new long[0];
+
+		final int off = (int) (lo - base);
+
+		return Arrays.copyOfRange(counts, off, off + (int) (hi - lo) + 1);
+	}
+
+	/**
+	 * Convert the counts into an (approximate) distribution.
+	 *
+	 * @return The observed distribution of values.
+	 *
+	 * @throws IllegalStateException
+	 *         If nothing has been counted.
+	 */
+	public Distribution toDistribution() {
+		checkNonEmpty();
+
+		final long[] cnts = counts();
+		final double[] probs = new double[cnts.length];
+
+		for(int i = 0; i < cnts.length; i++) {
+			probs[i] = (double) cnts[i] / total;
+		}
+
+		return Distribution.of(lo, probs);
+	}
+
+	/* Make sure a value fits in the array. */
+	private void cover(final long val) {
+		if(counts.length == 0) {
+			counts = new long[16];
+
+			base = val - counts.length / 2;
+
+			lo = val;
+			hi = val;
+
+			return;
+		}
+
+		if(val >= base && val - base < counts.length) {
+			lo = Math.min(lo, val);
+			hi = Math.max(hi, val);
+
+			return;
+		}
+
+		final long newLo = Math.min(lo, val);
+		final long newHi = Math.max(hi, val);
+
+		final long span = newHi - newLo + 1;
+
+		if(span > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Histogram can't cover the range " + newLo + " to " + newHi);
+		}
+
+		/* Grow to at least twice the size, leaving room on both sides. */
+		final int newLen = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(span * 2, counts.length * 2L));
+		final long newBase = newLo - (newLen - span) / 2;
+
+		final long[] newCounts = new long[newLen];
+
+		System.arraycopy(counts, (int) (lo - base), newCounts, (int) (lo - newBase), (int) (hi - lo) + 1);
+
+		counts = newCounts;
+		base = newBase;
+
+		lo = newLo;
+		hi = newHi;
+	}
+
+	private void checkNonEmpty() {
+		if(total == 0) throw new IllegalStateException("Histogram is empty");
+	}
+
+	@Override
+	public String toString() {
+		if(total == 0) return "Histogram []";
+
+		final StringBuilder sb = new StringBuilder("Histogram [");
+
+		for(long val = lo; val <= hi; val++) {
+			final long cnt = counts[(int) (val - base)];
+
+			if(cnt == 0) continue;
+
+			if(sb.length() > 11) sb.append(", ");
+
+			sb.append(val).append('=').append(cnt);
+		}
+
+		return sb.append(']').toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(counts()) * 31 + Long.hashCode(lo);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) return true;
+		if(obj == null) return false;
+		if(getClass() != obj.getClass()) return false;
+		Histogram other = (Histogram) obj;
+		if(total != other.total) return false;
+		if(total == 0) return true;
+		if(lo != other.lo || hi != other.hi) return false;
+		return Arrays.equals(counts(), other.counts());
+	}
+}
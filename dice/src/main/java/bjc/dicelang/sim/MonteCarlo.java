@@ -0,0 +1,275 @@
+package bjc.dicelang.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.stream.Stream;
+
+import bjc.dicelang.dicev2.Die;
+import bjc.dicelang.dicev2.RollBuffer;
+import bjc.dicelang.neodice.DiePool;
+import bjc.dicelang.neodice.IntDiePool;
+import bjc.dicelang.rng.RandomProvider;
+
+/**
+ * Rolls dice a large number of times in parallel, and counts the results.
+ *
+ * The trials are cut into fixed-size chunks, and each chunk gets its own
+ * generator split off from one seeded with the simulation seed. Since how the
+ * trials are cut up only depends on the number of trials, a given seed gives
+ * the same histogram no matter how many threads run the chunks.
+ *
+ * @author Ben Culkin
+ */
+public final class MonteCarlo {
+	/** The default number of trials in a chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+	/* A single trial, rolling with a given generator. */
+	@FunctionalInterface
+	private interface Trial {
+		long run(RandomGenerator gen);
+	}
+
+	/* The generator for the chunk the current thread is running. */
+	private static final ThreadLocal<RandomGenerator> CURRENT = new ThreadLocal<>();
+
+	/*
+	 * Gives dicev2 dice the generator for the current chunk, or the usual
+	 * thread-local one outside of a simulation.
+	 */
+	private static final RandomProvider CHUNK_PROVIDER = () -> {
+		final RandomGenerator gen = CURRENT.get();
+
+		return gen == null ? ThreadLocalRandom.current() : gen;
+	};
+
+	/* The pool to run chunks in. */
+	private final ForkJoinPool pool;
+
+	/* The number of trials in a chunk. */
+	private final int chunkSize;
+
+	/** Create a new simulator that runs in the common fork/join pool. */
+	public MonteCarlo() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create a new simulator that runs in a given pool.
+	 *
+	 * @param pool
+	 *        The pool to run in.
+	 */
+	public MonteCarlo(final ForkJoinPool pool) {
+		this(pool, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a new simulator that runs in a given pool, with a given chunk
+	 * size.
+	 *
+	 * Changing the chunk size changes which results a seed gives.
+	 *
+	 * @param pool
+	 *        The pool to run in.
+	 *
+	 * @param chunkSize
+	 *        The number of trials in a chunk.
+	 */
+	public MonteCarlo(final ForkJoinPool pool, final int chunkSize) {
+		if(chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive, not " + chunkSize);
+		}
+
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Roll a dicev2 die pool a number of times, and count the totals of the
+	 * results.
+	 *
+	 * The random provider of the die is replaced with one for the
+	 * simulation while it runs, and put back afterwards. Putting it back
+	 * sets it for the dice inside the die as well, the same as
+	 * {@link Die#setRandom(RandomProvider)} does. The die shouldn't be
+	 * rolled anywhere else until the simulation is done.
+	 *
+	 * @param die
+	 *        The die pool to roll.
+	 *
+	 * @param trials
+	 *        The number of times to roll it.
+	 *
+	 * @param seed
+	 *        The seed for the simulation.
+	 *
+	 * @return A histogram of the totals of each roll.
+	 */
+	public Histogram simulate(final Die die, final long trials, final long seed) {
+		final RandomProvider oldRng = die.getRandom();
+
+		die.setRandom(CHUNK_PROVIDER);
+
+		/* Scratch buffer for each worker thread. */
+		final ThreadLocal<RollBuffer> bufs = ThreadLocal.withInitial(RollBuffer::new);
+
+		try {
+			return run(trials, seed, (gen) -> {
+				final RollBuffer buf = bufs.get();
+
+				buf.clear();
+
+				die.rollInto(buf);
+
+				final long[] vals = buf.array();
+
+				long sum = 0;
+				for(int i = 0; i < buf.size(); i++) {
+					sum += vals[i];
+				}
+
+				return sum;
+			});
+		} finally {
+			die.setRandom(oldRng);
+		}
+	}
+
+	/**
+	 * Roll a neodice pool of integer dice a number of times, and count the
+	 * totals of the results.
+	 *
+	 * @param dice
+	 *        The pool to roll.
+	 *
+	 * @param trials
+	 *        The number of times to roll it.
+	 *
+	 * @param seed
+	 *        The seed for the simulation.
+	 *
+	 * @return A histogram of the totals of each roll.
+	 */
+	public Histogram simulate(final DiePool<Integer> dice, final long trials, final long seed) {
+		if(dice instanceof IntDiePool) {
+			final IntDiePool ints = (IntDiePool) dice;
+
+			return run(trials, seed, ints::rollSum);
+		}
+
+		return simulate(dice, (vals) -> vals.mapToLong(Integer::longValue).sum(), trials, seed);
+	}
+
+	/**
+	 * Roll a neodice pool a number of times, and count the scores of the
+	 * results.
+	 *
+	 * @param <Side>
+	 *        The type of the sides of the dice.
+	 *
+	 * @param dice
+	 *        The pool to roll.
+	 *
+	 * @param score
+	 *        Turns the results of a roll into the value to count.
+	 *
+	 * @param trials
+	 *        The number of times to roll it.
+	 *
+	 * @param seed
+	 *        The seed for the simulation.
+	 *
+	 * @return A histogram of the scores of each roll.
+	 */
+	public <Side> Histogram simulate(final DiePool<Side> dice, final ToLongFunction<Stream<Side>> score,
+			final long trials, final long seed) {
+		return run(trials, seed, (gen) -> score.applyAsLong(dice.roll(gen)));
+	}
+
+	/* Run the trials in the pool. */
+	private Histogram run(final long trials, final long seed, final Trial trial) {
+		if(trials < 0) {
+			throw new IllegalArgumentException("Number of trials must be non-negative, not " + trials);
+		}
+
+		final long chunks = (trials + chunkSize - 1) / chunkSize;
+
+		return pool.invoke(new ChunkTask(trial, trials, 0, chunks, new SplittableRandom(seed)));
+	}
+
+	/* Runs a range of chunks, splitting it in half until it is one chunk. */
+	private final class ChunkTask extends RecursiveTask<Histogram> {
+		private static final long serialVersionUID = 1L;
+
+		private final Trial trial;
+
+		/* The total number of trials. */
+		private final long trials;
+
+		/* The range of chunks to run. */
+		private final long first;
+		private final long count;
+
+		private final SplittableGenerator gen;
+
+		public ChunkTask(final Trial trial, final long trials, final long first, final long count,
+				final SplittableGenerator gen) {
+			this.trial = trial;
+			this.trials = trials;
+
+			this.first = first;
+			this.count = count;
+
+			this.gen = gen;
+		}
+
+		@Override
+		protected Histogram compute() {
+			if(count <= 1) return runChunk();
+
+			final long half = count / 2;
+
+			/*
+			 * The split has to happen here, before either half runs, so that
+			 * each half always gets the same generator.
+			 */
+			final ChunkTask left = new ChunkTask(trial, trials, first, half, gen.split());
+			final ChunkTask right = new ChunkTask(trial, trials, first + half, count - half, gen);
+
+			left.fork();
+
+			final Histogram res = right.compute();
+
+			res.merge(left.join());
+
+			return res;
+		}
+
+		private Histogram runChunk() {
+			final Histogram res = new Histogram();
+
+			if(count == 0) return res;
+
+			final long start = first * chunkSize;
+			final long end = Math.min(trials, start + chunkSize);
+
+			CURRENT.set(gen);
+
+			try {
+				for(long i = start; i < end; i++) {
+					res.add(trial.run(gen));
+				}
+			} finally {
+				CURRENT.remove();
+			}
+
+			return res;
+		}
+	}
+}
@@ -9,6 +9,8 @@ module dicelang.dice {
 	exports bjc.dicelang.neodice.statements;
 	exports bjc.dicelang.dicev2;
 	exports bjc.dicelang.dice;
+	exports bjc.dicelang.rng;
+	exports bjc.dicelang.sim;
 	exports bjc.dicelang.neodice.commands;
 
 	requires bjc.utils;
@@ -0,0 +1,152 @@
+package bjc.dicelang.dice;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class DiceExpressionCacheTest {
+	/* Counts how many times literals get parsed. */
+	private final AtomicInteger parses = new AtomicInteger();
+
+	private final Function<String, DiceExpression> parser = (lit) -> {
+		parses.incrementAndGet();
+
+		return new DiceLiteralParser(lit).parse();
+	};
+
+	@Test
+	public void eachLookupIsOneHitOrMiss() {
+		final DiceExpressionCache cache = new DiceExpressionCache(16);
+
+		final DiceExpression first = cache.getOrParse("3d6", parser);
+
+		assertNotNull(first);
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		final DiceExpression second = cache.getOrParse("3d6", parser);
+
+		assertSame(first, second);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, parses.get());
+
+		cache.resetStats();
+
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+	}
+
+	@Test
+	public void nonDiceAreCachedAsNull() {
+		final DiceExpressionCache cache = new DiceExpressionCache(16);
+
+		assertNull(cache.getOrParse("foo", parser));
+		assertNull(cache.getOrParse("foo", parser));
+
+		assertEquals(1, parses.get());
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void evictionStaysUnderCapacity() {
+		final DiceExpressionCache cache = new DiceExpressionCache(16);
+
+		for(int i = 1; i <= 100; i++) {
+			cache.getOrParse("d" + i, parser);
+
+			assertTrue("Size was " + cache.size(), cache.size() <= 16);
+		}
+
+		assertEquals(100, cache.getMisses());
+		assertEquals(100 - cache.size(), cache.getEvictions());
+	}
+
+	@Test
+	public void recentlyUsedEntriesAreKept() {
+		final DiceExpressionCache cache = new DiceExpressionCache(16);
+
+		final List<String> hot = new ArrayList<>();
+		for(int i = 1; i <= 4; i++) hot.add(i + "d6");
+
+		for(int i = 1; i <= 100; i++) {
+			/* Use the hot entries between each new one. */
+			for(final String lit : hot) cache.getOrParse(lit, parser);
+
+			cache.getOrParse("d" + i, parser);
+		}
+
+		final int before = parses.get();
+
+		for(final String lit : hot) cache.getOrParse(lit, parser);
+
+		assertEquals("Hot entries were evicted", before, parses.get());
+	}
+
+	@Test
+	public void zeroCapacityClearsTheCache() {
+		final DiceExpressionCache cache = new DiceExpressionCache(16);
+
+		for(int i = 1; i <= 10; i++) cache.getOrParse("d" + i, parser);
+
+		cache.setCapacity(0);
+
+		assertEquals(0, cache.size());
+
+		/* Nothing is cached any more, so every lookup parses. */
+		cache.getOrParse("d1", parser);
+		cache.getOrParse("d1", parser);
+
+		assertEquals(0, cache.size());
+		assertEquals(12, parses.get());
+	}
+
+	@Test
+	public void shrinkingEvicts() {
+		final DiceExpressionCache cache = new DiceExpressionCache(16);
+
+		for(int i = 1; i <= 16; i++) cache.getOrParse("d" + i, parser);
+
+		cache.setCapacity(8);
+
+		assertTrue("Size was " + cache.size(), cache.size() <= 8);
+		assertEquals(8, cache.getCapacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeCapacitiesAreRejected() {
+		new DiceExpressionCache(-1);
+	}
+
+	@Test
+	public void statsAreExactAcrossThreads() throws InterruptedException {
+		final DiceExpressionCache cache = new DiceExpressionCache(32);
+
+		final Thread[] threads = new Thread[8];
+
+		for(int t = 0; t < threads.length; t++) {
+			final int seed = t;
+
+			threads[t] = new Thread(() -> {
+				for(int i = 0; i < 1000; i++) {
+					cache.getOrParse("d" + ((i * 7 + seed) % 50 + 1), parser);
+				}
+			});
+
+			threads[t].start();
+		}
+
+		for(final Thread thread : threads) thread.join();
+
+		assertEquals(8000, cache.getHits() + cache.getMisses());
+		assertEquals(parses.get(), cache.getMisses());
+	}
+}
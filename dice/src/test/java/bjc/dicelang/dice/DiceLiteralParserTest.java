@@ -0,0 +1,175 @@
+package bjc.dicelang.dice;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class DiceLiteralParserTest {
+	@Test
+	public void scalarDice() {
+		assertEquals("5", scalar("5sd", ScalarDie.class).toString());
+		assertEquals("5", scalar("+5sd", ScalarDie.class).toString());
+		assertEquals("-5", scalar("-5sd", ScalarDie.class).toString());
+
+		assertEquals(-5, scalar("-5sd", ScalarDie.class).roll());
+	}
+
+	@Test
+	public void simpleDice() {
+		assertEquals("3d6", scalar("3d6", SimpleDie.class).toString());
+
+		/* The number of dice defaults to one. */
+		assertEquals("1d20", scalar("d20", SimpleDie.class).toString());
+
+		final Die die = scalar("3d6", SimpleDie.class);
+
+		for(int i = 0; i < 100; i++) {
+			final long roll = die.roll();
+
+			assertTrue("Rolled " + roll, roll >= 3 && roll <= 18);
+		}
+	}
+
+	@Test
+	public void fudgeDice() {
+		assertEquals("4dF", scalar("4dF", FudgeDie.class).toString());
+		assertEquals("1dF", scalar("dF", FudgeDie.class).toString());
+	}
+
+	@Test
+	public void compoundDice() {
+		/* The right side is either another simple die, or a number. */
+		assertEquals("1d10c1d10", scalar("d10cd10", CompoundDie.class).toString());
+		assertEquals("1d10c2d10", scalar("d10c2d10", CompoundDie.class).toString());
+		assertEquals("1d10c10", scalar("d10c10", CompoundDie.class).toString());
+	}
+
+	@Test
+	public void comparePoints() {
+		assertEquals("3d6!!=6", scalar("3d6!!=6", CompoundingDie.class).toString());
+		assertEquals("3d6!>5", list("3d6!>5", ExplodingDice.class).toString());
+		assertEquals("3d6p!<2", list("3d6p!<2", ExplodingDice.class).toString());
+	}
+
+	@Test
+	public void comparePointsPickWhatExplodes() {
+		/* Compounding on a 2 of a d2 only stops on a 1, so totals are odd. */
+		final Die onTwo = scalar("1d2!!=2", CompoundingDie.class);
+		final Die aboveOne = scalar("1d2!!>1", CompoundingDie.class);
+		/* Compounding on a 1 only stops on a 2. */
+		final Die belowTwo = scalar("1d2!!<2", CompoundingDie.class);
+
+		final ExplodingDice exploding = list("1d2!=2", ExplodingDice.class);
+		final ExplodingDice penetrating = list("1d2p!=2", ExplodingDice.class);
+
+		for(int i = 0; i < 200; i++) {
+			assertEquals(1, onTwo.roll() % 2);
+			assertEquals(1, aboveOne.roll() % 2);
+			assertTrue(belowTwo.roll() >= 2);
+
+			/* Every 2 explodes, and only the last die isn't one. */
+			final long[] exploded = exploding.roll();
+
+			for(int j = 0; j < exploded.length - 1; j++) assertEquals(2, exploded[j]);
+			assertEquals(1, exploded[exploded.length - 1]);
+
+			/* Penetrating rolls are one less, so they never come up 2 again. */
+			final long[] penetrated = penetrating.roll();
+
+			assertTrue(penetrated.length <= 2);
+			if(penetrated.length == 2) {
+				assertEquals(2, penetrated[0]);
+				assertTrue(penetrated[1] == 0 || penetrated[1] == 1);
+			}
+		}
+	}
+
+	@Test
+	public void dieLists() {
+		assertEquals("3d6dl1d4", list("3d6dld4", SimpleDieList.class).toString());
+		assertEquals("2dl1d6", list("2sddld6", SimpleDieList.class).toString());
+	}
+
+	@Test
+	public void compoundWithNumberBeforeDieList() {
+		/* The 'd' after the 3 starts 'dl', not the sides of a die. */
+		final SimpleDieList dl = list("2d6c3dld4", SimpleDieList.class);
+
+		assertEquals("2d6c3dl1d4", dl.toString());
+	}
+
+	@Test
+	public void largestNumberParses() {
+		assertEquals(Long.toString(Long.MAX_VALUE), scalar(Long.MAX_VALUE + "sd", ScalarDie.class).toString());
+	}
+
+	@Test
+	public void nonDiceAreRejected() {
+		assertNull(DiceBox.tryParseExpression("foo"));
+		assertNull(DiceBox.tryParseExpression("3"));
+		assertFalse(DiceBox.isValidExpression("3d6 + 2"));
+	}
+
+	@Test
+	public void errorsSayWhereAndWhy() {
+		checkError("", 0, "Expected a die");
+		checkError("3x6", 1, "Expected 'd' or 'sd'");
+		checkError("3d", 2, "Expected a number");
+		checkError("+5", 2, "Expected 'sd' after signed number");
+		checkError("3d6c", 4, "Expected a die or number after 'c'");
+		checkError("3d6!", 4, "Expected '<', '=' or '>'");
+		checkError("3d6!!~6", 5, "Expected '<', '=' or '>'");
+		checkError("3d6q", 3, "Unexpected character 'q'");
+		checkError("3d6!>5x", 6, "Unexpected character 'x'");
+		checkError("3d6dl", 5, "Expected a die");
+	}
+
+	@Test
+	public void numbersThatAreTooLargeAreRejected() {
+		/* The position is the start of the number. */
+		checkError("9223372036854775808sd", 0, "Number too large");
+		checkError("3d99999999999999999999", 2, "Number too large");
+		checkError("3d6!>99999999999999999999", 5, "Number too large");
+	}
+
+	/* Parse an expression that should be a single die of a given type. */
+	private static <T extends Die> T scalar(final String lit, final Class<T> type) {
+		final DiceExpression exp = DiceBox.parseExpressionStrict(lit);
+
+		assertFalse(lit + " should be a single die", exp.isList());
+
+		final Die die = ((ScalarDiceExpression) exp).scalar;
+
+		assertTrue(lit + " parsed to a " + die.getClass().getSimpleName(), type.isInstance(die));
+
+		return type.cast(die);
+	}
+
+	/* Parse an expression that should be a list of dice of a given type. */
+	private static <T extends DieList> T list(final String lit, final Class<T> type) {
+		final DiceExpression exp = DiceBox.parseExpressionStrict(lit);
+
+		assertTrue(lit + " should be a list of dice", exp.isList());
+
+		final DieList dl = ((ListDiceExpression) exp).list;
+
+		assertTrue(lit + " parsed to a " + dl.getClass().getSimpleName(), type.isInstance(dl));
+
+		return type.cast(dl);
+	}
+
+	private static void checkError(final String lit, final int pos, final String reason) {
+		assertNull(lit + " should not parse", DiceBox.tryParseExpression(lit));
+
+		try {
+			DiceBox.parseExpressionStrict(lit);
+
+			fail(lit + " should not parse");
+		} catch(final DiceParseException dpex) {
+			assertEquals(lit, dpex.getInput());
+			assertEquals(lit + " failed at the wrong place", pos, dpex.getPosition());
+			assertEquals(lit + " failed for the wrong reason", reason, dpex.getReason());
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package bjc.dicelang.dice;
+
+import static bjc.dicelang.dice.RollEnumeration.assertMatches;
+import static bjc.dicelang.dice.RollEnumeration.sliceSum;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SuppressWarnings("javadoc")
+public class DistributionTableTest {
+	/* The table round-trips the doubles exactly, so only rounding differs. */
+	private static final double EPSILON = 1e-12;
+
+	private static final int[] SIDES = { 4, 6 };
+
+	private static final int MAX_DICE = 5;
+
+	private static final int MAX_KEEP_DICE = 4;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void everyEntryMatchesEnumeration() throws IOException {
+		final DistributionTable table = writeTable();
+
+		/* One entry for the whole pool, and two for each smaller slice. */
+		int entries = 0;
+
+		for(final int sides : SIDES) {
+			for(int dice = 1; dice <= MAX_DICE; dice++) {
+				final int all = table.find(dice, sides);
+
+				assertTrue(dice + "d" + sides + " is missing", all >= 0);
+				assertEntryMatches(enumerate(sides, dice, dice, true), table, all);
+
+				entries += 1;
+
+				for(int keep = 1; keep < dice; keep++) {
+					final int high = table.find(dice, sides, keep, true);
+					final int low = table.find(dice, sides, keep, false);
+
+					if(dice > MAX_KEEP_DICE) {
+						assertEquals(-1, high);
+						assertEquals(-1, low);
+
+						continue;
+					}
+
+					assertEntryMatches(enumerate(sides, dice, keep, true), table, high);
+					assertEntryMatches(enumerate(sides, dice, keep, false), table, low);
+
+					/* Dropping is keeping the rest, from the other end. */
+					assertEquals(high, table.findDropping(dice, sides, dice - keep, true));
+					assertEquals(low, table.findDropping(dice, sides, dice - keep, false));
+
+					entries += 2;
+				}
+			}
+		}
+
+		assertEquals(entries, table.size());
+	}
+
+	@Test
+	public void missingPoolsAreNotFound() throws IOException {
+		final DistributionTable table = writeTable();
+
+		assertEquals(-1, table.find(1, 8));
+		assertEquals(-1, table.find(MAX_DICE + 1, 6));
+		assertEquals(-1, table.find(0, 6));
+	}
+
+	@Test(expected = DieException.class)
+	public void missingEntriesAreRejected() throws IOException {
+		final DistributionTable table = writeTable();
+
+		table.probability(table.size(), 1);
+	}
+
+	@Test(expected = IOException.class)
+	public void otherFilesAreRejected() throws IOException {
+		final File file = folder.newFile("not-a-table");
+
+		Files.write(file.toPath(), new byte[64]);
+
+		DistributionTable.open(file.toPath());
+	}
+
+	@Test(expected = IOException.class)
+	public void shortFilesAreRejected() throws IOException {
+		final File file = folder.newFile("short-table");
+
+		Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+
+		DistributionTable.open(file.toPath());
+	}
+
+	private DistributionTable writeTable() throws IOException {
+		final Path path = new File(folder.getRoot(), "table.dst").toPath();
+
+		new DistributionTable.Builder().sides(SIDES).maxDice(MAX_DICE).maxKeepDice(MAX_KEEP_DICE).write(path);
+
+		return DistributionTable.open(path);
+	}
+
+	private static Map<Long, Double> enumerate(final int sides, final int dice, final int keep,
+			final boolean highest) {
+		return RollEnumeration.enumerate(Distribution.uniform(1, sides), dice,
+				(vals) -> sliceSum(vals, 0, keep, highest));
+	}
+
+	private static void assertEntryMatches(final Map<Long, Double> expected, final DistributionTable table,
+			final int entry) {
+		assertTrue("Entry is missing", entry >= 0);
+
+		assertMatches(expected, table.distribution(entry), EPSILON);
+
+		double atMost = 0;
+
+		for(long val = table.minValue(entry); val <= table.maxValue(entry); val++) {
+			final double prob = expected.getOrDefault(val, 0.0);
+
+			atMost += prob;
+
+			assertEquals("P(" + val + ")", prob, table.probability(entry, val), EPSILON);
+			assertEquals("P(<= " + val + ")", atMost, table.probabilityAtMost(entry, val), EPSILON);
+			assertEquals("P(>= " + val + ")", 1 - atMost + prob, table.probabilityAtLeast(entry, val), EPSILON);
+		}
+
+		assertEquals(0, table.probability(entry, table.minValue(entry) - 1), 0);
+		assertEquals(0, table.probability(entry, table.maxValue(entry) + 1), 0);
+
+		/* Every possible result fits in the entry. */
+		assertEquals(1, atMost, EPSILON);
+	}
+}
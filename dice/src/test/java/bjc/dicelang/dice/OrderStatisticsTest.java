@@ -0,0 +1,65 @@
+package bjc.dicelang.dice;
+
+import static bjc.dicelang.dice.RollEnumeration.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class OrderStatisticsTest {
+	private static final double EPSILON = 1e-12;
+
+	@Test
+	public void sliceSumMatchesEnumerationOfPolyhedralDice() {
+		for(int sides = 1; sides <= 6; sides++) {
+			checkAllSlices(Distribution.uniform(1, sides), 4);
+		}
+	}
+
+	@Test
+	public void sliceSumMatchesEnumerationOfFudgeDice() {
+		checkAllSlices(Distribution.uniform(-1, 1), 5);
+	}
+
+	@Test
+	public void sliceSumMatchesEnumerationOfUnevenDice() {
+		/* Faces with no chance of coming up are skipped over. */
+		checkAllSlices(Distribution.of(2, new double[] { 0.5, 0, 0.2, 0.3 }), 4);
+	}
+
+	@Test
+	public void keepAndDropAreTheSameSlices() {
+		final Distribution d6 = Distribution.uniform(1, 6);
+
+		assertMatches(slice(d6, 4, 1, 3, false), OrderStatistics.dropLowest(d6, 4, 1), EPSILON);
+		assertMatches(slice(d6, 4, 1, 3, true), OrderStatistics.dropHighest(d6, 4, 1), EPSILON);
+		assertMatches(slice(d6, 4, 0, 3, true), OrderStatistics.keepHighest(d6, 4, 3), EPSILON);
+		assertMatches(slice(d6, 4, 0, 3, false), OrderStatistics.keepLowest(d6, 4, 3), EPSILON);
+	}
+
+	@Test(expected = DieException.class)
+	public void negativeCountsAreRejected() {
+		OrderStatistics.sliceSum(Distribution.uniform(1, 6), 4, -1, 2, true);
+	}
+
+	/* Check every slice of every pool up to a size. */
+	private static void checkAllSlices(final Distribution face, final int maxCount) {
+		for(int count = 0; count <= maxCount; count++) {
+			for(int skip = 0; skip <= count + 1; skip++) {
+				for(int keep = 0; keep <= count + 1; keep++) {
+					for(final boolean descending : new boolean[] { true, false }) {
+						final Distribution actual = OrderStatistics.sliceSum(face, count, skip, keep, descending);
+
+						assertMatches(slice(face, count, skip, keep, descending), actual, EPSILON);
+					}
+				}
+			}
+		}
+	}
+
+	private static Map<Long, Double> slice(final Distribution face, final int count, final int skip,
+			final int keep, final boolean descending) {
+		return enumerate(face, count, (vals) -> sliceSum(vals, skip, keep, descending));
+	}
+}
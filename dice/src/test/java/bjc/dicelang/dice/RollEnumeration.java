@@ -0,0 +1,150 @@
+package bjc.dicelang.dice;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Brute-force enumeration of small dice pools, to check the exact engines
+ * against.
+ *
+ * @author Ben Culkin
+ */
+public final class RollEnumeration {
+	private RollEnumeration() {
+		// Only static methods.
+	}
+
+	/**
+	 * Go through every way a number of dice can come up.
+	 *
+	 * @param count
+	 *        The number of dice.
+	 *
+	 * @param faces
+	 *        The number of faces on each die.
+	 *
+	 * @param action
+	 *        Called with the index of the face of each die, from 0 to faces
+	 *        - 1. The array is reused between calls.
+	 */
+	public static void forEachRoll(final int count, final int faces, final Consumer<int[]> action) {
+		final int[] roll = new int[count];
+
+		while(true) {
+			action.accept(roll);
+
+			/* Move on to the next roll, like an odometer. */
+			int pos = 0;
+
+			while(pos < count && roll[pos] == faces - 1) {
+				roll[pos] = 0;
+
+				pos += 1;
+			}
+
+			if(pos == count) return;
+
+			roll[pos] += 1;
+		}
+	}
+
+	/**
+	 * Work out the distribution of the score of a pool, by going through
+	 * every way it can roll.
+	 *
+	 * @param face
+	 *        The distribution of each die in the pool.
+	 *
+	 * @param count
+	 *        The number of dice in the pool.
+	 *
+	 * @param score
+	 *        Scores the values of each die.
+	 *
+	 * @return The chance of each score.
+	 */
+	public static Map<Long, Double> enumerate(final Distribution face, final int count,
+			final ToLongFunction<long[]> score) {
+		final long lo = face.minValue();
+
+		final Map<Long, Double> res = new HashMap<>();
+
+		forEachRoll(count, (int) (face.maxValue() - lo + 1), (roll) -> {
+			final long[] vals = new long[count];
+
+			double chance = 1;
+
+			for(int i = 0; i < count; i++) {
+				vals[i] = lo + roll[i];
+
+				chance *= face.probability(vals[i]);
+			}
+
+			res.merge(score.applyAsLong(vals), chance, Double::sum);
+		});
+
+		return res;
+	}
+
+	/**
+	 * Sum part of a roll, after sorting it.
+	 *
+	 * @param vals
+	 *        The values of the roll. Not modified.
+	 *
+	 * @param skip
+	 *        The number of values to skip.
+	 *
+	 * @param keep
+	 *        The number of values to sum after those.
+	 *
+	 * @param descending
+	 *        Whether to start from the highest values, instead of the lowest
+	 *        ones.
+	 *
+	 * @return The sum of the slice.
+	 */
+	public static long sliceSum(final long[] vals, final int skip, final int keep, final boolean descending) {
+		final long[] sorted = vals.clone();
+		Arrays.sort(sorted);
+
+		long res = 0;
+
+		for(int rank = skip; rank < Math.min(sorted.length, skip + keep); rank++) {
+			res += descending ? sorted[sorted.length - 1 - rank] : sorted[rank];
+		}
+
+		return res;
+	}
+
+	/**
+	 * Check that a distribution gives every result the enumerated chance,
+	 * and no chance to anything else.
+	 *
+	 * @param expected
+	 *        The enumerated chance of each result.
+	 *
+	 * @param actual
+	 *        The distribution to check.
+	 *
+	 * @param epsilon
+	 *        How close each chance has to be.
+	 */
+	public static void assertMatches(final Map<Long, Double> expected, final Distribution actual,
+			final double epsilon) {
+		for(final Map.Entry<Long, Double> ent : expected.entrySet()) {
+			assertEquals("P(" + ent.getKey() + ")", ent.getValue(), actual.probability(ent.getKey()), epsilon);
+		}
+
+		for(long val = actual.minValue(); val <= actual.maxValue(); val++) {
+			if(!expected.containsKey(val)) {
+				assertEquals("P(" + val + ")", 0, actual.probability(val), epsilon);
+			}
+		}
+	}
+}
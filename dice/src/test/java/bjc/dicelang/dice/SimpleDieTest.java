@@ -0,0 +1,55 @@
+package bjc.dicelang.dice;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SimpleDieTest {
+	@Test
+	public void zeroSidedDiceOptimizeToZero() {
+		final SimpleDie die = new SimpleDie(3, 0);
+
+		assertTrue(die.canOptimize());
+		assertEquals(0, die.optimize());
+		assertEquals(0, die.roll());
+	}
+
+	@Test
+	public void oneSidedDiceOptimizeToTheirCount() {
+		final SimpleDie die = new SimpleDie(3, 1);
+
+		assertTrue(die.canOptimize());
+		assertEquals(3, die.optimize());
+		assertEquals(3, die.roll());
+	}
+
+	@Test
+	public void largerDiceDontOptimize() {
+		assertFalse(new SimpleDie(3, 6).canOptimize());
+	}
+
+	@Test
+	public void negativeSizesDontOptimize() {
+		/* Folding these would hide the error rolling them reports. */
+		final SimpleDie die = new SimpleDie(3, -1);
+
+		assertFalse(die.canOptimize());
+
+		try {
+			die.roll();
+
+			fail("Rolling a die with -1 sides should fail");
+		} catch(final DieException dex) {
+			// Expected
+		}
+
+		try {
+			die.distribution();
+
+			fail("The distribution of a die with -1 sides should fail");
+		} catch(final DieException dex) {
+			// Expected
+		}
+	}
+}
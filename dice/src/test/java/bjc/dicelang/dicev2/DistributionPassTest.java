@@ -0,0 +1,207 @@
+package bjc.dicelang.dicev2;
+
+import static bjc.dicelang.dice.RollEnumeration.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.function.ToLongFunction;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class DistributionPassTest {
+	/* Explosions are cut off, so only expect them to be this close. */
+	private static final double EPSILON = 1e-9;
+
+	/* The chance at which enumerated explosions stop. */
+	private static final double CUTOFF = 1e-15;
+
+	private final DistributionPass pass = new DistributionPass();
+
+	@Test
+	public void explodingTotalMatchesEnumeration() {
+		final LongPredicate onMax = (val) -> val == 4;
+
+		final DieDistribution actual = pass.total(DieMods.explode(onMax, Dies.polyhedral(2, 4)));
+
+		assertPassMatches(enumerate(2, 4, onMax, false, DistributionPassTest::sum), actual);
+	}
+
+	@Test
+	public void penetratingTotalMatchesEnumeration() {
+		/* Penetrating rolls are one less, so only a rolled 4 explodes again. */
+		final LongPredicate onThree = (val) -> val >= 3;
+
+		final DieDistribution actual = pass.total(DieMods.explode(onThree, true, Dies.polyhedral(2, 4)));
+
+		assertPassMatches(enumerate(2, 4, onThree, true, DistributionPassTest::sum), actual);
+	}
+
+	@Test
+	public void countOfExplodingDiceMatchesEnumeration() {
+		final LongPredicate onMax = (val) -> val == 4;
+
+		final Die die = DieMods.counted((val) -> val >= 3, DieMods.explode(onMax, Dies.polyhedral(2, 4)));
+
+		final Map<Long, Double> expected = enumerate(2, 4, onMax, false,
+				(vals) -> Arrays.stream(vals).filter((val) -> val >= 3).count());
+
+		assertPassMatches(expected, pass.total(die));
+	}
+
+	@Test
+	public void compoundingSingleMatchesEnumeration() {
+		final LongPredicate onMax = (val) -> val == 6;
+
+		final DieDistribution actual = pass.single(DieMods.compound(onMax, Dies.polyhedral(1, 6)));
+
+		assertPassMatches(enumerate(1, 6, onMax, false, DistributionPassTest::sum), actual);
+	}
+
+	@Test
+	public void penetratingCompoundingSingleMatchesEnumeration() {
+		final LongPredicate onFive = (val) -> val >= 5;
+
+		final DieDistribution actual = pass.single(DieMods.compound(onFive, true, Dies.polyhedral(1, 6)));
+
+		assertPassMatches(enumerate(1, 6, onFive, true, DistributionPassTest::sum), actual);
+	}
+
+	@Test
+	public void compoundingTotalMatchesEnumeration() {
+		final LongPredicate onMax = (val) -> val == 3;
+
+		final DieDistribution actual = pass.total(DieMods.compound(onMax, Dies.polyhedral(3, 3)));
+
+		assertPassMatches(enumerate(3, 3, onMax, false, DistributionPassTest::sum), actual);
+	}
+
+	@Test
+	public void countWithFailuresMatchesEnumeration() {
+		final Die die = DieMods.counted((val) -> val >= 5, (val) -> val == 1, Dies.polyhedral(3, 6));
+
+		final Map<Long, Double> expected = enumerate(3, 6, (val) -> false, false, (vals) -> {
+			long count = 0;
+
+			for(final long val : vals) {
+				if(val >= 5) count += 1;
+				if(val == 1) count -= 1;
+			}
+
+			return count;
+		});
+
+		assertPassMatches(expected, pass.total(die));
+	}
+
+	@Test
+	public void keepHighestMatchesEnumeration() {
+		final Die die = DieMods.take(2, DieMods.descending(Dies.polyhedral(4, 6)));
+
+		assertPassMatches(enumerate(4, 6, (val) -> false, false, (vals) -> sliceSum(vals, 0, 2, true)), pass.total(die));
+	}
+
+	@Test
+	public void dropLowestMatchesEnumeration() {
+		final Die die = DieMods.drop(1, DieMods.ascending(Dies.polyhedral(3, 4)));
+
+		assertPassMatches(enumerate(3, 4, (val) -> false, false, (vals) -> sliceSum(vals, 1, 3, false)), pass.total(die));
+	}
+
+	@Test
+	public void dropHighestMatchesEnumeration() {
+		final Die die = DieMods.drop(1, DieMods.descending(Dies.polyhedral(4, 4)));
+
+		assertPassMatches(enumerate(4, 4, (val) -> false, false, (vals) -> sliceSum(vals, 1, 3, true)), pass.total(die));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void slicingDifferentDiceIsRejected() {
+		pass.total(DieMods.take(1, DieMods.descending(DieMods.pool(Dies.polyhedral(1, 4), Dies.polyhedral(1, 6)))));
+	}
+
+	@Test
+	public void unsortedSliceMatchesEnumeration() {
+		final Die die = DieMods.take(1, Dies.polyhedral(3, 6));
+
+		assertPassMatches(enumerate(3, 6, (val) -> false, false, (vals) -> vals[0]), pass.total(die));
+	}
+
+	/*
+	 * Go through every way a pool of dice can roll, following explosions
+	 * until they become less likely than the cut-off, and score each roll.
+	 * Explosions go right after the die that caused them, the same as
+	 * ExplodingDieMod does.
+	 */
+	private static Map<Long, Double> enumerate(final int dice, final int sides, final LongPredicate explode,
+			final boolean penetrate, final ToLongFunction<long[]> score) {
+		final List<List<Long>> chains = new ArrayList<>();
+		final List<Double> chances = new ArrayList<>();
+
+		for(long face = 1; face <= sides; face++) {
+			chain(sides, explode, penetrate, new ArrayList<>(Arrays.asList(face)), 1.0 / sides, chains, chances);
+		}
+
+		final Map<Long, Double> res = new HashMap<>();
+
+		/* Each die of the pool follows one of the chains. */
+		forEachRoll(dice, chains.size(), (roll) -> {
+			final List<Long> vals = new ArrayList<>();
+
+			double chance = 1;
+
+			for(final int idx : roll) {
+				vals.addAll(chains.get(idx));
+
+				chance *= chances.get(idx);
+			}
+
+			res.merge(score.applyAsLong(vals.stream().mapToLong(Long::longValue).toArray()), chance, Double::sum);
+		});
+
+		return res;
+	}
+
+	/* Follow the explosions of a single die. */
+	private static void chain(final int sides, final LongPredicate explode, final boolean penetrate,
+			final List<Long> rolled, final double chance, final List<List<Long>> chains, final List<Double> chances) {
+		final long last = rolled.get(rolled.size() - 1);
+
+		if(!explode.test(last)) {
+			chains.add(new ArrayList<>(rolled));
+			chances.add(chance);
+
+			return;
+		}
+
+		/* Whatever is left is cut off, like the tail of DistributionPass. */
+		if(chance < CUTOFF) return;
+
+		for(long face = 1; face <= sides; face++) {
+			rolled.add(penetrate ? face - 1 : face);
+
+			chain(sides, explode, penetrate, rolled, chance / sides, chains, chances);
+
+			rolled.remove(rolled.size() - 1);
+		}
+	}
+
+	private static long sum(final long[] vals) {
+		long res = 0;
+
+		for(final long val : vals) res += val;
+
+		return res;
+	}
+
+	private static void assertPassMatches(final Map<Long, Double> expected, final DieDistribution actual) {
+		assertMatches(expected, actual.distribution, EPSILON);
+
+		assertEquals(0, actual.tailMass, EPSILON);
+	}
+}
@@ -0,0 +1,139 @@
+package bjc.dicelang.dicev2;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import bjc.dicelang.rng.RandomProvider;
+
+@SuppressWarnings("javadoc")
+public class SortDieModTest {
+	/* Large enough to be counting sorted. */
+	private static final int DICE = 40;
+
+	private static final int ROLLS = 50;
+
+	@Test
+	public void plainPoolsSort() {
+		checkSorts(Dies.polyhedral(DICE, 6));
+		checkSorts(Dies.polyhedral(DICE, 100));
+		checkSorts(Dies.fudge(DICE));
+	}
+
+	@Test
+	public void explodingPoolsSort() {
+		checkSorts(DieMods.explode((val) -> val >= 5, Dies.polyhedral(DICE, 6)));
+		checkSorts(DieMods.explode((val) -> val == 1, Dies.fudge(DICE)));
+	}
+
+	@Test
+	public void penetratingPoolsSort() {
+		/* Penetrating results can be one below the lowest face. */
+		checkSorts(DieMods.explode((val) -> val >= 5, true, Dies.polyhedral(DICE, 6)));
+		checkSorts(DieMods.explode((val) -> val == 1, true, Dies.fudge(DICE)));
+	}
+
+	@Test
+	public void poolsWithTooManyFacesSort() {
+		checkSorts(Dies.polyhedral(DICE, 5000));
+	}
+
+	@Test
+	public void poolsOfDifferentDiceSort() {
+		checkSorts(DieMods.pool(Dies.fudge(DICE / 2), Dies.polyhedral(DICE / 2, 8)));
+	}
+
+	@Test
+	public void otherComparatorsSort() {
+		/* Sorts odd results before even ones, and then by value. */
+		final Comparator<Long> oddFirst = Comparator.<Long, Boolean>comparing((val) -> val % 2 == 0)
+				.thenComparing(Comparator.naturalOrder());
+
+		for(final int dice : new int[] { 10, DICE }) {
+			final Die inner = Dies.polyhedral(dice, 6);
+			final Die sorted = DieMods.sort(oddFirst, inner);
+
+			for(long seed = 0; seed < ROLLS; seed++) {
+				final Long[] expected = Arrays.stream(roll(inner, seed)).boxed().toArray(Long[]::new);
+				Arrays.sort(expected, oddFirst);
+
+				final long[] actual = roll(sorted, seed);
+
+				for(int i = 0; i < expected.length; i++) {
+					assertEquals("Index " + i + " of seed " + seed, (long) expected[i], actual[i]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void earlierResultsAreLeftAlone() {
+		final Die inner = Dies.polyhedral(DICE, 6);
+		final Die sorted = DieMods.descending(inner);
+
+		final RollBuffer buf = new RollBuffer();
+		buf.add(100);
+		buf.add(-100);
+
+		sorted.setRandom(RandomProvider.shared(new SplittableRandom(7)));
+		sorted.rollInto(buf);
+
+		final long[] expected = sortedCopy(roll(inner, 7), true);
+
+		assertEquals(DICE + 2, buf.size());
+		assertEquals(100, buf.get(0));
+		assertEquals(-100, buf.get(1));
+
+		assertArrayEquals(expected, Arrays.copyOfRange(buf.toArray(), 2, DICE + 2));
+	}
+
+	/*
+	 * Check that sorting a pool in either direction gives the same results
+	 * as rolling it with the same seed and sorting them with Arrays.sort.
+	 */
+	private static void checkSorts(final Die inner) {
+		final Die ascending = DieMods.ascending(inner);
+		final Die descending = DieMods.descending(inner);
+
+		for(long seed = 0; seed < ROLLS; seed++) {
+			final long[] unsorted = roll(inner, seed);
+
+			assertTrue(unsorted.length >= DICE);
+
+			/* The counting sort relies on the results being in bounds. */
+			for(final long val : unsorted) {
+				assertTrue(val + " is below " + inner.minFace(), val >= inner.minFace());
+				assertTrue(val + " is above " + inner.maxFace(), val <= inner.maxFace());
+			}
+
+			assertArrayEquals(sortedCopy(unsorted, false), roll(ascending, seed));
+			assertArrayEquals(sortedCopy(unsorted, true), roll(descending, seed));
+		}
+	}
+
+	private static long[] roll(final Die die, final long seed) {
+		die.setRandom(RandomProvider.shared(new SplittableRandom(seed)));
+
+		return die.roll();
+	}
+
+	private static long[] sortedCopy(final long[] vals, final boolean descending) {
+		final long[] res = vals.clone();
+		Arrays.sort(res);
+
+		if(descending) {
+			for(int i = 0, j = res.length - 1; i < j; i++, j--) {
+				final long tmp = res[i];
+
+				res[i] = res[j];
+				res[j] = tmp;
+			}
+		}
+
+		return res;
+	}
+}
@@ -0,0 +1,69 @@
+package bjc.dicelang.neodice;
+
+import static bjc.dicelang.dice.RollEnumeration.forEachRoll;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SelectionTest {
+	@Test
+	public void keepMaskMatchesSortingEveryRoll() {
+		for(int size = 0; size <= 6; size++) {
+			final int count = size;
+
+			forEachRoll(count, 3, (vals) -> {
+				final IntBinaryOperator order = Selection.byValue(
+						(left, right) -> Integer.compare(vals[left], vals[right]));
+
+				for(int kept = -1; kept <= count + 1; kept++) {
+					for(final boolean fromTop : new boolean[] { true, false }) {
+						final String msg = String.format("%s, keeping %d from the %s", Arrays.toString(vals), kept,
+								fromTop ? "top" : "bottom");
+
+						assertArrayEquals(msg, sorted(vals, kept, fromTop),
+								Selection.keepMask(count, kept, fromTop, order));
+					}
+				}
+			});
+		}
+	}
+
+	@Test
+	public void keepingAndDroppingSplitTheRollTheSameWay() {
+		final int[] vals = { 3, 1, 3, 2, 1, 3 };
+
+		final IntBinaryOperator order = Selection.byValue((left, right) -> Integer.compare(vals[left], vals[right]));
+
+		for(int kept = 0; kept <= vals.length; kept++) {
+			final boolean[] high = Selection.keepMask(vals.length, kept, true, order);
+			final boolean[] low = Selection.keepMask(vals.length, vals.length - kept, false, order);
+
+			for(int idx = 0; idx < vals.length; idx++) {
+				assertNotEquals("Index " + idx + ", keeping " + kept, high[idx], low[idx]);
+			}
+		}
+	}
+
+	/* Work out the mask by stably sorting the indices by value. */
+	private static boolean[] sorted(final int[] vals, final int kept, final boolean fromTop) {
+		final Integer[] idxs = new Integer[vals.length];
+
+		for(int idx = 0; idx < vals.length; idx++) idxs[idx] = idx;
+
+		Arrays.sort(idxs, (left, right) -> Integer.compare(vals[left], vals[right]));
+
+		final boolean[] mask = new boolean[vals.length];
+
+		final int count = Math.max(0, Math.min(kept, vals.length));
+
+		for(int rank = 0; rank < count; rank++) {
+			mask[fromTop ? idxs[vals.length - 1 - rank] : idxs[rank]] = true;
+		}
+
+		return mask;
+	}
+}
@@ -0,0 +1,106 @@
+package bjc.dicelang.sim;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import bjc.dicelang.dicev2.DieMods;
+import bjc.dicelang.dicev2.Dies;
+import bjc.dicelang.neodice.Die;
+import bjc.dicelang.neodice.IntDie;
+import bjc.dicelang.rng.RandomProvider;
+
+@SuppressWarnings("javadoc")
+public class MonteCarloTest {
+	/* Not a multiple of the chunk size, so the last chunk is a short one. */
+	private static final long TRIALS = 10_007;
+
+	private static final int CHUNK_SIZE = 1_000;
+
+	private static final long SEED = 0x5eedL;
+
+	@Test
+	public void intPoolIsTheSameOnAnyNumberOfThreads() {
+		final Histogram hist = onEachPool((sim) -> sim.simulate(IntDie.polyhedral(6).times(3), TRIALS, SEED));
+
+		checkRange(hist, 3, 18);
+	}
+
+	@Test
+	public void genericPoolIsTheSameOnAnyNumberOfThreads() {
+		final Die<Integer> d6 = (rng) -> rng.nextInt(6) + 1;
+
+		final Histogram hist = onEachPool((sim) -> sim.simulate(d6.times(3),
+				(vals) -> vals.mapToLong(Integer::longValue).sum(), TRIALS, SEED));
+
+		checkRange(hist, 3, 18);
+	}
+
+	@Test
+	public void dicev2DieIsTheSameOnAnyNumberOfThreads() {
+		final bjc.dicelang.dicev2.Die die = DieMods.explode((val) -> val == 6, Dies.polyhedral(2, 6));
+
+		final Histogram hist = onEachPool((sim) -> sim.simulate(die, TRIALS, SEED));
+
+		assertEquals(TRIALS, hist.getTotal());
+		assertTrue(hist.minValue() >= 2);
+	}
+
+	@Test
+	public void differentSeedsGiveDifferentResults() {
+		final MonteCarlo sim = new MonteCarlo(ForkJoinPool.commonPool(), CHUNK_SIZE);
+
+		final IntDie d6 = IntDie.polyhedral(6);
+
+		assertNotEquals(sim.simulate(d6.times(3), TRIALS, SEED), sim.simulate(d6.times(3), TRIALS, SEED + 1));
+	}
+
+	@Test
+	public void dicev2DieGetsItsRandomProviderBack() {
+		final bjc.dicelang.dicev2.Die die = Dies.polyhedral(3, 6);
+
+		final RandomProvider rng = RandomProvider.threadLocal();
+
+		die.setRandom(rng);
+
+		new MonteCarlo(ForkJoinPool.commonPool(), CHUNK_SIZE).simulate(die, TRIALS, SEED);
+
+		assertSame(rng, die.getRandom());
+	}
+
+	/*
+	 * Run a simulation on pools with different numbers of threads, and
+	 * check that they all got the same results.
+	 */
+	private static Histogram onEachPool(final Function<MonteCarlo, Histogram> simulation) {
+		Histogram first = null;
+
+		for(final int threads : new int[] { 1, 2, 4 }) {
+			final ForkJoinPool pool = new ForkJoinPool(threads);
+
+			try {
+				final Histogram hist = simulation.apply(new MonteCarlo(pool, CHUNK_SIZE));
+
+				if(first == null) {
+					first = hist;
+				} else {
+					assertEquals("Simulation on " + threads + " threads", first, hist);
+				}
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		return first;
+	}
+
+	private static void checkRange(final Histogram hist, final long min, final long max) {
+		assertEquals(TRIALS, hist.getTotal());
+
+		assertTrue("Smallest total was " + hist.minValue(), hist.minValue() >= min);
+		assertTrue("Largest total was " + hist.maxValue(), hist.maxValue() <= max);
+	}
+}